@@ -39,11 +39,24 @@ import net.zetetic.database.sqlcipher.SQLiteDatabase;
 
 
 import java.io.File;
+import java.util.Stack;
 
 public class AndroidSQLCipherSQLite extends SQLDatabase {
 
     SQLiteDatabase database = null;
 
+    /**
+     * Tracks whether the current nested set of transactions has had any
+     * failed transactions so far.
+     */
+    private boolean transactionNestedSetSuccess = false;
+
+    /**
+     * Stack to track whether each transaction in the current nested set is
+     * successful, innermost last.
+     */
+    private final Stack<Boolean> transactionStack = new Stack<Boolean>();
+
     /**
      * Constructor for creating SQLCipher-based SQLite database.
      * @param path full file path of the db file
@@ -57,6 +70,19 @@ public class AndroidSQLCipherSQLite extends SQLDatabase {
         return new AndroidSQLCipherSQLite(db);
     }
 
+    /**
+     * Opens an existing SQLCipher-based SQLite database as read-only.
+     * @param path full file path of the db file
+     * @param provider Provider object that contains the key to decrypt the SQLCipher database
+     * @return
+     */
+    public static AndroidSQLCipherSQLite openReadOnly(File path, KeyProvider provider) {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(path.toString(),
+                KeyUtils.sqlCipherKeyForKeyProvider(provider), null, SQLiteDatabase.OPEN_READONLY,
+                null);
+        return new AndroidSQLCipherSQLite(db);
+    }
+
     public AndroidSQLCipherSQLite(final SQLiteDatabase database) {
         this.database = database;
     }
@@ -71,6 +97,13 @@ public class AndroidSQLCipherSQLite extends SQLDatabase {
         }
     }
 
+    @Override
+    public void enableWriteAheadLogging() throws java.sql.SQLException {
+        if (!this.database.enableWriteAheadLogging()) {
+            throw new java.sql.SQLException("Could not enable write-ahead logging");
+        }
+    }
+
     @Override
     public void open() {
         // database should be already opened
@@ -91,17 +124,53 @@ public class AndroidSQLCipherSQLite extends SQLDatabase {
 
     @Override
     public void beginTransaction() {
-        this.database.beginTransaction();
+        // Only the outermost transaction is started on the database, so that a failed nested
+        // transaction can be forgotten by clearNestedTransactionFailure(). The database can
+        // only begin transactions which take the write lock, which a read-only connection
+        // can't do, so on those only the nesting is tracked and each statement reads the
+        // last committed state.
+        if (this.transactionStack.isEmpty()) {
+            if (!this.database.isReadOnly()) {
+                this.database.beginTransaction();
+            }
+            transactionNestedSetSuccess = true;
+        }
+        transactionStack.push(false);
     }
 
     @Override
     public void endTransaction() {
-        this.database.endTransaction();
+        Misc.checkState(!this.transactionStack.isEmpty(),
+                "TransactionStatus stack must not be empty");
+        if (!this.transactionStack.pop()) {
+            transactionNestedSetSuccess = false;
+        }
+        if (this.transactionStack.isEmpty() && !this.database.isReadOnly()) {
+            if (transactionNestedSetSuccess) {
+                this.database.setTransactionSuccessful();
+            }
+            this.database.endTransaction();
+        }
     }
 
     @Override
     public void setTransactionSuccessful() {
-        this.database.setTransactionSuccessful();
+        Misc.checkState(!this.transactionStack.isEmpty(),
+                "TransactionStatus stack must not be empty");
+        this.transactionStack.pop();
+        this.transactionStack.push(true);
+    }
+
+    @Override
+    public boolean isNestedTransactionFailed() {
+        return !this.transactionStack.isEmpty() && !transactionNestedSetSuccess;
+    }
+
+    @Override
+    public void clearNestedTransactionFailure() {
+        Misc.checkState(!this.transactionStack.isEmpty(),
+                "TransactionStatus stack must not be empty");
+        transactionNestedSetSuccess = true;
     }
 
     @Override
@@ -24,11 +24,24 @@ import org.hammock.sync.internal.sqlite.SQLDatabase;
 import org.hammock.sync.internal.util.Misc;
 
 import java.io.File;
+import java.util.Stack;
 
 public class AndroidSQLite extends SQLDatabase {
 
     android.database.sqlite.SQLiteDatabase database = null;
 
+    /**
+     * Tracks whether the current nested set of transactions has had any
+     * failed transactions so far.
+     */
+    private boolean transactionNestedSetSuccess = false;
+
+    /**
+     * Stack to track whether each transaction in the current nested set is
+     * successful, innermost last.
+     */
+    private final Stack<Boolean> transactionStack = new Stack<Boolean>();
+
     public static AndroidSQLite open(File path) {
         SQLiteDatabase db;
         if (path != null) {
@@ -39,6 +52,12 @@ public class AndroidSQLite extends SQLDatabase {
         return new AndroidSQLite(db);
     }
 
+    public static AndroidSQLite openReadOnly(File path) {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(path.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        return new AndroidSQLite(db);
+    }
+
     public AndroidSQLite(final android.database.sqlite.SQLiteDatabase database) {
         this.database = database;
 
@@ -54,6 +73,13 @@ public class AndroidSQLite extends SQLDatabase {
         }
     }
 
+    @Override
+    public void enableWriteAheadLogging() throws java.sql.SQLException {
+        if (!this.database.enableWriteAheadLogging()) {
+            throw new java.sql.SQLException("Could not enable write-ahead logging");
+        }
+    }
+
     @Override
     public void open() {
         // database should be already opened
@@ -74,17 +100,53 @@ public class AndroidSQLite extends SQLDatabase {
 
     @Override
     public void beginTransaction() {
-        this.database.beginTransaction();
+        // Only the outermost transaction is started on the database, so that a failed nested
+        // transaction can be forgotten by clearNestedTransactionFailure(). The database can
+        // only begin transactions which take the write lock, which a read-only connection
+        // can't do, so on those only the nesting is tracked and each statement reads the
+        // last committed state.
+        if (this.transactionStack.isEmpty()) {
+            if (!this.database.isReadOnly()) {
+                this.database.beginTransaction();
+            }
+            transactionNestedSetSuccess = true;
+        }
+        transactionStack.push(false);
     }
 
     @Override
     public void endTransaction() {
-        this.database.endTransaction();
+        Misc.checkState(!this.transactionStack.isEmpty(),
+                "TransactionStatus stack must not be empty");
+        if (!this.transactionStack.pop()) {
+            transactionNestedSetSuccess = false;
+        }
+        if (this.transactionStack.isEmpty() && !this.database.isReadOnly()) {
+            if (transactionNestedSetSuccess) {
+                this.database.setTransactionSuccessful();
+            }
+            this.database.endTransaction();
+        }
     }
 
     @Override
     public void setTransactionSuccessful() {
-        this.database.setTransactionSuccessful();
+        Misc.checkState(!this.transactionStack.isEmpty(),
+                "TransactionStatus stack must not be empty");
+        this.transactionStack.pop();
+        this.transactionStack.push(true);
+    }
+
+    @Override
+    public boolean isNestedTransactionFailed() {
+        return !this.transactionStack.isEmpty() && !transactionNestedSetSuccess;
+    }
+
+    @Override
+    public void clearNestedTransactionFailure() {
+        Misc.checkState(!this.transactionStack.isEmpty(),
+                "TransactionStatus stack must not be empty");
+        transactionNestedSetSuccess = true;
     }
 
     @Override
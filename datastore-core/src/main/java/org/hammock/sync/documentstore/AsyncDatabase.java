@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.documentstore;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>Non-blocking counterparts of the most frequently used {@link Database} methods.</p>
+ *
+ * <p>Each method queues its work on the same database connections as the corresponding
+ * {@link Database} method and returns immediately. The returned future is completed with the
+ * value the {@link Database} method would have returned, or exceptionally with the exception it
+ * would have thrown, and the same events are posted on the
+ * {@link Database#getEventBus() event bus}. Invalid arguments, and calls made after the
+ * DocumentStore has been closed, still throw straight away.</p>
+ *
+ * <p>Futures are completed, and events for writes are posted, on the threads which access the
+ * database. Stages which do lengthy work, or which call back into the {@link Database}, should
+ * therefore be added with one of the {@code *Async} methods of {@link CompletableFuture} to run
+ * them on another executor, and event subscribers must not block waiting for further database
+ * operations. Cancelling a future does not cancel the underlying database operation.</p>
+ *
+ * @see DocumentStore#async()
+ */
+public interface AsyncDatabase {
+
+    /**
+     * Retrieves the current winning revision of a document, as {@link Database#read(String)}.
+     *
+     * @param documentId ID of document to retrieve.
+     * @return a future for the {@code DocumentRevision} of the document, completed exceptionally
+     * with {@link DocumentNotFoundException} if the document was not found, or
+     * {@link DocumentStoreException} if there was an error reading from the database
+     */
+    CompletableFuture<DocumentRevision> read(String documentId);
+
+    /**
+     * Retrieves a given revision of a document, as {@link Database#read(String, String)}.
+     *
+     * @param documentId ID of the document
+     * @param revisionId Revision of the document
+     * @return a future for the {@code DocumentRevision} of the document, completed exceptionally
+     * with {@link DocumentNotFoundException} if the document at the specified revision was not
+     * found, or {@link DocumentStoreException} if there was an error reading from the database
+     */
+    CompletableFuture<DocumentRevision> read(String documentId, String revisionId);
+
+    /**
+     * Adds a new document, as {@link Database#create(DocumentRevision)}.
+     *
+     * @param rev the {@code DocumentRevision} to be created
+     * @return a future for the newly created document, completed exceptionally with
+     * {@link AttachmentException}, {@link InvalidDocumentException}, {@link ConflictException}
+     * or {@link DocumentStoreException} in the same cases as
+     * {@link Database#create(DocumentRevision)}
+     */
+    CompletableFuture<DocumentRevision> create(DocumentRevision rev);
+
+    /**
+     * Updates a document, as {@link Database#update(DocumentRevision)}.
+     *
+     * @param rev the {@code DocumentRevision} to be updated
+     * @return a future for the updated document, completed exceptionally with
+     * {@link AttachmentException}, {@link InvalidDocumentException}, {@link ConflictException},
+     * {@link DocumentNotFoundException} or {@link DocumentStoreException} in the same cases as
+     * {@link Database#update(DocumentRevision)}
+     */
+    CompletableFuture<DocumentRevision> update(DocumentRevision rev);
+
+    /**
+     * Deletes a document, as {@link Database#delete(DocumentRevision)}.
+     *
+     * @param rev the {@code DocumentRevision} to be deleted
+     * @return a future for the deleted or "tombstone" document, or {@code null} for a local
+     * document, completed exceptionally with {@link ConflictException},
+     * {@link DocumentNotFoundException} or {@link DocumentStoreException} in the same cases as
+     * {@link Database#delete(DocumentRevision)}
+     */
+    CompletableFuture<DocumentRevision> delete(DocumentRevision rev);
+
+    /**
+     * Returns a list of changed documents, as {@link Database#changes(long, int)}.
+     *
+     * @param since the lower bound (exclusive) of the change set sequence number
+     * @param limit {@code since + limit} is the upper bound (inclusive) of the change set
+     *              sequence number
+     * @return a future for the documents and last sequence number of the change set, completed
+     * exceptionally with {@link DocumentStoreException} if there was an error reading from the
+     * database
+     */
+    CompletableFuture<Changes> changes(long since, int limit);
+
+    /**
+     * <p>Returns the subset of the given document ID/revision IDs which are not stored in the
+     * database.</p>
+     *
+     * @param revisions a map of document IDs to lists of revision IDs to look up
+     * @return a future for a map of document IDs to the revision IDs of that document which are
+     * not stored, containing only the documents which have missing revisions, completed
+     * exceptionally with {@link DocumentStoreException} if there was an error reading from the
+     * database
+     */
+    CompletableFuture<Map<String, List<String>>> revsDiff(Map<String, List<String>> revisions);
+
+}
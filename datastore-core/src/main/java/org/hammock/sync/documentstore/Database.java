@@ -369,6 +369,69 @@ public interface Database {
      */
     List<DocumentRevision> delete(String id) throws DocumentNotFoundException, DocumentStoreException;
 
+    /**
+     * <p>Creates each of the documents in <code>revs</code>, as if by
+     * {@link Database#create(DocumentRevision) create}, in a single database transaction.</p>
+     *
+     * <p>Each document succeeds or fails on its own: a document which cannot be created, for
+     * example because a document with the same ID already exists, does not prevent the others
+     * from being created. The result for each document reports either the created revision or
+     * the exception {@code create} would have thrown.</p>
+     *
+     * <p>Instead of a {@link DocumentCreated DocumentCreated} event per document, a single
+     * {@link org.hammock.sync.event.notifications.DocumentsModified DocumentsModified} event is
+     * posted on the event bus for the documents which were created, if there were any.</p>
+     *
+     * @param revs the <code>DocumentRevision</code>s to be created
+     * @return a {@link DocumentWriteResult} for each revision, in the same order as {@code revs}
+     * @throws DocumentStoreException if there was an error reading from or writing to the
+     * database which affected all the documents
+     * @see Database#getEventBus()
+     */
+    List<DocumentWriteResult> createAll(List<DocumentRevision> revs) throws DocumentStoreException;
+
+    /**
+     * <p>Updates each of the documents in <code>revs</code>, as if by
+     * {@link Database#update(DocumentRevision) update}, in a single database transaction.</p>
+     *
+     * <p>Each document succeeds or fails on its own: a document which cannot be updated, for
+     * example because its revision is no longer current, does not prevent the others from being
+     * updated. The result for each document reports either the updated revision or the
+     * exception {@code update} would have thrown.</p>
+     *
+     * <p>Instead of a {@link DocumentUpdated DocumentUpdated} event per document, a single
+     * {@link org.hammock.sync.event.notifications.DocumentsModified DocumentsModified} event is
+     * posted on the event bus for the documents which were updated, if there were any.</p>
+     *
+     * @param revs the <code>DocumentRevision</code>s to be updated
+     * @return a {@link DocumentWriteResult} for each revision, in the same order as {@code revs}
+     * @throws DocumentStoreException if there was an error reading from or writing to the
+     * database which affected all the documents
+     * @see Database#getEventBus()
+     */
+    List<DocumentWriteResult> updateAll(List<DocumentRevision> revs) throws DocumentStoreException;
+
+    /**
+     * <p>Deletes each of the documents in <code>revs</code>, as if by
+     * {@link Database#delete(DocumentRevision) delete}, in a single database transaction.</p>
+     *
+     * <p>Each document succeeds or fails on its own: a document which cannot be deleted, for
+     * example because its revision is no longer current, does not prevent the others from being
+     * deleted. The result for each document reports either the "tombstone" revision or the
+     * exception {@code delete} would have thrown.</p>
+     *
+     * <p>Instead of a {@link DocumentDeleted DocumentDeleted} event per document, a single
+     * {@link org.hammock.sync.event.notifications.DocumentsModified DocumentsModified} event is
+     * posted on the event bus for the documents which were deleted, if there were any.</p>
+     *
+     * @param revs the <code>DocumentRevision</code>s to be deleted
+     * @return a {@link DocumentWriteResult} for each revision, in the same order as {@code revs}
+     * @throws DocumentStoreException if there was an error reading from or writing to the
+     * database which affected all the documents
+     * @see Database#getEventBus()
+     */
+    List<DocumentWriteResult> deleteAll(List<DocumentRevision> revs) throws DocumentStoreException;
+
     /**
      * Compacts the SQL database and disk storage by removing the bodies and attachments of obsolete revisions.
      * @throws DocumentStoreException if there was an error reading from or writing to the database
@@ -19,6 +19,9 @@
 
 package org.hammock.sync.documentstore;
 
+import org.hammock.sync.internal.util.ReadOnlyJSON;
+
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 /**
@@ -65,4 +68,29 @@ public interface DocumentBody {
      */
     public byte[] asBytes();
 
+    /**
+     * <p>Returns a read-only view of the data as a map.</p>
+     *
+     * <p>Unlike {@link #asMap()}, the data is not copied, so this is the cheaper way to read
+     * fields from a body. Any attempt to modify the map, or the objects and arrays nested within
+     * it, throws {@link UnsupportedOperationException}.</p>
+     *
+     * @return read-only view of the data as a {@code Map}.
+     */
+    public default Map<String, Object> asReadOnlyMap() {
+        return ReadOnlyJSON.view(asMap());
+    }
+
+    /**
+     * <p>Returns a read-only view of the data as JSON bytes.</p>
+     *
+     * <p>Unlike {@link #asBytes()}, the data is not copied. The returned buffer has its own
+     * position and limit, so reading from it does not affect other callers.</p>
+     *
+     * @return read-only view of the data as a {@code ByteBuffer}.
+     */
+    public default ByteBuffer asReadOnlyBytes() {
+        return ByteBuffer.wrap(asBytes()).asReadOnlyBuffer();
+    }
+
 }
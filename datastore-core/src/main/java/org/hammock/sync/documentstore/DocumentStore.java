@@ -22,6 +22,7 @@ import org.hammock.sync.event.notifications.DocumentStoreCreated;
 import org.hammock.sync.event.notifications.DocumentStoreDeleted;
 import org.hammock.sync.event.notifications.DocumentStoreModified;
 import org.hammock.sync.event.notifications.DocumentStoreOpened;
+import org.hammock.sync.internal.documentstore.AsyncDatabaseImpl;
 import org.hammock.sync.internal.documentstore.DatabaseImpl;
 import org.hammock.sync.internal.query.QueryImpl;
 import org.hammock.sync.query.Query;
@@ -70,6 +71,7 @@ public class DocumentStore {
     private static final String EXTENSIONS_LOCATION_NAME = "extensions";
 
     private final DatabaseImpl database;
+    private final AsyncDatabase asyncDatabase;
     private final Query query;
     protected final String databaseName; // only used for events
     private final File location; // needed for close/delete
@@ -82,13 +84,14 @@ public class DocumentStore {
 
     private static final Logger logger = Logger.getLogger(DocumentStore.class.getCanonicalName());
 
-    private DocumentStore(File location, KeyProvider keyProvider) throws DocumentStoreException, IOException, SQLException {
+    private DocumentStore(File location, KeyProvider keyProvider, StorageProfile profile) throws DocumentStoreException, IOException, SQLException {
         try {
             this.location = location;
             this.extensionsLocation = new File(location, EXTENSIONS_LOCATION_NAME);
             this.databaseName = location.toString();
-            this.database = new DatabaseImpl(location, extensionsLocation, keyProvider);
-            this.query = new QueryImpl(database, extensionsLocation, keyProvider);
+            this.database = new DatabaseImpl(location, extensionsLocation, keyProvider, profile);
+            this.asyncDatabase = new AsyncDatabaseImpl(database);
+            this.query = new QueryImpl(database, extensionsLocation, keyProvider, profile);
         } catch (DocumentStoreException e) {
             closeQuietlyOnException();
             throw e;
@@ -139,6 +142,36 @@ public class DocumentStore {
      *                                     opened (if it already exists) or created.
      */
     public static DocumentStore getInstance(File location, KeyProvider provider) throws DocumentStoreNotOpenedException {
+        return getInstance(location, provider, StorageProfile.DEFAULT);
+    }
+
+    /**
+     * <p>
+     * Get an instance of an existing or newly created store, tuning its underlying databases
+     * according to a {@link StorageProfile}.
+     * </p>
+     * <p>
+     * Behaves as {@link #getInstance(File, KeyProvider)}, except that {@code profile} is applied
+     * when the store is opened. If the store is already open, the existing instance is returned
+     * and keeps the profile it was opened with.
+     * </p>
+     * <p>
+     * A profile with write-ahead logging, such as {@link StorageProfile#THROUGHPUT}, switches the
+     * database files to WAL mode, which persists after the store is closed and keeps
+     * {@code -wal} and {@code -shm} files alongside each database.
+     * {@link StorageProfile#DEFAULT} leaves the journal mode unchanged.
+     * </p>
+     * @param location The location on the file system where the underlying files should be stored.
+     *                 Must be a directory.
+     * @param provider KeyProvider object. Use a {@link NullKeyProvider} if the database shouldn't
+     *                 be encrypted.
+     * @param profile The SQLite settings to use, for example {@link StorageProfile#DEFAULT}.
+     * @return An existing or newly created store.
+     * @throws DocumentStoreNotOpenedException if the database located at {@code location} cannot be
+     *                                     opened (if it already exists) or created.
+     */
+    public static DocumentStore getInstance(File location, KeyProvider provider,
+                                            StorageProfile profile) throws DocumentStoreNotOpenedException {
         try {
             synchronized (documentStores) {
                 DocumentStore ds = documentStores.get(location);
@@ -147,7 +180,7 @@ public class DocumentStore {
                 // required.
                 boolean created = !location.exists();
                 if (ds == null) {
-                    ds = new DocumentStore(location, provider);
+                    ds = new DocumentStore(location, provider, profile);
                     documentStores.put(location, ds);
                     if (created) {
                         eventBus.post(new DocumentStoreCreated(ds.databaseName));
@@ -188,6 +221,22 @@ public class DocumentStore {
         return database;
     }
 
+    /**
+     * <p>
+     * Get a reference to the {@link AsyncDatabase} object.
+     * </p>
+     *
+     * <p>
+     * Users can perform the most common operations of {@link #database()} without blocking the
+     * calling thread by invoking methods on this object.
+     * </p>
+     *
+     * @return a reference to the {@link AsyncDatabase} object
+     */
+    public AsyncDatabase async() {
+        return asyncDatabase;
+    }
+
     /**
      * WARNING: accessing APIs exposed on the
      * {@link org.hammock.sync.documentstore.advanced.Database} class returned by this method is
@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.documentstore;
+
+/**
+ * <p>
+ * The outcome of writing one {@link DocumentRevision} as part of a bulk write such as
+ * {@link Database#createAll(java.util.List)}.
+ * </p>
+ * <p>
+ * A successful result holds the revision which was written, in the same form as the return value
+ * of the equivalent single-document method. A failed result holds the exception which the
+ * equivalent single-document method would have thrown.
+ * </p>
+ */
+public class DocumentWriteResult {
+
+    private final DocumentRevision input;
+    private final DocumentRevision revision;
+    private final Exception error;
+
+    private DocumentWriteResult(DocumentRevision input, DocumentRevision revision, Exception
+            error) {
+        this.input = input;
+        this.revision = revision;
+        this.error = error;
+    }
+
+    public static DocumentWriteResult success(DocumentRevision input, DocumentRevision revision) {
+        return new DocumentWriteResult(input, revision, null);
+    }
+
+    public static DocumentWriteResult failure(DocumentRevision input, Exception error) {
+        return new DocumentWriteResult(input, null, error);
+    }
+
+    /**
+     * @return the revision which was passed in to be written
+     */
+    public DocumentRevision getInput() {
+        return input;
+    }
+
+    /**
+     * @return the revision which was written, or {@code null} if the write failed or if a local
+     * document was deleted
+     */
+    public DocumentRevision getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return the reason the write failed, or {@code null} if it succeeded
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * @return {@code true} if the revision was written
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentWriteResult{" +
+                "input=" + input +
+                ", revision=" + revision +
+                ", error=" + error +
+                '}';
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.documentstore;
+
+import org.hammock.sync.internal.util.Misc;
+
+/**
+ * <p>
+ * Describes how the SQLite databases underlying a {@link DocumentStore} are tuned, in terms of
+ * the <a target="_blank" href="https://www.sqlite.org/pragma.html">PRAGMAs</a> applied to each
+ * connection when it is opened, and of whether writes are grouped into shared transactions.
+ * </p>
+ * <p>
+ * PRAGMAs which are left unset, the default for all of them, keep whatever default SQLite was
+ * built with, and an unset journal mode leaves the database's journal mode as it is. Group
+ * commit is off by default.
+ * </p>
+ * <p>
+ * Use {@link #DEFAULT} unless profiling shows otherwise. {@link #THROUGHPUT} uses write-ahead
+ * logging, so that reads no longer wait for writes, and trades durability of the most recent
+ * commits on power loss for far fewer fsyncs, which suits stores that are mainly written to by
+ * replication and can re-fetch what they lost. Other combinations can be created with a
+ * {@link Builder}.
+ * </p>
+ * <p>
+ * Write-ahead logging is a property of the database file rather than of a connection: once a
+ * database has been opened with it, the file stays in WAL mode, with {@code -wal} and
+ * {@code -shm} files alongside it, until it is opened with another journal mode. Tools which
+ * back up or copy the database must copy those files too.
+ * </p>
+ *
+ * @see DocumentStore#getInstance(java.io.File, org.hammock.sync.documentstore.encryption.KeyProvider, StorageProfile)
+ */
+public class StorageProfile {
+
+    /**
+     * <a target="_blank" href="https://www.sqlite.org/pragma.html#pragma_journal_mode">Journal
+     * modes</a> supported by a profile.
+     */
+    public enum JournalMode {
+        DELETE, TRUNCATE, PERSIST, WAL
+    }
+
+    /**
+     * <a target="_blank" href="https://www.sqlite.org/pragma.html#pragma_synchronous">Synchronous
+     * settings</a> supported by a profile.
+     */
+    public enum Synchronous {
+        OFF, NORMAL, FULL
+    }
+
+    /**
+     * <a target="_blank" href="https://www.sqlite.org/pragma.html#pragma_temp_store">Storage</a>
+     * used for temporary tables and indices.
+     */
+    public enum TempStore {
+        DEFAULT, FILE, MEMORY
+    }
+
+    /**
+     * All settings left at SQLite's defaults, and the journal mode of the database left as it
+     * is, which for a new database is SQLite's rollback journal. Reads wait for writes.
+     */
+    public static final StorageProfile DEFAULT = new Builder().build();
+
+    /**
+     * Write-ahead logging with {@code synchronous=NORMAL}, so that commits no longer wait for an
+     * fsync, together with a larger page cache, memory-mapped I/O and in-memory temporary
+     * storage. A commit may be rolled back after a power loss or OS crash, but the database
+     * always remains consistent.
+     */
+    public static final StorageProfile THROUGHPUT = new Builder()
+            .journalMode(JournalMode.WAL)
+            .synchronous(Synchronous.NORMAL)
+            .cacheSizeKiB(8 * 1024)
+            .mmapSizeBytes(64L * 1024 * 1024)
+            .tempStore(TempStore.MEMORY)
+            .build();
+
+    /**
+     * Number of read-only connections used by a profile with write-ahead logging unless set
+     * otherwise, so that reads are not queued behind long-running writes such as replication
+     * batches.
+     */
+    private static final int DEFAULT_READ_CONNECTIONS = Math.max(2, Runtime.getRuntime()
+            .availableProcessors());
+
+    private final JournalMode journalMode;
+    private final Synchronous synchronous;
+    private final Integer cacheSizeKiB;
+    private final Long mmapSizeBytes;
+    private final TempStore tempStore;
+    private final Integer pageSizeBytes;
+    private final int groupCommitMaxWrites;
+    private final long groupCommitMaxDelayMillis;
+    private final int readConnections;
+
+    private StorageProfile(Builder builder) {
+        this.journalMode = builder.journalMode;
+        this.synchronous = builder.synchronous;
+        this.cacheSizeKiB = builder.cacheSizeKiB;
+        this.mmapSizeBytes = builder.mmapSizeBytes;
+        this.tempStore = builder.tempStore;
+        this.pageSizeBytes = builder.pageSizeBytes;
+        this.groupCommitMaxWrites = builder.groupCommitMaxWrites;
+        this.groupCommitMaxDelayMillis = builder.groupCommitMaxDelayMillis;
+        this.readConnections = builder.readConnections != null ? builder.readConnections :
+                DEFAULT_READ_CONNECTIONS;
+    }
+
+    /**
+     * @return the journal mode, or {@code null} to leave the database's journal mode unchanged
+     */
+    public JournalMode getJournalMode() {
+        return journalMode;
+    }
+
+    /**
+     * @return the synchronous setting, or {@code null} to use SQLite's default
+     */
+    public Synchronous getSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * @return the page cache size in KiB, or {@code null} to use SQLite's default
+     */
+    public Integer getCacheSizeKiB() {
+        return cacheSizeKiB;
+    }
+
+    /**
+     * @return the maximum number of bytes to memory map, or {@code null} to use SQLite's default
+     */
+    public Long getMmapSizeBytes() {
+        return mmapSizeBytes;
+    }
+
+    /**
+     * @return the temporary storage setting, or {@code null} to use SQLite's default
+     */
+    public TempStore getTempStore() {
+        return tempStore;
+    }
+
+    /**
+     * @return the page size in bytes, or {@code null} to use SQLite's default
+     */
+    public Integer getPageSizeBytes() {
+        return pageSizeBytes;
+    }
+
+    /**
+     * @return the maximum number of queued writes committed together in one transaction, where
+     * 1 means that group commit is disabled
+     */
+    public int getGroupCommitMaxWrites() {
+        return groupCommitMaxWrites;
+    }
+
+    /**
+     * @return how long, in milliseconds, a group commit waits for further writes to arrive
+     * before committing a group which is not full
+     */
+    public long getGroupCommitMaxDelayMillis() {
+        return groupCommitMaxDelayMillis;
+    }
+
+    /**
+     * @return the maximum number of read-only connections used to run reads concurrently with
+     * writes, where 0 means that reads run on the writer's connection. Always 0 unless the
+     * journal mode is {@link JournalMode#WAL}.
+     */
+    public int getReadConnections() {
+        return journalMode == JournalMode.WAL ? readConnections : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StorageProfile{" +
+                "journalMode=" + journalMode +
+                ", synchronous=" + synchronous +
+                ", cacheSizeKiB=" + cacheSizeKiB +
+                ", mmapSizeBytes=" + mmapSizeBytes +
+                ", tempStore=" + tempStore +
+                ", pageSizeBytes=" + pageSizeBytes +
+                ", groupCommitMaxWrites=" + groupCommitMaxWrites +
+                ", groupCommitMaxDelayMillis=" + groupCommitMaxDelayMillis +
+                ", readConnections=" + getReadConnections() +
+                '}';
+    }
+
+    /**
+     * Builder for {@link StorageProfile}s. All PRAGMAs, including the journal mode, default to
+     * unset and group commit is disabled.
+     */
+    public static class Builder {
+
+        private JournalMode journalMode;
+        private Synchronous synchronous;
+        private Integer cacheSizeKiB;
+        private Long mmapSizeBytes;
+        private TempStore tempStore;
+        private Integer pageSizeBytes;
+        private int groupCommitMaxWrites = 1;
+        private long groupCommitMaxDelayMillis = 0;
+        private Integer readConnections;
+
+        /**
+         * @param journalMode the journal mode, or {@code null} to leave the database's journal
+         *                    mode unchanged. Modes other than {@link JournalMode#WAL} serialise
+         *                    reads behind writes.
+         * @return this builder
+         */
+        public Builder journalMode(JournalMode journalMode) {
+            this.journalMode = journalMode;
+            return this;
+        }
+
+        /**
+         * @param synchronous the synchronous setting, or {@code null} for SQLite's default
+         * @return this builder
+         */
+        public Builder synchronous(Synchronous synchronous) {
+            this.synchronous = synchronous;
+            return this;
+        }
+
+        /**
+         * @param cacheSizeKiB the page cache size per connection in KiB, or {@code null} for
+         *                     SQLite's default
+         * @return this builder
+         */
+        public Builder cacheSizeKiB(Integer cacheSizeKiB) {
+            Misc.checkArgument(cacheSizeKiB == null || cacheSizeKiB > 0,
+                    "cacheSizeKiB must be positive");
+            this.cacheSizeKiB = cacheSizeKiB;
+            return this;
+        }
+
+        /**
+         * @param mmapSizeBytes the maximum number of bytes to memory map per connection, zero to
+         *                      disable memory-mapped I/O, or {@code null} for SQLite's default
+         * @return this builder
+         */
+        public Builder mmapSizeBytes(Long mmapSizeBytes) {
+            Misc.checkArgument(mmapSizeBytes == null || mmapSizeBytes >= 0,
+                    "mmapSizeBytes must not be negative");
+            this.mmapSizeBytes = mmapSizeBytes;
+            return this;
+        }
+
+        /**
+         * @param tempStore the temporary storage setting, or {@code null} for SQLite's default
+         * @return this builder
+         */
+        public Builder tempStore(TempStore tempStore) {
+            this.tempStore = tempStore;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Sets the page size. This only takes effect for databases created after it is set;
+         * the page size of an existing database is left unchanged.
+         * </p>
+         * @param pageSizeBytes a power of two between 512 and 65536, or {@code null} for
+         *                      SQLite's default
+         * @return this builder
+         */
+        public Builder pageSizeBytes(Integer pageSizeBytes) {
+            Misc.checkArgument(pageSizeBytes == null || (pageSizeBytes >= 512 &&
+                    pageSizeBytes <= 65536 && Integer.bitCount(pageSizeBytes) == 1),
+                    "pageSizeBytes must be a power of two between 512 and 65536");
+            this.pageSizeBytes = pageSizeBytes;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Enables group commit: consecutive writes queued against a database are committed
+         * together in one SQLite transaction, rather than one transaction each, so that many
+         * small writes from different threads share the cost of a commit. Each write runs in its
+         * own savepoint, so a write which fails is rolled back without affecting the rest of its
+         * group.
+         * </p>
+         * <p>
+         * A write's result is only returned once its whole group has been committed.
+         * </p>
+         * @param maxWrites the maximum number of writes committed together; 1 disables group
+         *                  commit
+         * @param maxDelayMillis how long a group which is not full may wait for further writes
+         *                       before it is committed; 0 only groups writes which are already
+         *                       queued
+         * @return this builder
+         */
+        public Builder groupCommit(int maxWrites, long maxDelayMillis) {
+            Misc.checkArgument(maxWrites >= 1, "maxWrites must be at least 1");
+            Misc.checkArgument(maxDelayMillis >= 0, "maxDelayMillis must not be negative");
+            this.groupCommitMaxWrites = maxWrites;
+            this.groupCommitMaxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Sets how many read-only connections are used to run reads concurrently with writes.
+         * This only applies if the journal mode is {@link JournalMode#WAL}; otherwise reads
+         * always run on the writer's connection.
+         * </p>
+         * <p>
+         * Each connection is owned by a thread which is only started when needed, and which
+         * exits, closing its connection, once it has been idle for a while. Defaults to the
+         * number of processors, and at least 2.
+         * </p>
+         * @param readConnections the maximum number of read-only connections; 0 runs reads on
+         *                        the writer's connection
+         * @return this builder
+         */
+        public Builder readConnections(int readConnections) {
+            Misc.checkArgument(readConnections >= 0, "readConnections must not be negative");
+            this.readConnections = readConnections;
+            return this;
+        }
+
+        public StorageProfile build() {
+            return new StorageProfile(this);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.event.notifications;
+
+import org.hammock.sync.documentstore.Database;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Event for a bulk write of documents
+ * </p>
+ *
+ * <p>This event is posted by
+ * {@link Database#createAll(List)}, {@link Database#updateAll(List)} and
+ * {@link Database#deleteAll(List)} in place of the individual {@link DocumentCreated},
+ * {@link DocumentUpdated} and {@link DocumentDeleted} events.
+ * </p>
+ */
+public class DocumentsModified implements Notification {
+
+    /**
+     * Event for a bulk write of documents
+     *
+     * @param events
+     *            The events for the documents which were written successfully, in the
+     *            order they were written
+     */
+    public DocumentsModified(List<DocumentModified> events) {
+        this.events = events;
+    }
+
+    public final List<DocumentModified> events;
+
+}
@@ -311,7 +311,7 @@ public class HttpConnection {
 
      private void setStreamingMode() {
         if (inputLength != -1) {
-            connection.setFixedLengthStreamingMode((int) this.inputLength);
+            connection.setFixedLengthStreamingMode(this.inputLength);
         } else {
             connection.setChunkedStreamingMode(0); 
         }
@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore;
+
+import org.hammock.sync.documentstore.AsyncDatabase;
+import org.hammock.sync.documentstore.AttachmentException;
+import org.hammock.sync.documentstore.Changes;
+import org.hammock.sync.documentstore.ConflictException;
+import org.hammock.sync.documentstore.DocumentNotFoundException;
+import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.documentstore.InvalidDocumentException;
+import org.hammock.sync.event.notifications.DocumentModified;
+import org.hammock.sync.internal.util.Misc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link AsyncDatabase} which queues the same tasks as the corresponding {@link DatabaseImpl}
+ * methods, completing futures from the database threads rather than blocking on them.
+ */
+public class AsyncDatabaseImpl implements AsyncDatabase {
+
+    private static final Logger logger = Logger.getLogger(AsyncDatabaseImpl.class
+            .getCanonicalName());
+
+    private final DatabaseImpl database;
+
+    /**
+     * Posts the event for a write once it has been committed and returns the new revision.
+     */
+    private final Function<DocumentModified, DocumentRevision> postEvent = new
+            Function<DocumentModified, DocumentRevision>() {
+        @Override
+        public DocumentRevision apply(DocumentModified event) {
+            database.getEventBus().post(event);
+            return event.newDocument;
+        }
+    };
+
+    public AsyncDatabaseImpl(DatabaseImpl database) {
+        this.database = database;
+    }
+
+    @Override
+    public CompletableFuture<DocumentRevision> read(String documentId) {
+        return read(documentId, null);
+    }
+
+    @Override
+    public CompletableFuture<DocumentRevision> read(String documentId, String revisionId) {
+        Misc.checkState(database.isOpen(), "Database is closed");
+        Misc.checkNotNullOrEmpty(documentId, "Document id");
+        String message = String.format(Locale.ENGLISH, "Failed to get document id %s at " +
+                "revision %s", documentId, revisionId);
+        return complete(database.getQueue().submitReadAsync(database.readCallable(documentId,
+                revisionId)), Function.<DocumentRevision>identity(), message,
+                DocumentNotFoundException.class);
+    }
+
+    @Override
+    public CompletableFuture<DocumentRevision> create(DocumentRevision rev) {
+        return write(rev, DatabaseImpl.WriteOperation.CREATE, "Failed to create document",
+                InvalidDocumentException.class, ConflictException.class);
+    }
+
+    @Override
+    public CompletableFuture<DocumentRevision> update(DocumentRevision rev) {
+        return write(rev, DatabaseImpl.WriteOperation.UPDATE, "Failed to update document",
+                InvalidDocumentException.class, ConflictException.class,
+                DocumentNotFoundException.class);
+    }
+
+    @Override
+    public CompletableFuture<DocumentRevision> delete(DocumentRevision rev) {
+        return write(rev, DatabaseImpl.WriteOperation.DELETE, "Failed to delete document",
+                ConflictException.class, DocumentNotFoundException.class);
+    }
+
+    @Override
+    public CompletableFuture<Changes> changes(long since, int limit) {
+        Misc.checkState(database.isOpen(), "Database is closed");
+        Misc.checkArgument(limit > 0, "Limit must be positive number");
+        long verifiedSince = since >= 0 ? since : 0;
+        return complete(database.getQueue().submitReadAsync(database.changesCallable
+                (verifiedSince, limit)), Function.<Changes>identity(), "Failed to get changes");
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<String>>> revsDiff(Map<String, List<String>>
+                                                                         revisions) {
+        Misc.checkState(database.isOpen(), "Database is closed");
+        Misc.checkNotNull(revisions, "Input revisions");
+        Misc.checkArgument(!revisions.isEmpty(), "revisions cannot be empty");
+        return complete(database.getQueue().submitReadAsync(database.revsDiffCallable
+                (revisions)), Function.<Map<String, List<String>>>identity(), "Failed to " +
+                "calculate difference in revisions");
+    }
+
+    private CompletableFuture<DocumentRevision> write(DocumentRevision rev, DatabaseImpl
+            .WriteOperation operation, String message, Class<?>... expected) {
+        Misc.checkState(database.isOpen(), "Datastore is closed");
+        DatabaseImpl.PreparedWrite write;
+        try {
+            write = database.prepareWrite(0, rev, operation);
+        } catch (AttachmentException e) {
+            CompletableFuture<DocumentRevision> failed = new CompletableFuture<DocumentRevision>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return complete(database.getQueue().submitTransactionAsync(write), postEvent, message,
+                expected);
+    }
+
+    /**
+     * Returns a future which is completed with the result of {@code task} transformed by
+     * {@code onSuccess}, or with the exception {@code task} failed with if it is one of the
+     * {@code expected} types, or else with a {@link DocumentStoreException} wrapping it.
+     */
+    private static <T, R> CompletableFuture<R> complete(CompletableFuture<? extends T> task,
+                                                        final Function<? super T, ? extends R>
+                                                                onSuccess,
+                                                        final String message,
+                                                        Class<?>... expected) {
+        final CompletableFuture<R> result = new CompletableFuture<R>();
+        final List<Class<?>> expectedTypes = Arrays.asList(expected);
+        task.whenComplete(new BiConsumer<T, Throwable>() {
+            @Override
+            public void accept(T value, Throwable t) {
+                if (t == null) {
+                    try {
+                        result.complete(onSuccess.apply(value));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                } else if (expectedTypes.contains(t.getClass())) {
+                    result.completeExceptionally(t);
+                } else {
+                    logger.log(Level.SEVERE, message, t);
+                    result.completeExceptionally(new DocumentStoreException(message, t));
+                }
+            }
+        });
+        return result;
+    }
+}
@@ -24,6 +24,7 @@ import org.hammock.sync.internal.android.ContentValues;
 import org.hammock.sync.internal.common.CouchUtils;
 import org.hammock.sync.internal.sqlite.Cursor;
 import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.CollectionUtils;
 import org.hammock.sync.internal.util.DatabaseUtils;
 
 import org.apache.commons.codec.binary.Hex;
@@ -35,8 +36,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -78,6 +81,25 @@ public class AttachmentManager {
             "FROM attachments " +
             "WHERE sequence = ?";
 
+    /**
+     * SQL statement to return the attachments of several sequences, along with the file name
+     * each attachment's key maps to. Keys are stored as lower case hex strings in
+     * attachments_key_filename.
+     */
+    private static final String SQL_ATTACHMENTS_SELECT_ALL_FOR_SEQUENCES = "SELECT " +
+            "attachments.sequence, " +
+            "attachments.filename, " +
+            "attachments.key, " +
+            "attachments.type, " +
+            "attachments.encoding, " +
+            "attachments.length, " +
+            "attachments.encoded_length, " +
+            "attachments.revpos, " +
+            "attachments_key_filename.filename " +
+            "FROM attachments LEFT JOIN attachments_key_filename " +
+            "ON attachments_key_filename.key = lower(hex(attachments.key)) " +
+            "WHERE attachments.sequence IN ( %s )";
+
     private static final String SQL_ATTACHMENTS_SELECT_ALL_KEYS = "SELECT key " +
             "FROM attachments";
 
@@ -212,6 +234,19 @@ public class AttachmentManager {
     protected static PreparedAttachment prepareAttachment(String attachmentsDir,
                                                           AttachmentStreamFactory attachmentStreamFactory, Attachment attachment, long length, long encodedLength) throws AttachmentException {
         PreparedAttachment pa = new PreparedAttachment(attachment, attachmentsDir, length, attachmentStreamFactory);
+        return checkLength(pa, length, encodedLength);
+    }
+
+    // prepare an attachment whose data has already been written, and check validity of length
+    // and encodedLength metadata
+    protected static PreparedAttachment prepareAttachment(Attachment attachment,
+                                                          PreparedAttachment.Writer writer,
+                                                          long length, long encodedLength) throws AttachmentException {
+        PreparedAttachment pa = PreparedAttachment.fromWriter(attachment, writer, length);
+        return checkLength(pa, length, encodedLength);
+    }
+
+    private static PreparedAttachment checkLength(PreparedAttachment pa, long length, long encodedLength) throws AttachmentNotSavedException {
         // check the length on disk is correct:
         // - plain encoding, length on disk is signalled by the "length" metadata property
         // - all other encodings, length on disk is signalled by the "encoded_length" metadata property
@@ -320,32 +355,70 @@ public class AttachmentManager {
                                                                               AttachmentStreamFactory attachmentStreamFactory,
                                                                               long sequence)
             throws AttachmentException {
-        Cursor c = null;
-        try {
-            Map<String, SavedAttachment> atts = new HashMap<String, SavedAttachment>();
-            c = db.rawQuery(SQL_ATTACHMENTS_SELECT_ALL,
-                    new String[]{String.valueOf(sequence)});
-            while (c.moveToNext()) {
-                String filename = c.getString(c.getColumnIndex("filename"));
-                byte[] key = c.getBlob(c.getColumnIndex("key"));
-                String type = c.getString(c.getColumnIndex("type"));
-                int encoding = c.getInt(c.getColumnIndex("encoding"));
-                long length = c.getInt(c.getColumnIndex("length"));
-                long encodedLength = c.getInt(c.getColumnIndex("encoded_length"));
-                int revpos = c.getInt(c.getColumnIndex("revpos"));
-                File file = fileFromKey(db, key, attachmentsDir, false);
-
-                atts.put(filename, new SavedAttachment(sequence, filename, key, type, Attachment.Encoding
-                        .values()[encoding], length, encodedLength, revpos, file,
-                        attachmentStreamFactory));
+        Map<String, SavedAttachment> atts = attachmentsForRevisions(db, attachmentsDir,
+                attachmentStreamFactory, Collections.singletonList(sequence)).get(sequence);
+        return atts != null ? atts : new HashMap<String, SavedAttachment>();
+    }
+
+    /**
+     * <p>Returns the attachments of several revisions, looking up the attachment rows and
+     * their file names with one query per batch of
+     * {@link DatabaseImpl#SQLITE_QUERY_PLACEHOLDERS_LIMIT} sequences rather than per revision.</p>
+     *
+     * @param sequences sequence numbers of the revisions
+     * @return map of sequence number to the attachments of that revision, keyed by attachment
+     * name. Revisions without attachments have no entry.
+     * @throws AttachmentException if the attachments could not be read
+     */
+    public static Map<Long, Map<String, SavedAttachment>> attachmentsForRevisions(SQLDatabase db,
+                                                                                   String attachmentsDir,
+                                                                                   AttachmentStreamFactory attachmentStreamFactory,
+                                                                                   List<Long> sequences)
+            throws AttachmentException {
+        Map<Long, Map<String, SavedAttachment>> result = new HashMap<Long, Map<String,
+                SavedAttachment>>();
+        for (List<Long> batch : CollectionUtils.partition(sequences,
+                DatabaseImpl.SQLITE_QUERY_PLACEHOLDERS_LIMIT)) {
+            String[] args = new String[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                args[i] = Long.toString(batch.get(i));
+            }
+            Cursor c = null;
+            try {
+                c = db.rawQuery(String.format(SQL_ATTACHMENTS_SELECT_ALL_FOR_SEQUENCES,
+                        DatabaseUtils.makePlaceholders(batch.size())), args);
+                while (c.moveToNext()) {
+                    long sequence = c.getLong(0);
+                    String filename = c.getString(1);
+                    byte[] key = c.getBlob(2);
+                    String type = c.getString(3);
+                    int encoding = c.getInt(4);
+                    long length = c.getInt(5);
+                    long encodedLength = c.getInt(6);
+                    int revpos = c.getInt(7);
+                    String keyFilename = c.getString(8);
+                    if (keyFilename == null) {
+                        throw new AttachmentException("Couldn't retrieve filename for attachment");
+                    }
+                    File file = new File(attachmentsDir, keyFilename);
+
+                    Map<String, SavedAttachment> atts = result.get(sequence);
+                    if (atts == null) {
+                        atts = new HashMap<String, SavedAttachment>();
+                        result.put(sequence, atts);
+                    }
+                    atts.put(filename, new SavedAttachment(sequence, filename, key, type,
+                            Attachment.Encoding.values()[encoding], length, encodedLength,
+                            revpos, file, attachmentStreamFactory));
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Failed to get attachments", e);
+                throw new AttachmentException(e);
+            } finally {
+                DatabaseUtils.closeCursorQuietly(c);
             }
-            return atts;
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Failed to get attachments", e);
-            throw new AttachmentException(e);
-        } finally {
-            DatabaseUtils.closeCursorQuietly(c);
         }
+        return result;
     }
 
     private static void copyCursorValuesToNewSequence(SQLDatabase db, Cursor c, long newSequence) {
@@ -501,7 +574,11 @@ public class AttachmentManager {
         String keyString = keyToString(key);
         String filename = null;
 
-        db.beginTransaction();
+        // Only creating a mapping needs a transaction. A plain lookup runs without one, so
+        // that it can be used on a read-only connection without taking the write lock.
+        if (allowCreateName) {
+            db.beginTransaction();
+        }
         Cursor c = null;
         try {
             c = db.rawQuery(SQL_FILENAME_LOOKUP_QUERY, new String[]{ keyString });
@@ -512,13 +589,17 @@ public class AttachmentManager {
                 filename = generateFilenameForKey(db, keyString);
                 logger.finest(String.format("Added filename %s for key %s", filename, keyString));
             }
-            db.setTransactionSuccessful();
+            if (allowCreateName) {
+                db.setTransactionSuccessful();
+            }
         } catch (SQLException e) {
             logger.log(Level.WARNING, "Couldn't read key,filename mapping database", e);
             filename = null;
         } finally {
             DatabaseUtils.closeCursorQuietly(c);
-            db.endTransaction();
+            if (allowCreateName) {
+                db.endTransaction();
+            }
         }
 
         if (filename != null) {
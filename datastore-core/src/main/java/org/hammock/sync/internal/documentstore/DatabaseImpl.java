@@ -30,17 +30,19 @@ import org.hammock.sync.documentstore.DocumentException;
 import org.hammock.sync.documentstore.DocumentNotFoundException;
 import org.hammock.sync.documentstore.DocumentRevision;
 import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.documentstore.DocumentWriteResult;
 import org.hammock.sync.documentstore.InvalidDocumentException;
 import org.hammock.sync.documentstore.LocalDocument;
+import org.hammock.sync.documentstore.StorageProfile;
 import org.hammock.sync.documentstore.encryption.KeyProvider;
 import org.hammock.sync.event.EventBus;
 import org.hammock.sync.event.notifications.DocumentCreated;
 import org.hammock.sync.event.notifications.DocumentDeleted;
 import org.hammock.sync.event.notifications.DocumentModified;
 import org.hammock.sync.event.notifications.DocumentUpdated;
+import org.hammock.sync.event.notifications.DocumentsModified;
 import org.hammock.sync.internal.common.CouchConstants;
 import org.hammock.sync.internal.common.CouchUtils;
-import org.hammock.sync.internal.common.ValueListMap;
 import org.hammock.sync.internal.documentstore.callables.ChangesCallable;
 import org.hammock.sync.internal.documentstore.callables.CompactCallable;
 import org.hammock.sync.internal.documentstore.callables.DeleteAllRevisionsCallable;
@@ -50,20 +52,23 @@ import org.hammock.sync.internal.documentstore.callables.ForceInsertCallable;
 import org.hammock.sync.internal.documentstore.callables.GetAllDocumentIdsCallable;
 import org.hammock.sync.internal.documentstore.callables.GetAllDocumentsCallable;
 import org.hammock.sync.internal.documentstore.callables.GetAllRevisionsOfDocumentCallable;
+import org.hammock.sync.internal.documentstore.callables.GetAttachmentNamesCallable;
 import org.hammock.sync.internal.documentstore.callables.GetConflictedDocumentIdsCallable;
 import org.hammock.sync.internal.documentstore.callables.GetDocumentCallable;
 import org.hammock.sync.internal.documentstore.callables.GetDocumentCountCallable;
 import org.hammock.sync.internal.documentstore.callables.GetDocumentsWithIdsCallable;
 import org.hammock.sync.internal.documentstore.callables.GetLastSequenceCallable;
 import org.hammock.sync.internal.documentstore.callables.GetLocalDocumentCallable;
+import org.hammock.sync.internal.documentstore.callables.GetPossibleAncestorRevisionIdsBatchCallable;
 import org.hammock.sync.internal.documentstore.callables.GetPossibleAncestorRevisionIdsCallable;
 import org.hammock.sync.internal.documentstore.callables.GetPublicIdentifierCallable;
+import org.hammock.sync.internal.documentstore.callables.GetRevisionTreesMetadataCallable;
 import org.hammock.sync.internal.documentstore.callables.GetSequenceCallable;
 import org.hammock.sync.internal.documentstore.callables.InsertDocumentIDCallable;
 import org.hammock.sync.internal.documentstore.callables.InsertLocalDocumentCallable;
 import org.hammock.sync.internal.documentstore.callables.InsertRevisionCallable;
 import org.hammock.sync.internal.documentstore.callables.ResolveConflictsForDocumentCallable;
-import org.hammock.sync.internal.documentstore.callables.RevsDiffBatchCallable;
+import org.hammock.sync.internal.documentstore.callables.RevsDiffCallable;
 import org.hammock.sync.internal.documentstore.callables.SetCurrentCallable;
 import org.hammock.sync.internal.documentstore.callables.UpdateDocumentFromRevisionCallable;
 import org.hammock.sync.internal.documentstore.migrations.MigrateDatabase100To200;
@@ -72,18 +77,21 @@ import org.hammock.sync.internal.documentstore.migrations.SchemaOnlyMigration;
 import org.hammock.sync.internal.sqlite.SQLCallable;
 import org.hammock.sync.internal.sqlite.SQLDatabase;
 import org.hammock.sync.internal.sqlite.SQLDatabaseQueue;
-import org.hammock.sync.internal.util.CollectionUtils;
+import org.hammock.sync.internal.sqlite.SavepointCallable;
 import org.hammock.sync.internal.util.Misc;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
@@ -137,16 +145,34 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
      */
     public DatabaseImpl(File location, File extensionsLocation, KeyProvider provider) throws SQLException,
             IOException, DocumentStoreException {
+        this(location, extensionsLocation, provider, StorageProfile.DEFAULT);
+    }
+
+    /**
+     * Constructor for single thread SQLCipher-based DocumentStore, tuned according to a
+     * {@link StorageProfile}.
+     * @param location The location where the DocumentStore will be opened/created
+     * @param extensionsLocation The location where the DocumentStore's extensions are stored
+     * @param provider The key provider object that contains the user-defined SQLCipher key
+     * @param profile The PRAGMAs to apply to the database connections. Reads only run
+     *                concurrently with writes if the profile uses write-ahead logging.
+     * @throws SQLException
+     * @throws IOException
+     */
+    public DatabaseImpl(File location, File extensionsLocation, KeyProvider provider,
+                        StorageProfile profile) throws SQLException, IOException,
+            DocumentStoreException {
         Misc.checkNotNull(location, "location");
         Misc.checkNotNull(extensionsLocation, "extensionsLocation");
         Misc.checkNotNull(provider, "Key provider");
+        Misc.checkNotNull(profile, "Storage profile");
 
         this.keyProvider = provider;
         this.datastoreDir = location;
         this.attachmentsDir = new File(extensionsLocation, ATTACHMENTS_EXTENSION_NAME).getAbsolutePath();
 
         final File dbFile = new File(this.datastoreDir, DB_FILE_NAME);
-        queue = new SQLDatabaseQueue(dbFile, provider);
+        queue = new SQLDatabaseQueue(dbFile, provider, profile, profile.getReadConnections());
 
         int dbVersion = queue.getVersion();
         // Increment the hundreds position if a schema change means that older
@@ -183,7 +209,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         Misc.checkState(this.isOpen(), "Database is closed");
 
         try {
-            return get(queue.submit(new GetLastSequenceCallable()));
+            return get(queue.submitRead(new GetLastSequenceCallable()));
         } catch (ExecutionException e) {
             throwCauseAs(e, IllegalStateException.class);
             String message = "Failed to get last Sequence";
@@ -196,7 +222,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public int getDocumentCount() throws DocumentStoreException {
         Misc.checkState(this.isOpen(), "Database is closed");
         try {
-            return get(queue.submit(new GetDocumentCountCallable()));
+            return get(queue.submitRead(new GetDocumentCountCallable()));
         } catch (ExecutionException e) {
             String message = "Failed to get document count";
             logger.log(Level.SEVERE, message, e);
@@ -240,15 +266,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         Misc.checkState(this.isOpen(), "Database is closed");
         Misc.checkNotNullOrEmpty(id, "Document id");
         try {
-            if (id.startsWith(CouchConstants._local_prefix)) {
-                Misc.checkArgument(rev == null, "Local documents must have a null revision ID");
-                String localId = id.substring(CouchConstants._local_prefix.length());
-                LocalDocument ld = get(queue.submit(new GetLocalDocumentCallable(localId)));
-                // convert to DocumentRevision, adding back "_local/" prefix which was stripped off when document was written
-                return new DocumentRevisionBuilder().setDocId(CouchConstants._local_prefix + ld.docId).setBody(ld.body).build();
-            } else {
-                return get(queue.submit(new GetDocumentCallable(id, rev, this.attachmentsDir, this.attachmentStreamFactory)));
-            }
+            return get(queue.submitRead(readCallable(id, rev)));
         } catch (ExecutionException e) {
             throwCauseAs(e, DocumentNotFoundException.class);
             String message = String.format(Locale.ENGLISH, "Failed to get document id %s at revision %s", id, rev);
@@ -257,6 +275,23 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         }
     }
 
+    SQLCallable<InternalDocumentRevision> readCallable(final String id, final String rev) {
+        if (id.startsWith(CouchConstants._local_prefix)) {
+            Misc.checkArgument(rev == null, "Local documents must have a null revision ID");
+            final String localId = id.substring(CouchConstants._local_prefix.length());
+            return new SQLCallable<InternalDocumentRevision>() {
+                @Override
+                public InternalDocumentRevision call(SQLDatabase db) throws Exception {
+                    LocalDocument ld = new GetLocalDocumentCallable(localId).call(db);
+                    // convert to DocumentRevision, adding back "_local/" prefix which was stripped off when document was written
+                    return new DocumentRevisionBuilder().setDocId(CouchConstants._local_prefix + ld.docId).setBody(ld.body).build();
+                }
+            };
+        } else {
+            return new GetDocumentCallable(id, rev, this.attachmentsDir, this.attachmentStreamFactory);
+        }
+    }
+
     /**
      * <p>Returns {@code DocumentRevisionTree} of a document.</p>
      *
@@ -269,13 +304,39 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public DocumentRevisionTree getAllRevisionsOfDocument(final String docId) {
 
         try {
-            return get(queue.submit(new GetAllRevisionsOfDocumentCallable(docId, this.attachmentsDir, this.attachmentStreamFactory)));
+            return get(queue.submitRead(new GetAllRevisionsOfDocumentCallable(docId, this.attachmentsDir, this.attachmentStreamFactory)));
         } catch (ExecutionException e) {
             logger.log(Level.SEVERE, "Failed to get all revisions of document", e);
         }
         return null;
     }
 
+    /**
+     * <p>Returns the {@code DocumentRevisionTree}s of many documents, containing only the
+     * metadata of each revision.</p>
+     *
+     * <p>The revisions in the trees have no body or attachments, which avoids reading the
+     * whole history of each document when only its structure is needed. Use
+     * {@link #read(String, String)} to get the full content of a revision.</p>
+     *
+     * @param docIds IDs of the documents
+     * @return the revision trees, keyed by document ID. Documents which don't exist are not
+     * included.
+     * @throws DocumentStoreException if there was an error reading the database
+     */
+    public Map<String, DocumentRevisionTree> getRevisionTreesMetadata(final List<String> docIds)
+            throws DocumentStoreException {
+        Misc.checkState(this.isOpen(), "Database is closed");
+        Misc.checkNotNull(docIds, "Input document id list");
+        try {
+            return get(queue.submitRead(new GetRevisionTreesMetadataCallable(docIds)));
+        } catch (ExecutionException e) {
+            String message = "Failed to get revision trees of documents";
+            logger.log(Level.SEVERE, message, e);
+            throw new DocumentStoreException(message, e.getCause());
+        }
+    }
+
     @Override
     public Changes changes(long since, final int limit) throws DocumentStoreException {
         Misc.checkState(this.isOpen(), "Database is closed");
@@ -283,7 +344,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         final long verifiedSince = since >= 0 ? since : 0;
 
         try {
-            return get(queue.submit(new ChangesCallable(verifiedSince, limit, attachmentsDir, attachmentStreamFactory)));
+            return get(queue.submitRead(changesCallable(verifiedSince, limit)));
         } catch (ExecutionException e) {
             String message = "Failed to get changes";
             logger.log(Level.SEVERE, message, e);
@@ -291,6 +352,10 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         }
     }
 
+    ChangesCallable changesCallable(long since, int limit) {
+        return new ChangesCallable(since, limit, attachmentsDir, attachmentStreamFactory);
+    }
+
     @Override
     public List<DocumentRevision> read(final int offset, final int limit, final
     boolean descending) throws DocumentStoreException {
@@ -302,7 +367,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
             throw new IllegalArgumentException("limit must be >= 0");
         }
         try {
-            return get(queue.submit(new GetAllDocumentsCallable(offset, limit, descending, this.attachmentsDir, this.attachmentStreamFactory)));
+            return get(queue.submitRead(new GetAllDocumentsCallable(offset, limit, descending, this.attachmentsDir, this.attachmentStreamFactory)));
         } catch (ExecutionException e) {
             String message = "Failed to get all documents";
             logger.log(Level.SEVERE, message, e);
@@ -314,7 +379,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public List<String> getIds() throws DocumentStoreException {
         Misc.checkState(this.isOpen(), "Database is closed");
         try {
-            return get(queue.submit(new GetAllDocumentIdsCallable()));
+            return get(queue.submitRead(new GetAllDocumentIdsCallable()));
         } catch (ExecutionException e) {
             String message = "Failed to get all document ids";
             logger.log(Level.SEVERE, message, e);
@@ -329,7 +394,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         Misc.checkNotNull(docIds, "Input document id list");
         Misc.checkArgument(!docIds.isEmpty(), "Input document id list must contain document ids");
         try {
-            return get (queue.submit(new GetDocumentsWithIdsCallable(docIds, attachmentsDir, attachmentStreamFactory)));
+            return get (queue.submitRead(new GetDocumentsWithIdsCallable(docIds, attachmentsDir, attachmentStreamFactory)));
         } catch (ExecutionException e) {
             String message = "Failed to get documents with ids";
             logger.log(Level.SEVERE, message, e);
@@ -341,7 +406,30 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
                                                        final String revId,
                                                        final int limit) throws DocumentStoreException {
         try {
-            return get(queue.submit(new GetPossibleAncestorRevisionIdsCallable(docId, revId, limit)));
+            return get(queue.submitRead(new GetPossibleAncestorRevisionIdsCallable(docId, revId, limit)));
+        } catch (ExecutionException e) {
+            throw new DocumentStoreException(e);
+        }
+    }
+
+    /**
+     * <p>Returns the possible ancestors of many revisions at once, as
+     * {@link #getPossibleAncestorRevisionIDs(String, String, int)} would for each of them, in a
+     * single trip through the database queue.</p>
+     *
+     * @param revisions the revision IDs to find possible ancestors of, keyed by document ID
+     * @param limit maximum IDs to retrieve for each revision
+     * @return the union of the possible ancestors of each document's revisions, keyed by
+     * document ID. Documents without any are not included.
+     * @throws DocumentStoreException if there was an error reading the database
+     */
+    public Map<String, List<String>> getPossibleAncestorRevisionIDs(final Map<String,
+            List<String>> revisions, final int limit) throws DocumentStoreException {
+        Misc.checkState(this.isOpen(), "Database is closed");
+        Misc.checkNotNull(revisions, "Input revisions");
+        try {
+            return get(queue.submitRead(new GetPossibleAncestorRevisionIdsBatchCallable
+                    (revisions, limit)));
         } catch (ExecutionException e) {
             throw new DocumentStoreException(e);
         }
@@ -357,7 +445,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public LocalDocument getLocalDocument(final String docId) throws DocumentNotFoundException {
         Misc.checkState(this.isOpen(), "Database is closed");
         try {
-            return get(queue.submit(new GetLocalDocumentCallable(docId)));
+            return get(queue.submitRead(new GetLocalDocumentCallable(docId)));
         } catch (ExecutionException e) {
             throw new DocumentNotFoundException(e);
         }
@@ -428,7 +516,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     }
 
     public static void validateDBBody(DocumentBody body) {
-        for (String name : body.asMap().keySet()) {
+        for (String name : body.asReadOnlyMap().keySet()) {
             if (name.startsWith("_")) {
                 throw new InvalidDocumentException("Field name start with '_' is not allowed. ");
             }
@@ -491,7 +579,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public String getPublicIdentifier() throws DocumentStoreException {
         Misc.checkState(this.isOpen(), "Database is closed");
         try {
-            return get(queue.submit(new GetPublicIdentifierCallable()));
+            return get(queue.submitRead(new GetPublicIdentifierCallable()));
         } catch (ExecutionException e) {
             logger.log(Level.SEVERE, "Failed to get public ID", e);
             throw new DocumentStoreException("Failed to get public ID", e);
@@ -661,24 +749,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         Misc.checkArgument(!revisions.isEmpty(), "revisions cannot be empty");
 
         try {
-
-            ValueListMap<String, String> missingRevs = new ValueListMap<String, String>();
-
-            // Break down by docId first to avoid potential rev ID clashes between doc IDs
-            for (Map.Entry<String, List<String>> entry : revisions.entrySet()) {
-                String docId = entry.getKey();
-                List<String> revs = entry.getValue();
-                // Partition into batches to avoid exceeding placeholder limit
-                // The doc ID will use one placeholder, so use limit - 1 for the number of
-                // revs for the remaining placeholders.
-                List<List<String>> batches = CollectionUtils.partition(revs,
-                        SQLITE_QUERY_PLACEHOLDERS_LIMIT - 1);
-
-                for (List<String> revsBatch : batches) {
-                    missingRevs.addValuesToKey(docId, get(queue.submit(new RevsDiffBatchCallable(docId, revsBatch))));
-                }
-            }
-            return missingRevs;
+            return get(queue.submitRead(revsDiffCallable(revisions)));
         } catch (ExecutionException e) {
             String message = "Failed to calculate difference in revisions";
             logger.log(Level.SEVERE, message, e);
@@ -686,10 +757,15 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         }
     }
 
+    SQLCallable<Map<String, List<String>>> revsDiffCallable(final Map<String, List<String>>
+                                                                    revisions) {
+        return new RevsDiffCallable(revisions);
+    }
+
     @Override
     public Iterable<String> getConflictedIds() throws DocumentStoreException {
         try {
-            return get(queue.submit(new GetConflictedDocumentIdsCallable()));
+            return get(queue.submitRead(new GetConflictedDocumentIdsCallable()));
         } catch (ExecutionException e) {
             String message = "Failed to get conflicted document ids";
             logger.log(Level.SEVERE, message, e);
@@ -731,7 +807,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
 }
 
 private DocumentRevisionTree fetchDocumentRevisionTree(String docId) throws ExecutionException {
-    return get(queue.submit(new GetAllRevisionsOfDocumentCallable(docId, attachmentsDir, attachmentStreamFactory)));
+    return get(queue.submitRead(new GetAllRevisionsOfDocumentCallable(docId, attachmentsDir, attachmentStreamFactory)));
 }
 
 
@@ -830,6 +906,44 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
         return pa;
     }
 
+    /**
+     * <p>
+     * Create a writer for copying attachment data to a temporary location, which can be
+     * continued after a failed read, for use with
+     * {@link #prepareAttachment(Attachment, PreparedAttachment.Writer, long, long)}.
+     * </p>
+     * <p>
+     * Used by replicator when receiving new/updated attachments
+     * </p>
+     *
+     * @return A writer for attachment data
+     * @throws AttachmentException if the writer could not be created
+     */
+    public PreparedAttachment.Writer createAttachmentWriter() throws AttachmentException {
+        return new PreparedAttachment.Writer(attachmentsDir, attachmentStreamFactory);
+    }
+
+    /**
+     * <p>
+     * Finish preparing an attachment whose data has been written to a temporary location by
+     * {@code writer}, prior to being added to the DocumentStore.
+     * </p>
+     *
+     * @param att           Attachment to be prepared. Its data is not read again.
+     * @param writer        Writer the attachment's data was written with
+     * @param length        Size in bytes of attachment as signalled by "length" metadata property
+     * @param encodedLength Size in bytes of attachment, after encoding, as signalled by
+     *                      "encoded_length" metadata property
+     * @return A prepared attachment, ready to be added to the DocumentStore
+     * @throws AttachmentException if there was an error preparing the attachment, or its
+     *                             length is not as expected
+     * @see #createAttachmentWriter()
+     */
+    public PreparedAttachment prepareAttachment(Attachment att, PreparedAttachment.Writer
+            writer, long length, long encodedLength) throws AttachmentException {
+        return AttachmentManager.prepareAttachment(att, writer, length, encodedLength);
+    }
+
     /**
      * <p>Returns attachment <code>attachmentName</code> for the revision.</p>
      *
@@ -843,7 +957,7 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
     public Attachment getAttachment(final String id, final String rev, final String
             attachmentName) {
         try {
-            return get(queue.submit(new SQLCallable<Attachment>() {
+            return get(queue.submitRead(new SQLCallable<Attachment>() {
                 @Override
                 public Attachment call(SQLDatabase db) throws Exception {
                     long sequence = new GetSequenceCallable(id, rev).call(db);
@@ -858,6 +972,29 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
         return null;
     }
 
+    /**
+     * <p>Returns the names of the attachments of many revisions at once.</p>
+     *
+     * <p>Used by the replicator to find which attachments it already has when pulling.</p>
+     *
+     * @param revisions the revisions to get the attachment names of
+     * @return the attachment names, keyed by revision. Revisions which don't exist or have no
+     * attachments are not included.
+     * @throws DocumentStoreException if there was an error reading the database
+     */
+    public Map<DocumentRevisionKey, Set<String>> getAttachmentNames(
+            final Collection<DocumentRevisionKey> revisions) throws DocumentStoreException {
+        Misc.checkState(this.isOpen(), "Database is closed");
+        Misc.checkNotNull(revisions, "Input revisions");
+        try {
+            return get(queue.submitRead(new GetAttachmentNamesCallable(revisions)));
+        } catch (ExecutionException e) {
+            String message = "Failed to get attachment names";
+            logger.log(Level.SEVERE, message, e);
+            throw new DocumentStoreException(message, e.getCause());
+        }
+    }
+
     /**
      * <p>Returns all attachments for the revision.</p>
      *
@@ -871,7 +1008,7 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
     public Map<String, ? extends Attachment> attachmentsForRevision(final InternalDocumentRevision rev) throws
             AttachmentException {
         try {
-            return get(queue.submit(new SQLCallable<Map<String, ? extends Attachment>>() {
+            return get(queue.submitRead(new SQLCallable<Map<String, ? extends Attachment>>() {
 
                 @Override
                 public Map<String, ? extends Attachment> call(SQLDatabase db) throws Exception {
@@ -898,64 +1035,9 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
             throws AttachmentException, InvalidDocumentException, ConflictException, DocumentStoreException {
         Misc.checkNotNull(rev, "DocumentRevision");
         Misc.checkState(isOpen(), "Datastore is closed");
-        Misc.checkArgument(rev.getRevision() == null, "Revision ID must be null for new " +
-                "DocumentRevisions");
-        Misc.checkArgument(rev.isFullRevision(), "Projected revisions cannot be used to " +
-                "create documents");
-        final String docId;
-
-        // create docid if docid is null
-        if (rev.getId() == null) {
-            docId = CouchUtils.generateDocumentId();
-        } else {
-            docId = rev.getId();
-        }
-
-        // check to see if we are creating a local (non-replicating) document
-        if (docId.startsWith(CouchConstants._local_prefix)) {
-            String localId = docId.substring(CouchConstants._local_prefix.length());
-            try {
-                insertLocalDocument(localId, rev.getBody());
-                // we can return the input document as-is since there was no doc id or rev id to generate
-                return rev;
-            } catch (DocumentException e) {
-                throw new DocumentStoreException(e.getMessage(), e.getCause());
-            } finally {
-                eventBus.post(new DocumentCreated(rev));
-            }
-        }
-
-        // We need to work out which of the attachments for the revision are ones
-        // we can copy over because they exist in the attachment store already and
-        // which are new, that we need to prepare for insertion.
-        Map<String, Attachment> attachments = rev.getAttachments() != null ? rev.getAttachments() : new HashMap<String, Attachment>();
-        final Map<String, PreparedAttachment> preparedNewAttachments =
-                AttachmentManager.prepareAttachments(attachmentsDir,
-                        attachmentStreamFactory,
-                        AttachmentManager.findNewAttachments(attachments));
-        final Map<String, SavedAttachment> existingAttachments =
-                AttachmentManager.findExistingAttachments(attachments);
-
-        InternalDocumentRevision created = null;
+        PreparedWrite write = prepareWrite(0, rev, WriteOperation.CREATE);
         try {
-            created = get(queue.submitTransaction(new SQLCallable<InternalDocumentRevision>() {
-                @Override
-                public InternalDocumentRevision call(SQLDatabase db) throws Exception {
-
-                    // Save document with new JSON body, add new attachments and copy over
-                    // existing attachments
-                    InternalDocumentRevision saved = createDocumentBody(db, docId, rev.getBody());
-                    AttachmentManager.addAttachmentsToRevision(db, attachmentsDir, saved,
-                            preparedNewAttachments);
-                    AttachmentManager.copyAttachmentsToRevision(db, existingAttachments, saved);
-
-                    // now re-fetch the revision with updated attachments
-                    InternalDocumentRevision updatedWithAttachments = new GetDocumentCallable(
-                            saved.getId(), saved.getRevision(), attachmentsDir, attachmentStreamFactory).call(db);
-                    return updatedWithAttachments;
-                }
-            }));
-            return created;
+            return commitWrite(write);
         } catch (ExecutionException e) {
             // invalid if eg there are keys starting with _
             throwCauseAs(e, InvalidDocumentException.class);
@@ -964,13 +1046,32 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
             String message = "Failed to create document";
             logger.log(Level.SEVERE, message, e);
             throw new DocumentStoreException(message, e.getCause());
-        } finally {
-            if (created != null) {
-                eventBus.post(new DocumentCreated(created));
-            }
         }
     }
 
+    private SQLCallable<InternalDocumentRevision> createDocumentCallable(final String docId,
+            final DocumentRevision rev,
+            final Map<String, PreparedAttachment> preparedNewAttachments,
+            final Map<String, SavedAttachment> existingAttachments) {
+        return new SQLCallable<InternalDocumentRevision>() {
+            @Override
+            public InternalDocumentRevision call(SQLDatabase db) throws Exception {
+
+                // Save document with new JSON body, add new attachments and copy over
+                // existing attachments
+                InternalDocumentRevision saved = createDocumentBody(db, docId, rev.getBody());
+                AttachmentManager.addAttachmentsToRevision(db, attachmentsDir, saved,
+                        preparedNewAttachments);
+                AttachmentManager.copyAttachmentsToRevision(db, existingAttachments, saved);
+
+                // now re-fetch the revision with updated attachments
+                InternalDocumentRevision updatedWithAttachments = new GetDocumentCallable(
+                        saved.getId(), saved.getRevision(), attachmentsDir, attachmentStreamFactory).call(db);
+                return updatedWithAttachments;
+            }
+        };
+    }
+
     @Override
     public DocumentRevision update(final DocumentRevision rev)
             throws AttachmentException, DocumentNotFoundException, ConflictException,
@@ -981,43 +1082,10 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
         Misc.checkArgument(rev.isFullRevision(), "Projected revisions cannot be used to " +
                 "create documents");
 
-        // Shortcut if this is a create/update of local doc
-        if (rev.getId().startsWith(CouchConstants._local_prefix)) {
-            return create(rev);
-        }
-
-        // Shortcut if this is a deletion
-        if (rev.isDeleted()) {
-            return delete(rev);
-        }
-
-        // We need to work out which of the attachments for the revision are ones
-        // we can copy over because they exist in the attachment store already and
-        // which are new, that we need to prepare for insertion.
-        Map<String, Attachment> attachments = rev.getAttachments() != null ? rev.getAttachments() : new HashMap<String, Attachment>();
-        final Map<String, PreparedAttachment> preparedNewAttachments =
-                AttachmentManager.prepareAttachments(attachmentsDir,
-                        attachmentStreamFactory,
-                        AttachmentManager.findNewAttachments(attachments));
-        final Map<String, SavedAttachment> existingAttachments =
-                AttachmentManager.findExistingAttachments(attachments);
-
+        // updates of local documents are creates, and updates to a deleted revision are deletes
+        PreparedWrite write = prepareWrite(0, rev, WriteOperation.UPDATE);
         try {
-            InternalDocumentRevision revision = get(queue.submitTransaction(new UpdateDocumentFromRevisionCallable(
-                            rev, preparedNewAttachments, existingAttachments, this.attachmentsDir, this.attachmentStreamFactory)));
-
-            if (revision != null) {
-                try {
-                    eventBus.post(new DocumentUpdated(read(rev.getId(), rev.getRevision()),
-                            revision));
-                } catch (DocumentStoreException de) {
-                    ; // TODO couldn't re-fetch document to post event
-                } catch (DocumentException de) {
-                    ; // TODO couldn't re-fetch document to post event
-                }
-            }
-
-            return revision;
+            return commitWrite(write);
         } catch (ExecutionException e) {
             // invalid if eg there are keys starting with _
             throwCauseAs(e, InvalidDocumentException.class);
@@ -1038,23 +1106,12 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
         Misc.checkNotNull(rev, "DocumentRevision");
         Misc.checkState(isOpen(), "Datastore is closed");
         try {
-            // local documents
-            if (rev.getId().startsWith(CouchConstants._local_prefix)) {
-                Misc.checkArgument(rev.getRevision() == null, "Local documents must have a null revision ID");
-                String localId = rev.getId().substring(CouchConstants._local_prefix.length());
-                deleteLocalDocument(localId);
-                // for local documents there is no "new document" to post on the event bus or return as
-                // the document is removed rather than updated with a tombstone
-                eventBus.post(new DocumentDeleted(rev, null));
-                return null;
-            } else {
-                // "normal" documents
-                InternalDocumentRevision deletedRevision = get(queue.submit(new DeleteDocumentCallable(rev.getId(), rev.getRevision())));
-                if (deletedRevision != null) {
-                    eventBus.post(new DocumentDeleted(rev, deletedRevision));
-                }
-                return deletedRevision;
-            }
+            // for local documents there is no "new document" to post on the event bus or return
+            // as the document is removed rather than updated with a tombstone
+            return commitWrite(prepareWrite(0, rev, WriteOperation.DELETE));
+        } catch (AttachmentException e) {
+            // deletes don't prepare attachments
+            throw new DocumentStoreException("Failed to delete document", e);
         } catch (ExecutionException e) {
             // conflictexception if source revision isn't current rev
             throwCauseAs(e, ConflictException.class);
@@ -1090,10 +1147,231 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
         }
     }
 
+    /**
+     * Runs a single write in a transaction of its own and posts its event once the transaction
+     * has been committed, as {@link AsyncDatabaseImpl} does for its writes.
+     *
+     * @return the new revision
+     */
+    private DocumentRevision commitWrite(PreparedWrite write) throws ExecutionException {
+        DocumentModified event = get(queue.submitTransaction(write));
+        eventBus.post(event);
+        return event.newDocument;
+    }
+
+    @Override
+    public List<DocumentWriteResult> createAll(List<DocumentRevision> revs)
+            throws DocumentStoreException {
+        return bulkWrite(revs, WriteOperation.CREATE);
+    }
+
+    @Override
+    public List<DocumentWriteResult> updateAll(List<DocumentRevision> revs)
+            throws DocumentStoreException {
+        return bulkWrite(revs, WriteOperation.UPDATE);
+    }
+
+    @Override
+    public List<DocumentWriteResult> deleteAll(List<DocumentRevision> revs)
+            throws DocumentStoreException {
+        return bulkWrite(revs, WriteOperation.DELETE);
+    }
+
+    enum WriteOperation {
+        CREATE, UPDATE, DELETE
+    }
+
+    /**
+     * A write of one document whose attachments have been prepared, returning the event to post
+     * for it. {@code index} is its position in a bulk write.
+     */
+    static abstract class PreparedWrite implements SQLCallable<DocumentModified> {
+        final int index;
+        final DocumentRevision rev;
+
+        PreparedWrite(int index, DocumentRevision rev) {
+            this.index = index;
+            this.rev = rev;
+        }
+    }
+
+    private List<DocumentWriteResult> bulkWrite(List<DocumentRevision> revs,
+                                                WriteOperation operation)
+            throws DocumentStoreException {
+        Misc.checkNotNull(revs, "DocumentRevisions");
+        Misc.checkState(isOpen(), "Datastore is closed");
+
+        final DocumentWriteResult[] results = new DocumentWriteResult[revs.size()];
+        final List<PreparedWrite> writes = new ArrayList<PreparedWrite>(revs.size());
+        for (int i = 0; i < revs.size(); i++) {
+            // invalid revisions and attachments which can't be prepared only fail their own
+            // document, as they would if written one at a time
+            try {
+                writes.add(prepareWrite(i, revs.get(i), operation));
+            } catch (AttachmentException e) {
+                results[i] = DocumentWriteResult.failure(revs.get(i), e);
+            } catch (IllegalArgumentException e) {
+                results[i] = DocumentWriteResult.failure(revs.get(i), e);
+            }
+        }
+
+        commitWrites(writes, results);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * <p>
+     * Runs {@code writes} in a single transaction, each in its own savepoint so that a failed
+     * write is rolled back without affecting the others.
+     * </p>
+     * <p>
+     * The result of each write is only set in {@code results}, and the event for the successful
+     * writes only posted, once the transaction has been committed. If the transaction as a
+     * whole fails, no results are set or events posted.
+     * </p>
+     */
+    void commitWrites(final List<PreparedWrite> writes, DocumentWriteResult[] results) throws
+            DocumentStoreException {
+        final DocumentModified[] committed = new DocumentModified[writes.size()];
+        final Exception[] failures = new Exception[writes.size()];
+        try {
+            get(queue.submitTransaction(new SQLCallable<Void>() {
+                @Override
+                public Void call(SQLDatabase db) throws Exception {
+                    for (int i = 0; i < writes.size(); i++) {
+                        try {
+                            committed[i] = new SavepointCallable<DocumentModified>(writes.get
+                                    (i)).call(db);
+                        } catch (SavepointCallable.RolledBackException e) {
+                            failures[i] = e.getCause();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        } catch (ExecutionException e) {
+            String message = "Failed to write documents";
+            logger.log(Level.SEVERE, message, e);
+            throw new DocumentStoreException(message, e.getCause());
+        }
+
+        // the transaction has been committed, so the writes' outcomes can be reported
+        List<DocumentModified> events = new ArrayList<DocumentModified>(writes.size());
+        for (int i = 0; i < writes.size(); i++) {
+            PreparedWrite write = writes.get(i);
+            if (failures[i] != null) {
+                results[write.index] = DocumentWriteResult.failure(write.rev, failures[i]);
+            } else {
+                results[write.index] = DocumentWriteResult.success(write.rev, committed[i]
+                        .newDocument);
+                events.add(committed[i]);
+            }
+        }
+        if (!events.isEmpty()) {
+            eventBus.post(new DocumentsModified(events));
+        }
+    }
+
+    PreparedWrite prepareWrite(int index, final DocumentRevision rev,
+                               WriteOperation operation) throws AttachmentException {
+        Misc.checkNotNull(rev, "DocumentRevision");
+        if (operation != WriteOperation.CREATE) {
+            Misc.checkNotNull(rev.getId(), "Document ID");
+        }
+
+        // deletes, including updates to a deleted revision as for update()
+        if (operation == WriteOperation.DELETE ||
+                (operation == WriteOperation.UPDATE && rev.isDeleted())) {
+            if (rev.getId().startsWith(CouchConstants._local_prefix)) {
+                Misc.checkArgument(rev.getRevision() == null, "Local documents must have a null " +
+                        "revision ID");
+                final String localId = rev.getId().substring(CouchConstants._local_prefix
+                        .length());
+                Misc.checkNotNullOrEmpty(localId, "Input document id");
+                return new PreparedWrite(index, rev) {
+                    @Override
+                    public DocumentModified call(SQLDatabase db) throws Exception {
+                        new DeleteLocalDocumentCallable(localId).call(db);
+                        // local documents are removed rather than updated with a tombstone
+                        return new DocumentDeleted(rev, null);
+                    }
+                };
+            }
+            final DeleteDocumentCallable delete = new DeleteDocumentCallable(rev.getId(), rev
+                    .getRevision());
+            return new PreparedWrite(index, rev) {
+                @Override
+                public DocumentModified call(SQLDatabase db) throws Exception {
+                    return new DocumentDeleted(rev, delete.call(db));
+                }
+            };
+        }
+
+        Misc.checkArgument(rev.isFullRevision(), "Projected revisions cannot be used to " +
+                "create documents");
+
+        Map<String, Attachment> attachments = rev.getAttachments() != null ? rev.getAttachments
+                () : new HashMap<String, Attachment>();
+
+        // updates to "normal" documents
+        if (operation == WriteOperation.UPDATE &&
+                !rev.getId().startsWith(CouchConstants._local_prefix)) {
+            final UpdateDocumentFromRevisionCallable update = new
+                    UpdateDocumentFromRevisionCallable(rev,
+                    AttachmentManager.prepareAttachments(attachmentsDir, attachmentStreamFactory,
+                            AttachmentManager.findNewAttachments(attachments)),
+                    AttachmentManager.findExistingAttachments(attachments),
+                    attachmentsDir, attachmentStreamFactory);
+            return new PreparedWrite(index, rev) {
+                @Override
+                public DocumentModified call(SQLDatabase db) throws Exception {
+                    InternalDocumentRevision updated = update.call(db);
+                    // the previous revision is still there, no longer current
+                    InternalDocumentRevision prev = new GetDocumentCallable(rev.getId(), rev
+                            .getRevision(), attachmentsDir, attachmentStreamFactory).call(db);
+                    return new DocumentUpdated(prev, updated);
+                }
+            };
+        }
+
+        // creates, and creates or updates of local documents as for update()
+        Misc.checkArgument(rev.getRevision() == null, "Revision ID must be null for new " +
+                "DocumentRevisions");
+        final String docId = rev.getId() != null ? rev.getId() : CouchUtils.generateDocumentId();
+        if (docId.startsWith(CouchConstants._local_prefix)) {
+            String localId = docId.substring(CouchConstants._local_prefix.length());
+            CouchUtils.validateDocumentId(localId);
+            Misc.checkNotNull(rev.getBody(), "Input document body");
+            final InsertLocalDocumentCallable insert = new InsertLocalDocumentCallable(localId,
+                    rev.getBody());
+            return new PreparedWrite(index, rev) {
+                @Override
+                public DocumentModified call(SQLDatabase db) throws Exception {
+                    insert.call(db);
+                    return new DocumentCreated(rev);
+                }
+            };
+        }
+        final SQLCallable<InternalDocumentRevision> create = createDocumentCallable(docId, rev,
+                AttachmentManager.prepareAttachments(attachmentsDir, attachmentStreamFactory,
+                        AttachmentManager.findNewAttachments(attachments)),
+                AttachmentManager.findExistingAttachments(attachments));
+        return new PreparedWrite(index, rev) {
+            @Override
+            public DocumentModified call(SQLDatabase db) throws Exception {
+                return new DocumentCreated(create.call(db));
+            }
+        };
+    }
+
     <T> Future<T> runOnDbQueue(SQLCallable<T> callable) {
         return queue.submit(callable);
     }
 
+    SQLDatabaseQueue getQueue() {
+        return queue;
+    }
+
     // helper to avoid having to catch ExecutionExceptions
     public static <T> T get(Future<T> future) throws ExecutionException {
         try {
@@ -1132,9 +1410,9 @@ private class ResolveConflictTransaction implements SQLCallable<Void> {
                 .setDeleted(revision.isDeleted())
                 .build();
 
-        Map<String[], Map<String, PreparedAttachment>> preparedAttachments = Collections
-                .singletonMap
-                        (new String[]{revision.getId(), revision.getRevision()}, AttachmentManager
+        Map<DocumentRevisionKey, Map<String, PreparedAttachment>> preparedAttachments =
+                Collections.singletonMap
+                        (new DocumentRevisionKey(revision.getId(), revision.getRevision()), AttachmentManager
                                 .prepareAttachments(attachmentsDir, attachmentStreamFactory,
                                         attachments));
 
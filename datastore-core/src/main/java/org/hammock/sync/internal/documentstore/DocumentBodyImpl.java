@@ -22,7 +22,9 @@ package org.hammock.sync.internal.documentstore;
 import org.hammock.sync.documentstore.DocumentBody;
 import org.hammock.sync.internal.util.JSONUtils;
 import org.hammock.sync.internal.util.Misc;
+import org.hammock.sync.internal.util.ReadOnlyJSON;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -33,15 +35,17 @@ public final class DocumentBodyImpl implements DocumentBody {
     private Map<String, Object> map;
 
     public DocumentBodyImpl(byte[] bytes) {
+        this(bytes, true);
+    }
+
+    private DocumentBodyImpl(byte[] bytes, boolean validate) {
         // compacted revisions have their bodies set to null, so return an empty body
         if (bytes == null) {
             bytes = JSONUtils.emptyJSONObjectAsBytes();
-        }
-        if(JSONUtils.isValidJSON(bytes)) {
-            this.bytes = bytes;
-        } else {
+        } else if (validate && !JSONUtils.isValidJSON(bytes)) {
             throw new IllegalArgumentException("Input bytes is not valid json data.");
         }
+        this.bytes = bytes;
     }
 
     public DocumentBodyImpl(Map map) {
@@ -62,10 +66,23 @@ public final class DocumentBodyImpl implements DocumentBody {
         return new DocumentBodyImpl(map);
     }
 
+    /**
+     * <p>Returns a body for JSON which was validated when it was written, such as a body read
+     * back from the database, without validating it again.</p>
+     *
+     * <p>The bytes are not copied, so the caller must not modify them afterwards.</p>
+     *
+     * @param bytes JSON data, or {@code null} for an empty body
+     * @return DocumentBody object containing given data.
+     */
+    public static DocumentBody trustedBodyWith(byte[] bytes) {
+        return new DocumentBodyImpl(bytes, false);
+    }
+
     @Override
     public byte[] asBytes() {
-        byte[] jsonCopy = getJsonBytes();
-        return Arrays.copyOf(jsonCopy, jsonCopy.length);
+        byte[] json = getJsonBytes();
+        return Arrays.copyOf(json, json.length);
     }
 
     @SuppressWarnings("unchecked")
@@ -74,6 +91,17 @@ public final class DocumentBodyImpl implements DocumentBody {
         return (Map<String,Object>) getMapObject();
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, Object> asReadOnlyMap() {
+        return ReadOnlyJSON.view((Map<String, Object>) getParsedMap());
+    }
+
+    @Override
+    public ByteBuffer asReadOnlyBytes() {
+        return ByteBuffer.wrap(getJsonBytes()).asReadOnlyBuffer();
+    }
+
     @Override
     public String toString() {
         if(bytes != null) {
@@ -90,16 +118,19 @@ public final class DocumentBodyImpl implements DocumentBody {
             assert map != null;
             bytes = JSONUtils.serializeAsBytes(map);
         }
-        return bytes.clone();
+        return bytes;
     }
 
     private Map getMapObject() {
+        // Return a shallow copy
+        return new HashMap(getParsedMap());
+    }
+
+    private Map getParsedMap() {
         if(map == null) {
             assert bytes != null;
             map = JSONUtils.deserialize(bytes);
         }
-
-        // Return a shallow copy
-        return new HashMap(map);
+        return map;
     }
 }
@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore;
+
+import org.hammock.sync.internal.util.Misc;
+
+/**
+ * Identifies a single revision of a document by its document ID and revision ID, for use as a
+ * map key.
+ */
+public final class DocumentRevisionKey {
+
+    public final String docId;
+    public final String revId;
+
+    /**
+     * @param docId the document ID
+     * @param revId the revision ID
+     */
+    public DocumentRevisionKey(String docId, String revId) {
+        Misc.checkNotNull(docId, "Document ID");
+        Misc.checkNotNull(revId, "Revision ID");
+        this.docId = docId;
+        this.revId = revId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        DocumentRevisionKey that = (DocumentRevisionKey) o;
+
+        return docId.equals(that.docId) && revId.equals(that.revId);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = docId.hashCode();
+        result = 31 * result + revId.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentRevisionKey{docId='" + docId + "', revId='" + revId + "'}";
+    }
+}
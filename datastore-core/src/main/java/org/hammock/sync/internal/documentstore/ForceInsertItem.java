@@ -27,7 +27,7 @@ public class ForceInsertItem {
     public InternalDocumentRevision rev;
     public List<String> revisionHistory;
     public Map<String, Object> attachments;
-    public Map<String[], Map<String, PreparedAttachment>> preparedAttachments;
+    public Map<DocumentRevisionKey, Map<String, PreparedAttachment>> preparedAttachments;
     public boolean pullAttachmentsInline;
 
     /**
@@ -39,7 +39,8 @@ public class ForceInsertItem {
      * @param attachments           Attachments metadata and inline data. Used when {@code
      *                              pullAttachmentsInline} true.
      * @param preparedAttachments   Attachments that have already been prepared, this is a Map of
-     *                              String[docId,revId] → list of attachmentsNon-empty. Used when
+     *                              {@link DocumentRevisionKey} → attachments by name. Only the
+     *                              entry for {@code rev} is used. Used when
      *                              {@code pullAttachmentsInline} false.
      * @param pullAttachmentsInline If true, use {@code attachments} metadata and data directly
      *                              from received JSON to add new attachments for this revision.
@@ -50,7 +51,7 @@ public class ForceInsertItem {
      *                              {@link PullStrategy}
      */
     public ForceInsertItem(InternalDocumentRevision rev, List<String> revisionHistory,
-                           Map<String, Object> attachments, Map<String[],
+                           Map<String, Object> attachments, Map<DocumentRevisionKey,
             Map<String, PreparedAttachment>> preparedAttachments, boolean pullAttachmentsInline) {
         this.rev = rev;
         this.revisionHistory = revisionHistory;
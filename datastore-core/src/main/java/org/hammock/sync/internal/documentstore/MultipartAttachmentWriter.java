@@ -243,6 +243,7 @@ public class MultipartAttachmentWriter {
         int currentAttachment;
         InputStream currentStream;
         State state;
+        private final byte[] singleByte = new byte[1];
 
         public WriterInputStream() {
             state = State.BEGIN;
@@ -250,13 +251,21 @@ public class MultipartAttachmentWriter {
         }
 
         public int read() throws IOException {
-            byte[] b = new byte[1];
-            int amountRead = this.read(b);
+            int amountRead = this.read(singleByte, 0, 1);
             // read one byte and return its value or -1 if no bytes were read
-            return amountRead == 1 ? b[0] : -1;
+            return amountRead == 1 ? singleByte[0] & 0xff : -1;
         }
 
         public int read(byte b[]) throws IOException {
+            return this.read(b, 0, b.length);
+        }
+
+        // read straight into the caller's buffer from the stream for each part, so that
+        // attachment data is not copied on its way to the connection
+        public int read(byte b[], int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
 
             if (state == State.BEGIN) {
                 state = State.BODY;
@@ -268,12 +277,12 @@ public class MultipartAttachmentWriter {
             int howMuch = 0;
 
             while (currentStream != null) {
-                // try to read enough bytes to fill the rest of the bytes array
-                howMuch = b.length - amountRead;
+                // try to read enough bytes to fill the rest of the requested length
+                howMuch = len - amountRead;
                 if (howMuch <= 0) {
                     break;
                 }
-                int read = currentStream.read(b, amountRead, howMuch);
+                int read = currentStream.read(b, off + amountRead, howMuch);
                 if (read <= 0) {
                     currentStream.close();
                     currentStream = this.next();
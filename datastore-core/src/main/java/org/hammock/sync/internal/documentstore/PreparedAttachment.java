@@ -40,7 +40,8 @@ import java.util.logging.Logger;
  */
 public class PreparedAttachment {
 
-    private Logger logger = Logger.getLogger(PreparedAttachment.class.getCanonicalName());
+    private static final Logger logger = Logger.getLogger(PreparedAttachment.class
+            .getCanonicalName());
 
     public final Attachment attachment;
     public final File tempFile;
@@ -68,39 +69,20 @@ public class PreparedAttachment {
                               String attachmentsDir,
                               long length,
                               AttachmentStreamFactory attachmentStreamFactory) throws AttachmentException {
-        this.attachment = attachment;
-        this.tempFile = new File(attachmentsDir, "temp" + UUID.randomUUID());
-        InputStream attachmentInStream = null;
-        OutputStream tempFileOutStream = null;
-        MessageDigest calculateSha1 = null;
-        int totalRead = 0;
-        try {
-            attachmentInStream = attachment.getInputStream();
+        this(attachment, copy(attachment, new Writer(attachmentsDir, attachmentStreamFactory)),
+                length);
+    }
 
-            tempFileOutStream = attachmentStreamFactory.getOutputStream(this.tempFile,
-                    Attachment.Encoding.Plain);
+    /**
+     * Prepare an attachment whose data has already been copied to a temp location by
+     * {@code writer}, which is closed.
+     */
+    private PreparedAttachment(Attachment attachment, Writer writer, long length) throws
+            AttachmentException {
+        this.attachment = attachment;
+        this.tempFile = writer.tempFile;
+        long totalRead = writer.close();
 
-            calculateSha1 = MessageDigest.getInstance("SHA-1");
-            int bufferSize = 1024;
-            byte[] buffer = new byte[bufferSize];
-            int bytesRead;
-            while ((bytesRead = attachmentInStream.read(buffer)) != -1) {
-                calculateSha1.update(buffer, 0, bytesRead);
-                tempFileOutStream.write(buffer, 0, bytesRead);
-                totalRead += bytesRead;
-            }
-        } catch (IOException e) {
-            logger.log(Level.WARNING, "Problem reading from input or writing to output stream ", e);
-            throw new AttachmentNotSavedException(e);
-        } catch (NoSuchAlgorithmException e) {
-            logger.log(Level.WARNING, "Problem calculating SHA1 for attachment stream ", e);
-            throw new AttachmentNotSavedException(e);
-        } finally {
-            //Ensure the attachment input stream and file output stream is closed after calculating the hash
-            IOUtils.closeQuietly(attachmentInStream);
-            IOUtils.closeQuietly(tempFileOutStream);
-        }
-        
         //Set attachment length from bytes read in input stream
         if (this.attachment.encoding == Attachment.Encoding.Plain) {
             this.length = totalRead;
@@ -112,7 +94,146 @@ public class PreparedAttachment {
             this.encodedLength = totalRead;
         }
 
-        this.sha1 = calculateSha1.digest();
+        this.sha1 = writer.sha1.digest();
+    }
+
+    /**
+     * Prepare an attachment whose data has been copied to a temp location by {@code writer},
+     * closing the writer.
+     *
+     * @param attachment The attachment to prepare. Its data is not read again.
+     * @param writer     The writer the attachment's data was written with
+     * @param length     Length in bytes, before any encoding. This argument is ignored if the
+     *                   attachment is not encoded
+     * @return the prepared attachment
+     * @throws AttachmentException if the data could not be written to the temp location
+     */
+    public static PreparedAttachment fromWriter(Attachment attachment, Writer writer, long
+            length) throws AttachmentException {
+        return new PreparedAttachment(attachment, writer, length);
+    }
+
+    private static Writer copy(Attachment attachment, Writer writer) throws
+            AttachmentNotSavedException {
+        InputStream attachmentInStream = null;
+        try {
+            attachmentInStream = attachment.getInputStream();
+            writer.write(attachmentInStream);
+            return writer;
+        } catch (IOException e) {
+            logger.log(Level.WARNING,
+                    "Problem reading from input or writing to output stream ", e);
+            writer.discard();
+            throw new AttachmentNotSavedException(e);
+        } finally {
+            //Ensure the attachment input stream is closed after calculating the hash
+            IOUtils.closeQuietly(attachmentInStream);
+        }
+    }
+
+    /**
+     * <p>
+     * Copies attachment data to a temp location, calculating its sha1 as it goes.
+     * </p>
+     * <p>
+     * The data can arrive over several calls to {@link #write(InputStream)}, each continuing
+     * from the last byte written by the one before, so a download which fails part way through
+     * can be resumed from where it stopped rather than started again. The temp file stays open
+     * between calls, and the sha1 state is carried from one to the next.
+     * </p>
+     */
+    public static class Writer {
+
+        private final File tempFile;
+        private final AttachmentStreamFactory attachmentStreamFactory;
+        private final MessageDigest sha1;
+        private OutputStream out = null;
+        private long bytesWritten = 0;
+
+        /**
+         * @param attachmentsDir          The 'BLOB store' or location where attachments are
+         *                                stored for this database
+         * @param attachmentStreamFactory The {@link AttachmentStreamFactory} used for writing
+         *                                attachment data to disk
+         * @throws AttachmentNotSavedException if SHA1 is not available
+         */
+        public Writer(String attachmentsDir, AttachmentStreamFactory attachmentStreamFactory)
+                throws AttachmentNotSavedException {
+            this.tempFile = new File(attachmentsDir, "temp" + UUID.randomUUID());
+            this.attachmentStreamFactory = attachmentStreamFactory;
+            try {
+                this.sha1 = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                logger.log(Level.WARNING,
+                        "Problem calculating SHA1 for attachment stream ", e);
+                throw new AttachmentNotSavedException(e);
+            }
+        }
+
+        /**
+         * @return the number of bytes written so far
+         */
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * Writes the data from {@code in} until it ends, following any data already written.
+         * If reading from {@code in} fails, everything read before the failure is kept, so the
+         * data can be continued by another call. If writing to the temp location fails,
+         * everything written so far is discarded.
+         *
+         * @param in the stream to read data from, which is not closed
+         * @throws IOException if there was an error reading or writing the data
+         */
+        public void write(InputStream in) throws IOException {
+            if (out == null) {
+                out = attachmentStreamFactory.getOutputStream(tempFile, Attachment.Encoding
+                        .Plain);
+            }
+            byte[] buffer = new byte[1024];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                try {
+                    out.write(buffer, 0, bytesRead);
+                } catch (IOException e) {
+                    discard();
+                    throw e;
+                }
+                sha1.update(buffer, 0, bytesRead);
+                bytesWritten += bytesRead;
+            }
+        }
+
+        /**
+         * Discards everything written so far, so the data can be started again from the
+         * beginning.
+         */
+        public void discard() {
+            IOUtils.closeQuietly(out);
+            out = null;
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+            sha1.reset();
+            bytesWritten = 0;
+        }
+
+        private long close() throws AttachmentNotSavedException {
+            try {
+                if (out == null) {
+                    // nothing was written, but the temp file must exist
+                    out = attachmentStreamFactory.getOutputStream(tempFile, Attachment.Encoding
+                            .Plain);
+                }
+                out.close();
+                return bytesWritten;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Problem writing to output stream ", e);
+                discard();
+                throw new AttachmentNotSavedException(e);
+            }
+        }
     }
 
 }
@@ -306,7 +306,10 @@ private static void addAttachment(Map<String, Object> attsMap,
 
 private static void inlineAttachment(SavedAttachment savedAtt, HashMap<String, Object> theAtt) throws IOException {
     theAtt.put("follows", false);
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    // size the buffer for the base64 of the data, so it doesn't have to grow as it's written
+    long encodedSize = 4 * ((savedAtt.onDiskLength() + 2) / 3);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream((int) Math.min(encodedSize,
+            Integer.MAX_VALUE - 8));
     OutputStream bos = Base64OutputStreamFactory.get(baos);
     InputStream fis = savedAtt.getInputStream();
     try {
@@ -316,7 +319,7 @@ private static void inlineAttachment(SavedAttachment savedAtt, HashMap<String, O
         IOUtils.closeQuietly(fis);
         IOUtils.closeQuietly(bos);
     }
-    theAtt.put("data", new String(baos.toByteArray(), "UTF-8"));
+    theAtt.put("data", baos.toString("UTF-8"));
 }
 
 
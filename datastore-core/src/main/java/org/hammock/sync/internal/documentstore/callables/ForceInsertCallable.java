@@ -18,7 +18,8 @@ import org.hammock.sync.internal.android.Base64InputStreamFactory;
 import org.hammock.sync.internal.documentstore.AttachmentManager;
 import org.hammock.sync.internal.documentstore.AttachmentStreamFactory;
 import org.hammock.sync.internal.documentstore.DatabaseImpl;
-import org.hammock.sync.documentstore.DocumentNotFoundException;
+import org.hammock.sync.internal.documentstore.DocumentRevisionBuilder;
+import org.hammock.sync.internal.documentstore.DocumentRevisionKey;
 import org.hammock.sync.internal.documentstore.InternalDocumentRevision;
 import org.hammock.sync.internal.documentstore.ForceInsertItem;
 import org.hammock.sync.internal.documentstore.PreparedAttachment;
@@ -70,38 +71,27 @@ public class ForceInsertCallable implements SQLCallable<List<DocumentModified>>
 private void processForceInsertItem(SQLDatabase db, ForceInsertItem item, List<DocumentModified> events) throws Exception {
     logger.finer("forceInsert(): " + item.rev.toString());
 
-    DocumentModified documentModified = processDocumentInsertion(db, item);
-
-    processAttachments(db, item);
-
-    if (documentModified != null) {
-        events.add(documentModified);
-    }
-}
-
-
-private DocumentModified processDocumentInsertion(SQLDatabase db, ForceInsertItem item) throws Exception {
     long docNumericId = new GetNumericIdCallable(item.rev.getId()).call(db);
     long seq;
+    DocumentModified documentModified;
 
     if (docNumericId != -1) {
         seq = new DoForceInsertExistingDocumentWithHistoryCallable(item.rev, docNumericId, item.revisionHistory,
                 item.attachments, attachmentsDir, attachmentStreamFactory).call(db);
         // TODO fetch the parent doc?
-        return new DocumentUpdated(null, item.rev);
+        documentModified = new DocumentUpdated(null, item.rev);
     } else {
         seq = new DoForceInsertNewDocumentWithHistoryCallable(item.rev, item.revisionHistory).call(db);
-        return new DocumentCreated(item.rev);
+        documentModified = new DocumentCreated(item.rev);
     }
 
-}
-
-private void processAttachments(SQLDatabase db, ForceInsertItem item) throws Exception {
     if (item.pullAttachmentsInline) {
         processInlineAttachments(db, item);
     } else {
-        processPreparedAttachments(db, item);
+        processPreparedAttachments(db, item, seq);
     }
+
+    events.add(documentModified);
 }
 
 private void processInlineAttachments(SQLDatabase db, ForceInsertItem item) throws Exception {
@@ -131,19 +121,32 @@ private void processInlineAttachments(SQLDatabase db, ForceInsertItem item) thro
 }
 
 
-private void processPreparedAttachments(SQLDatabase db, ForceInsertItem item) throws Exception {
+/**
+ * Adds the prepared attachments for the revision inserted for {@code item}, which was given
+ * {@code seq}, to it. Entries in {@code item.preparedAttachments} for other revisions are left to
+ * the items they belong to.
+ */
+private void processPreparedAttachments(SQLDatabase db, ForceInsertItem item, long seq) throws Exception {
     try {
         if (item.preparedAttachments != null) {
-            for (String[] key : item.preparedAttachments.keySet()) {
-                String id = key[0];
-                String rev = key[1];
-                try {
-                    InternalDocumentRevision doc = new GetDocumentCallable(id, rev, attachmentsDir, attachmentStreamFactory).call(db);
-                    AttachmentManager.addAttachmentsToRevision(db, attachmentsDir, doc, item.preparedAttachments.get(key));
-                } catch (DocumentNotFoundException e) {
-                    continue;
+            Map<String, PreparedAttachment> attachments = item.preparedAttachments.get(new
+                    DocumentRevisionKey(item.rev.getId(), item.rev.getRevision()));
+            if (attachments == null || attachments.isEmpty()) {
+                return;
+            }
+            if (seq <= 0) {
+                seq = new GetSequenceCallable(item.rev.getId(), item.rev.getRevision()).call(db);
+                if (seq == -1) {
+                    return;
                 }
             }
+            // adding attachments only needs the revision's sequence and ID
+            InternalDocumentRevision rev = new DocumentRevisionBuilder()
+                    .setDocId(item.rev.getId())
+                    .setRevId(item.rev.getRevision())
+                    .setSequence(seq)
+                    .build();
+            AttachmentManager.addAttachmentsToRevision(db, attachmentsDir, rev, attachments);
         }
     } catch (Exception e) {
         logger.log(Level.SEVERE, "There was a problem adding an attachment to the datastore", e);
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.documentstore.DocumentRevisionKey;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.DatabaseUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Get the names of the attachments of any number of revisions, keyed by revision. Revisions
+ * which don't exist or have no attachments are left out.
+ * </p>
+ * <p>
+ * As with {@link RevsDiffCallable}, the revisions are packed into as few queries as the
+ * placeholder limit allows, each matching all of the document IDs against all of the revision
+ * IDs in it. Rows for revisions which weren't asked about are ignored.
+ * </p>
+ */
+public class GetAttachmentNamesCallable implements SQLCallable<Map<DocumentRevisionKey,
+        Set<String>>> {
+
+    private static final String SQL_ATTACHMENT_NAMES = "SELECT docs.docid, revs.revid, " +
+            "attachments.filename FROM attachments, revs, docs WHERE attachments.sequence = " +
+            "revs.sequence AND revs.doc_id = docs.doc_id AND docs.docid IN (%s) AND revs.revid " +
+            "IN (%s)";
+
+    private final Set<DocumentRevisionKey> revisions;
+
+    /**
+     * @param revisions the revisions to get the attachment names of
+     */
+    public GetAttachmentNamesCallable(Collection<DocumentRevisionKey> revisions) {
+        this.revisions = new HashSet<DocumentRevisionKey>(revisions);
+    }
+
+    @Override
+    public Map<DocumentRevisionKey, Set<String>> call(SQLDatabase db) throws
+            DocumentStoreException {
+        Map<DocumentRevisionKey, Set<String>> names = new HashMap<DocumentRevisionKey,
+                Set<String>>();
+        Set<String> docIds = new HashSet<String>();
+        Set<String> revIds = new HashSet<String>();
+        for (DocumentRevisionKey revision : this.revisions) {
+            int placeholders = docIds.size() + revIds.size() +
+                    (docIds.contains(revision.docId) ? 0 : 1) +
+                    (revIds.contains(revision.revId) ? 0 : 1);
+            if (placeholders > DatabaseImpl.SQLITE_QUERY_PLACEHOLDERS_LIMIT) {
+                readNames(db, docIds, revIds, names);
+                docIds.clear();
+                revIds.clear();
+            }
+            docIds.add(revision.docId);
+            revIds.add(revision.revId);
+        }
+        if (!docIds.isEmpty()) {
+            readNames(db, docIds, revIds, names);
+        }
+        return names;
+    }
+
+    private void readNames(SQLDatabase db, Set<String> docIds, Set<String> revIds,
+                           Map<DocumentRevisionKey, Set<String>> names) throws
+            DocumentStoreException {
+        String sql = String.format(SQL_ATTACHMENT_NAMES,
+                DatabaseUtils.makePlaceholders(docIds.size()),
+                DatabaseUtils.makePlaceholders(revIds.size()));
+        List<String> args = new ArrayList<String>(docIds.size() + revIds.size());
+        args.addAll(docIds);
+        args.addAll(revIds);
+
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, args.toArray(new String[args.size()]));
+            while (cursor.moveToNext()) {
+                DocumentRevisionKey revision = new DocumentRevisionKey(cursor.getString(0),
+                        cursor.getString(1));
+                if (!this.revisions.contains(revision)) {
+                    continue;
+                }
+                Set<String> revisionNames = names.get(revision);
+                if (revisionNames == null) {
+                    revisionNames = new HashSet<String>();
+                    names.put(revision, revisionNames);
+                }
+                revisionNames.add(cursor.getString(2));
+            }
+        } catch (SQLException e) {
+            throw new DocumentStoreException(e);
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+    }
+}
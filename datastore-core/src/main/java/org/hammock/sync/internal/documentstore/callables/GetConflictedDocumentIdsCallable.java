@@ -51,7 +51,7 @@ public class GetConflictedDocumentIdsCallable implements SQLCallable<List<String
         List<String> conflicts = new ArrayList<String>();
         Cursor cursor = null;
         try {
-            cursor = db.rawQuery(sql, new String[]{});
+            cursor = db.rawQueryStreaming(sql, new String[]{});
             while (cursor.moveToNext()) {
                 String docId = cursor.getString(0);
                 conflicts.add(docId);
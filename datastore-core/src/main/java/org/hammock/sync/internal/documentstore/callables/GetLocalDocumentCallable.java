@@ -15,8 +15,8 @@
 package org.hammock.sync.internal.documentstore.callables;
 
 import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.documentstore.DocumentBodyImpl;
 import org.hammock.sync.documentstore.DocumentStoreException;
-import org.hammock.sync.documentstore.DocumentBodyFactory;
 import org.hammock.sync.documentstore.DocumentNotFoundException;
 import org.hammock.sync.documentstore.LocalDocument;
 import org.hammock.sync.internal.sqlite.Cursor;
@@ -53,7 +53,7 @@ public class GetLocalDocumentCallable implements SQLCallable<LocalDocument> {
             if (cursor.moveToFirst()) {
                 byte[] json = cursor.getBlob(0);
 
-                return new LocalDocument(docId, DocumentBodyFactory.create(json));
+                return new LocalDocument(docId, DocumentBodyImpl.trustedBodyWith(json));
             } else {
                 throw new DocumentNotFoundException(String.format("No local document found with " +
                         "id: %s", docId));
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.internal.common.CouchUtils;
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.DatabaseUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Does the work of {@link GetPossibleAncestorRevisionIdsCallable} for any number of documents
+ * and revisions at once, returning for each document the union of the possible ancestors of
+ * each of its revisions.
+ * </p>
+ * <p>
+ * The candidate revisions of as many documents as the placeholder limit allows are read with a
+ * single query, newest first, and the generation filtering and limit are applied per revision
+ * in memory, so the result is the same as calling {@link GetPossibleAncestorRevisionIdsCallable}
+ * for every revision in turn.
+ * </p>
+ */
+public class GetPossibleAncestorRevisionIdsBatchCallable implements SQLCallable<Map<String,
+        List<String>>> {
+
+    private static final String SQL_CANDIDATE_REVISIONS = "SELECT docs.docid, revs.revid " +
+            "FROM revs, docs WHERE docs.docid IN (%s) AND revs.deleted=0 AND " +
+            "revs.json NOT NULL AND revs.doc_id = docs.doc_id ORDER BY revs.sequence DESC";
+
+    private final Map<String, List<String>> revisions;
+    private final int limit;
+
+    /**
+     * @param revisions the rev IDs to find possible ancestors of, keyed by doc ID
+     * @param limit maximum IDs to retrieve for each revision
+     */
+    public GetPossibleAncestorRevisionIdsBatchCallable(Map<String, List<String>> revisions,
+                                                       int limit) {
+        this.revisions = revisions;
+        this.limit = limit;
+    }
+
+    /**
+     * @return the possible ancestor rev IDs, keyed by doc ID. Documents with none are left out.
+     */
+    @Override
+    public Map<String, List<String>> call(SQLDatabase db) throws Exception {
+        // only revisions after the first generation can have ancestors
+        List<String> docIds = new ArrayList<String>();
+        for (Map.Entry<String, List<String>> entry : this.revisions.entrySet()) {
+            for (String revId : entry.getValue()) {
+                if (CouchUtils.generationFromRevId(revId) > 1) {
+                    docIds.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+
+        Map<String, List<String>> candidates = new HashMap<String, List<String>>();
+        for (int start = 0; start < docIds.size(); start += DatabaseImpl
+                .SQLITE_QUERY_PLACEHOLDERS_LIMIT) {
+            int end = Math.min(start + DatabaseImpl.SQLITE_QUERY_PLACEHOLDERS_LIMIT, docIds
+                    .size());
+            readCandidates(db, docIds.subList(start, end), candidates);
+        }
+
+        Map<String, List<String>> result = new HashMap<String, List<String>>();
+        for (String docId : docIds) {
+            List<String> docCandidates = candidates.get(docId);
+            if (docCandidates == null) {
+                continue;
+            }
+            Set<String> ancestors = new LinkedHashSet<String>();
+            for (String revId : this.revisions.get(docId)) {
+                int generation = CouchUtils.generationFromRevId(revId);
+                int remaining = this.limit;
+                for (int i = 0; i < docCandidates.size() && remaining > 0; i++) {
+                    String ancestorRevId = docCandidates.get(i);
+                    if (CouchUtils.generationFromRevId(ancestorRevId) < generation) {
+                        ancestors.add(ancestorRevId);
+                        remaining--;
+                    }
+                }
+            }
+            if (!ancestors.isEmpty()) {
+                result.put(docId, new ArrayList<String>(ancestors));
+            }
+        }
+        return result;
+    }
+
+    private static void readCandidates(SQLDatabase db, List<String> docIds, Map<String,
+            List<String>> candidates) throws DocumentStoreException {
+        String sql = String.format(SQL_CANDIDATE_REVISIONS,
+                DatabaseUtils.makePlaceholders(docIds.size()));
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, docIds.toArray(new String[docIds.size()]));
+            while (cursor.moveToNext()) {
+                String docId = cursor.getString(0);
+                List<String> docCandidates = candidates.get(docId);
+                if (docCandidates == null) {
+                    docCandidates = new ArrayList<String>();
+                    candidates.put(docId, docCandidates);
+                }
+                docCandidates.add(cursor.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new DocumentStoreException(e);
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.documentstore.DocumentRevisionBuilder;
+import org.hammock.sync.internal.documentstore.DocumentRevisionTree;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.DatabaseUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Get the revision trees of many documents, keyed by Document ID, containing only the metadata
+ * of each revision: the revisions in the trees have no body or attachments.
+ * </p>
+ * <p>
+ * This is enough to find leaf revisions and walk their paths, without reading the JSON of every
+ * revision in the documents' histories. The trees of as many documents as the placeholder limit
+ * allows are read with a single query.
+ * </p>
+ *
+ * @see GetAllRevisionsOfDocumentCallable
+ */
+public class GetRevisionTreesMetadataCallable implements SQLCallable<Map<String,
+        DocumentRevisionTree>> {
+
+    private static final String SQL_METADATA = "SELECT " + CallableSQLConstants.METADATA_COLS +
+            " FROM revs, docs WHERE docs.docid IN (%s) AND revs.doc_id = docs.doc_id ORDER BY " +
+            "sequence ASC";
+
+    private final List<String> docIds;
+
+    /**
+     * @param docIds the Document IDs to get the revision trees for
+     */
+    public GetRevisionTreesMetadataCallable(List<String> docIds) {
+        this.docIds = new ArrayList<String>(new LinkedHashSet<String>(docIds));
+    }
+
+    @Override
+    public Map<String, DocumentRevisionTree> call(SQLDatabase db) throws DocumentStoreException {
+        Map<String, DocumentRevisionTree> trees = new HashMap<String, DocumentRevisionTree>();
+        for (int start = 0; start < docIds.size(); start += DatabaseImpl
+                .SQLITE_QUERY_PLACEHOLDERS_LIMIT) {
+            int end = Math.min(start + DatabaseImpl.SQLITE_QUERY_PLACEHOLDERS_LIMIT, docIds
+                    .size());
+            readTrees(db, docIds.subList(start, end), trees);
+        }
+        return trees;
+    }
+
+    private static void readTrees(SQLDatabase db, List<String> docIds, Map<String,
+            DocumentRevisionTree> trees) throws DocumentStoreException {
+        String sql = String.format(SQL_METADATA, DatabaseUtils.makePlaceholders(docIds.size()));
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, docIds.toArray(new String[docIds.size()]));
+            while (cursor.moveToNext()) {
+                String docId = cursor.getString(cursor.getColumnIndex("docid"));
+                long parent = -1L;
+                if (cursor.columnType(cursor.getColumnIndex("parent")) == Cursor
+                        .FIELD_TYPE_INTEGER) {
+                    parent = cursor.getLong(cursor.getColumnIndex("parent"));
+                }
+                DocumentRevisionTree tree = trees.get(docId);
+                if (tree == null) {
+                    tree = new DocumentRevisionTree();
+                    trees.put(docId, tree);
+                }
+                // revisions are in sequence order, so each parent is added before its children
+                tree.add(new DocumentRevisionBuilder()
+                        .setDocId(docId)
+                        .setRevId(cursor.getString(cursor.getColumnIndex("revid")))
+                        .setDeleted(cursor.getInt(cursor.getColumnIndex("deleted")) > 0)
+                        .setSequence(cursor.getLong(cursor.getColumnIndex("sequence")))
+                        .setInternalId(cursor.getLong(cursor.getColumnIndex("doc_id")))
+                        .setCurrent(cursor.getInt(cursor.getColumnIndex("current")) > 0)
+                        .setParent(parent)
+                        .build());
+            }
+        } catch (SQLException e) {
+            throw new DocumentStoreException("Failed to get revision trees", e);
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.internal.common.ValueListMap;
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.DatabaseUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Checks the supplied revisions of any number of documents and returns those which are missing
+ * from the database, keyed by document ID. Documents with no missing revisions are left out.
+ * </p>
+ * <p>
+ * Rather than a query per document, the documents are packed into as few queries as the
+ * placeholder limit allows, each selecting the revisions which exist out of all of the pairs of
+ * document IDs and revision IDs in it. A pair selected this way always exists, so it is never
+ * wrongly counted as present even when it wasn't one of those asked about.
+ * </p>
+ */
+public class RevsDiffCallable implements SQLCallable<Map<String, List<String>>> {
+
+    private static final String SQL_EXISTING_REVISIONS = "SELECT docs.docid, revs.revid " +
+            "FROM docs, revs WHERE docs.doc_id = revs.doc_id AND docs.docid IN (%s) AND " +
+            "revs.revid IN (%s)";
+
+    private final Map<String, List<String>> revisions;
+
+    /**
+     * @param revisions the rev IDs to check, keyed by doc ID
+     */
+    public RevsDiffCallable(Map<String, List<String>> revisions) {
+        this.revisions = revisions;
+    }
+
+    /**
+     * @return the rev IDs not present in the database, keyed by doc ID
+     */
+    @Override
+    public Map<String, List<String>> call(SQLDatabase db) throws Exception {
+        // Consider all missing to start, removing those which are found
+        Map<String, Set<String>> missingRevs = new HashMap<String, Set<String>>();
+        Set<String> docIds = new HashSet<String>();
+        Set<String> revIds = new HashSet<String>();
+        for (Map.Entry<String, List<String>> entry : this.revisions.entrySet()) {
+            String docId = entry.getKey();
+            missingRevs.put(docId, new HashSet<String>(entry.getValue()));
+            for (String revId : entry.getValue()) {
+                int placeholders = docIds.size() + revIds.size() +
+                        (docIds.contains(docId) ? 0 : 1) + (revIds.contains(revId) ? 0 : 1);
+                if (placeholders > DatabaseImpl.SQLITE_QUERY_PLACEHOLDERS_LIMIT) {
+                    removeExisting(db, docIds, revIds, missingRevs);
+                    docIds.clear();
+                    revIds.clear();
+                }
+                docIds.add(docId);
+                revIds.add(revId);
+            }
+        }
+        if (!docIds.isEmpty()) {
+            removeExisting(db, docIds, revIds, missingRevs);
+        }
+
+        ValueListMap<String, String> result = new ValueListMap<String, String>();
+        for (Map.Entry<String, Set<String>> entry : missingRevs.entrySet()) {
+            result.addValuesToKey(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static void removeExisting(SQLDatabase db, Set<String> docIds, Set<String> revIds,
+                                       Map<String, Set<String>> missingRevs) throws
+            DocumentStoreException {
+        String sql = String.format(SQL_EXISTING_REVISIONS,
+                DatabaseUtils.makePlaceholders(docIds.size()),
+                DatabaseUtils.makePlaceholders(revIds.size()));
+        List<String> args = new ArrayList<String>(docIds.size() + revIds.size());
+        args.addAll(docIds);
+        args.addAll(revIds);
+
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, args.toArray(new String[args.size()]));
+            while (cursor.moveToNext()) {
+                Set<String> missing = missingRevs.get(cursor.getString(0));
+                if (missing != null) {
+                    missing.remove(cursor.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DocumentStoreException(e);
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+    }
+}
@@ -30,6 +30,14 @@ public class GetFullRevisionFromCurrentCursor {
 
     public static InternalDocumentRevision get(Cursor cursor,
                                                Map<String, ? extends Attachment> attachments) {
+        return builder(cursor).setAttachments(attachments).build();
+    }
+
+    /**
+     * Returns a builder populated from the current row of {@code cursor}, for callers which
+     * look up the revision's attachments separately.
+     */
+    public static DocumentRevisionBuilder builder(Cursor cursor) {
         String docId = cursor.getString(cursor.getColumnIndex("docid"));
         long internalId = cursor.getLong(cursor.getColumnIndex("doc_id"));
         String revId = cursor.getString(cursor.getColumnIndex("revid"));
@@ -47,18 +55,15 @@ public class GetFullRevisionFromCurrentCursor {
                     .getColumnIndex("parent")));
         }
 
-        DocumentRevisionBuilder builder = new DocumentRevisionBuilder()
+        return new DocumentRevisionBuilder()
                 .setDocId(docId)
                 .setRevId(revId)
-                .setBody(DocumentBodyImpl.bodyWith(json))
+                .setBody(DocumentBodyImpl.trustedBodyWith(json))
                 .setDeleted(deleted)
                 .setSequence(sequence)
                 .setInternalId(internalId)
                 .setCurrent(current)
-                .setParent(parent)
-                .setAttachments(attachments);
-
-        return builder.build();
+                .setParent(parent);
     }
 
 }
@@ -14,18 +14,20 @@
 
 package org.hammock.sync.internal.documentstore.helpers;
 
-import org.hammock.sync.documentstore.Attachment;
 import org.hammock.sync.documentstore.DocumentException;
 import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.internal.documentstore.AttachmentManager;
 import org.hammock.sync.internal.documentstore.AttachmentStreamFactory;
+import org.hammock.sync.internal.documentstore.DocumentRevisionBuilder;
 import org.hammock.sync.internal.documentstore.InternalDocumentRevision;
+import org.hammock.sync.internal.documentstore.SavedAttachment;
 import org.hammock.sync.internal.sqlite.Cursor;
 import org.hammock.sync.internal.sqlite.SQLDatabase;
 import org.hammock.sync.internal.util.DatabaseUtils;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -39,23 +41,32 @@ public class GetRevisionsFromRawQuery {
             AttachmentStreamFactory attachmentStreamFactory)
             throws DocumentException, DocumentStoreException {
 
-        List<InternalDocumentRevision> result = new ArrayList<InternalDocumentRevision>();
+        List<DocumentRevisionBuilder> builders = new ArrayList<DocumentRevisionBuilder>();
+        List<Long> sequences = new ArrayList<Long>();
         Cursor cursor = null;
 
         try {
-            cursor = db.rawQuery(sql, args);
+            cursor = db.rawQueryStreaming(sql, args);
             while (cursor.moveToNext()) {
-                long sequence = cursor.getLong(3);
-                Map<String, ? extends Attachment> atts = AttachmentManager.attachmentsForRevision(
-                        db, attachmentsDir, attachmentStreamFactory, sequence);
-                InternalDocumentRevision row = GetFullRevisionFromCurrentCursor.get(cursor, atts);
-                result.add(row);
+                sequences.add(cursor.getLong(3));
+                builders.add(GetFullRevisionFromCurrentCursor.builder(cursor));
             }
         } catch (SQLException e) {
             throw new DocumentStoreException(e);
         } finally {
             DatabaseUtils.closeCursorQuietly(cursor);
         }
+
+        // Look up the attachments of all the rows together rather than querying per row
+        Map<Long, Map<String, SavedAttachment>> atts = AttachmentManager
+                .attachmentsForRevisions(db, attachmentsDir, attachmentStreamFactory, sequences);
+        List<InternalDocumentRevision> result = new ArrayList<InternalDocumentRevision>(builders
+                .size());
+        for (int i = 0; i < builders.size(); i++) {
+            Map<String, SavedAttachment> rowAtts = atts.get(sequences.get(i));
+            result.add(builders.get(i).setAttachments(rowAtts != null ? rowAtts : Collections
+                    .<String, SavedAttachment>emptyMap()).build());
+        }
         return result;
     }
 }
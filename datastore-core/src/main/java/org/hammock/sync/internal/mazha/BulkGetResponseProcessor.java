@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.mazha;
+
+import org.hammock.sync.internal.documentstore.DocumentRevsList;
+import org.hammock.sync.internal.util.JSONUtils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Reads the response from the {@code _bulk_get} endpoint, which looks like:
+ * </p>
+ * <pre>
+ * {
+ *   "results": [
+ *     { "id": "a", "docs": [ { "ok": { "_id": "a", "_rev": "2-x", ... } } ] },
+ *     { "id": "a", "docs": [ { "ok": { "_id": "a", "_rev": "2-y", ... } } ] },
+ *     { "id": "b", "docs": [ { "error": { "id": "b", "rev": "1-z", ... } } ] }
+ *   ]
+ * }
+ * </pre>
+ * <p>
+ * The response is walked token by token and each {@code ok} revision is bound to a
+ * {@link DocumentRevs} as soon as it has been read, so the response text and the {@code error}
+ * entries are never held in memory. The revisions are grouped so that there is one
+ * {@link DocumentRevsList} per document ID, in the order the IDs first appear in the response.
+ * </p>
+ * <p>
+ * Because the revisions of one document can appear anywhere in the response, the bound
+ * {@link DocumentRevs}, including any inline attachment data, are all held in memory until the
+ * whole response has been read. Memory use therefore grows with the number and size of the
+ * revisions requested, so callers should keep each {@code _bulk_get} request to a bounded batch.
+ * </p>
+ */
+class BulkGetResponseProcessor implements CouchClient.InputStreamProcessor<List<DocumentRevsList>> {
+
+    @Override
+    public List<DocumentRevsList> processStream(InputStream stream) throws IOException {
+        JsonParser parser = JSONUtils.createParser(new InputStreamReader(stream, Charset
+                .forName("UTF-8")));
+        try {
+            Map<String, List<DocumentRevs>> revsMap = new LinkedHashMap<String,
+                    List<DocumentRevs>>();
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("results".equals(field)) {
+                    expect(parser, value, JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readResult(parser, revsMap);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            List<DocumentRevsList> allRevs = new ArrayList<DocumentRevsList>(revsMap.size());
+            for (List<DocumentRevs> revs : revsMap.values()) {
+                allRevs.add(new DocumentRevsList(revs));
+            }
+            return allRevs;
+        } finally {
+            parser.close();
+        }
+    }
+
+    // the parser is positioned on the START_OBJECT of one entry in "results"
+    private static void readResult(JsonParser parser, Map<String, List<DocumentRevs>> revsMap)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("docs".equals(field)) {
+                expect(parser, value, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readDoc(parser, revsMap);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    // the parser is positioned on the START_OBJECT of one entry in "docs"
+    private static void readDoc(JsonParser parser, Map<String, List<DocumentRevs>> revsMap)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("ok".equals(field) && value == JsonToken.START_OBJECT) {
+                DocumentRevs revs = parser.readValueAs(DocumentRevs.class);
+                List<DocumentRevs> list = revsMap.get(revs.getId());
+                if (list == null) {
+                    list = new ArrayList<DocumentRevs>();
+                    revsMap.put(revs.getId(), list);
+                }
+                list.add(revs);
+            } else {
+                // "error" entries are revisions the server couldn't return, skip them
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws
+            IOException {
+        if (actual != expected) {
+            throw new IOException(String.format("Expected %s but found %s at %s in _bulk_get " +
+                    "response", expected, actual, parser.getCurrentLocation()));
+        }
+    }
+}
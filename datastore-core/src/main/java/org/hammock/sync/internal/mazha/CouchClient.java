@@ -404,7 +404,8 @@ private static int getAndroidApiLevel() throws ClassNotFoundException, NoSuchFie
         return options;
     }
 
-    private Map<String, Object> getParametrizedChangeFeedOptions(Object since, Integer limit) {
+    private Map<String, Object> getParametrizedChangeFeedOptions(Object since, Integer limit,
+                                                                 Long longpollTimeout) {
         Map<String, Object> options = getDefaultChangeFeedOptions();
         if (since != null) {
             options.put("since", since);
@@ -418,16 +419,37 @@ private static int getAndroidApiLevel() throws ClassNotFoundException, NoSuchFie
         } else {
             options.put("seq_interval", 1000);
         }
+        // longpoll: wait for a change to arrive when there are none after since
+        if (longpollTimeout != null) {
+            options.put("feed", "longpoll");
+            options.put("timeout", longpollTimeout);
+        }
         return options;
     }
 
     public ChangesResult changes(Object since, Integer limit) {
-        Map<String, Object> options = getParametrizedChangeFeedOptions(since, limit);
+        return changes(since, limit, null);
+    }
+
+    /**
+     * As {@link #changes(Object, Integer)}, but if {@code longpollTimeout} is not {@code null}
+     * and there are no changes after {@code since}, the server waits up to
+     * {@code longpollTimeout} milliseconds for one before responding.
+     */
+    public ChangesResult changes(Object since, Integer limit, Long longpollTimeout) {
+        Map<String, Object> options = getParametrizedChangeFeedOptions(since, limit,
+                longpollTimeout);
         return this.changesRequestWithGet(options);
     }
 
     public ChangesResult changes(PullFilter filter, Object since, Integer limit) {
-        Map<String, Object> options = getParametrizedChangeFeedOptions(since, limit);
+        return changes(filter, since, limit, null);
+    }
+
+    public ChangesResult changes(PullFilter filter, Object since, Integer limit,
+                                 Long longpollTimeout) {
+        Map<String, Object> options = getParametrizedChangeFeedOptions(since, limit,
+                longpollTimeout);
         if (filter != null) {
             String filterName = filter.getName();
             Map filterParameters = filter.getParameters();
@@ -442,18 +464,30 @@ private static int getAndroidApiLevel() throws ClassNotFoundException, NoSuchFie
     }
 
     public ChangesResult changes(String selector, Object since, Integer limit) {
+        return changes(selector, since, limit, null);
+    }
+
+    public ChangesResult changes(String selector, Object since, Integer limit,
+                                 Long longpollTimeout) {
         Misc.checkNotNullOrEmpty(selector, null);
 
-        Map<String, Object> options = getParametrizedChangeFeedOptions(since, limit);
+        Map<String, Object> options = getParametrizedChangeFeedOptions(since, limit,
+                longpollTimeout);
         options.put("filter", "_selector");
 
         return changesRequestWithPost(selector, options);
     }
 
     public ChangesResult changes(List<String> docIds, Object since, Integer limit) {
+        return changes(docIds, since, limit, null);
+    }
+
+    public ChangesResult changes(List<String> docIds, Object since, Integer limit,
+                                 Long longpollTimeout) {
         Misc.checkState((docIds != null && !docIds.isEmpty()), null);
 
-        Map<String, Object> options = getParametrizedChangeFeedOptions(since, limit);
+        Map<String, Object> options = getParametrizedChangeFeedOptions(since, limit,
+                longpollTimeout);
         options.put("filter", "_doc_ids");
 
         Map<String, Object> docIdsMap = new HashMap<String, Object>();
@@ -519,9 +553,94 @@ private static int getAndroidApiLevel() throws ClassNotFoundException, NoSuchFie
         if (acceptGzip) {
             connection.requestProperties.put("Accept-Encoding", "gzip");
         }
+        if (processor instanceof ResumableInputStreamProcessor) {
+            return executeWithResume(connection, (ResumableInputStreamProcessor<T>) processor);
+        }
         return executeWithRetry(connection, processor);
     }
 
+    // execute HTTP GET with retries, asking for only the part of the response which the
+    // processor has not already processed when retrying after a failure part way through
+    <T> T executeWithResume(final HttpConnection connection,
+                            final ResumableInputStreamProcessor<T> processor) throws
+            CouchException {
+        connection.requestProperties.put("Accept", "application/json");
+        connection.responseInterceptors.addAll(responseInterceptors);
+        connection.requestInterceptors.addAll(requestInterceptors);
+        boolean processed = false;
+        try {
+            T result = this.executeWithRetry(new Callable<ExecuteResult>() {
+                @Override
+                public ExecuteResult call() throws Exception {
+                    return executeFromOffset(connection, processor);
+                }
+            }, processor);
+            processed = true;
+            return result;
+        } finally {
+            if (!processed) {
+                // don't leave partially processed data behind
+                processor.discard();
+            }
+        }
+    }
+
+    // - if nothing has been processed yet, get the whole response
+    // - otherwise ask for the rest of it with a Range header
+    // - if the server sends the whole response (200), or can't satisfy the range (416) or sends
+    //   a different range, start again from the beginning
+    private ExecuteResult executeFromOffset(HttpConnection connection,
+                                            ResumableInputStreamProcessor<?> processor) {
+        long offset = processor.getBytesProcessed();
+        if (offset <= 0) {
+            connection.requestProperties.remove("Range");
+            return execute(connection);
+        }
+        connection.requestProperties.put("Range", String.format("bytes=%d-", offset));
+        ExecuteResult result = execute(connection);
+        int responseCode = -1;
+        try {
+            responseCode = connection.getConnection().getResponseCode();
+        } catch (IOException e) {
+            // leave the processed data in place for the next retry
+            return result;
+        }
+        if (responseCode == 206 && offset == getContentRangeStart(connection)) {
+            logger.fine(String.format("Resuming response from byte %d", offset));
+            return result;
+        } else if (responseCode == 200) {
+            logger.fine("Server sent the whole response, restarting from the beginning");
+            processor.discard();
+            return result;
+        } else if (responseCode == 206 || responseCode == 416) {
+            logger.fine(String.format("Server could not resume response from byte %d, " +
+                    "restarting from the beginning", offset));
+            IOUtils.closeQuietly(result.stream);
+            processor.discard();
+            connection.requestProperties.remove("Range");
+            return execute(connection);
+        }
+        // any other error, the processed data is kept for the next retry
+        return result;
+    }
+
+    // the first byte position of a "Content-Range: bytes first-last/length" header, or -1
+    static long getContentRangeStart(HttpConnection connection) {
+        String contentRange = connection.getConnection().getHeaderField("Content-Range");
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int end = contentRange.indexOf('-');
+        if (end < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring("bytes ".length(), end).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     public void putAttachmentStream(String id, String rev, String attachmentName, String
             contentType, byte[] attachmentData) {
         Misc.checkNotNullOrEmpty(id, "id");
@@ -617,32 +736,8 @@ private static int getAndroidApiLevel() throws ClassNotFoundException, NoSuchFie
         jsonRequest.put("docs", request);
         // build request
         connection.setRequestBody(JSONUtils.toJson(jsonRequest));
-        // deserialise response
-        BulkGetResponse response = executeToJsonObjectWithRetry(connection, BulkGetResponse.class);
-
-        Map<String, ArrayList<DocumentRevs>> revsMap = new HashMap<String,
-                ArrayList<DocumentRevs>>();
-
-        // merge results back in, so there is one list of DocumentRevs per ID
-        for (BulkGetResponse.Result result : response.results) {
-            for (BulkGetResponse.Doc doc : result.docs) {
-                if (doc.ok != null) {
-                    String id = doc.ok.getId();
-                    if (!revsMap.containsKey(id)) {
-                        revsMap.put(id, new ArrayList<DocumentRevs>());
-                    }
-                    revsMap.get(id).add(doc.ok);
-                }
-            }
-        }
-
-        List<DocumentRevsList> allRevs = new ArrayList<DocumentRevsList>();
-
-        // flatten out revsMap hash so that there is one entry in our return array for each ID
-        for (ArrayList<DocumentRevs> value : revsMap.values()) {
-            allRevs.add(new DocumentRevsList(value));
-        }
-        return allRevs;
+        // stream the response, binding each revision as it is read
+        return executeWithRetry(connection, new BulkGetResponseProcessor());
     }
 
     public Map<String, Object> getDocument(String id) {
@@ -894,6 +989,33 @@ private static int getAndroidApiLevel() throws ClassNotFoundException, NoSuchFie
         T processStream(InputStream stream) throws Exception;
     }
 
+    /**
+     * <p>
+     * An {@link InputStreamProcessor} which keeps what it has processed when reading the stream
+     * fails part way through, so that it can be given the rest of the response rather than all
+     * of it when the request is retried.
+     * </p>
+     * <p>
+     * Each stream passed to {@link #processStream(InputStream)} starts at the byte following
+     * the last one processed, that is at {@link #getBytesProcessed()}. If the rest of the
+     * response can't be fetched, {@link #discard()} is called before the whole response is
+     * passed again.
+     * </p>
+     */
+    public interface ResumableInputStreamProcessor<T> extends InputStreamProcessor<T> {
+
+        /**
+         * @return the number of bytes of the response processed and kept so far
+         */
+        long getBytesProcessed();
+
+        /**
+         * Discards everything processed so far, so that the next stream starts from the
+         * beginning of the response.
+         */
+        void discard();
+    }
+
     private static class CouchClientTypeReference<T> extends TypeReference<T> {
 
         private Class<T> type;
@@ -15,6 +15,7 @@
 package org.hammock.sync.internal.query;
 
 import org.hammock.sync.documentstore.Database;
+import org.hammock.sync.documentstore.StorageProfile;
 import org.hammock.sync.documentstore.encryption.KeyProvider;
 import org.hammock.sync.internal.documentstore.DatabaseImpl;
 import org.hammock.sync.internal.documentstore.migrations.SchemaOnlyMigration;
@@ -90,13 +91,24 @@ public class QueryImpl implements Query {
      *  @param database The {@link Database} to index
      */
     public QueryImpl(Database database, File extensionsLocation, KeyProvider keyProvider) throws IOException, SQLException {
+        this(database, extensionsLocation, keyProvider, StorageProfile.DEFAULT);
+    }
+
+    /**
+     *  Constructs a new IndexManager which indexes documents in the DocumentStore, with its
+     *  index database tuned according to a {@link StorageProfile}.
+     *  @param database The {@link Database} to index
+     *  @param profile The PRAGMAs to apply to the index database connection
+     */
+    public QueryImpl(Database database, File extensionsLocation, KeyProvider keyProvider,
+                     StorageProfile profile) throws IOException, SQLException {
         this.database = database;
         validFieldName = Pattern.compile(QueryConstants.INDEX_FIELD_NAME_PATTERN);
 
         File indexesLocation = new File(extensionsLocation, QueryConstants.EXTENSION_NAME);
         File indexesDatabaseFile = new File(indexesLocation, QueryConstants.DB_FILE_NAME);
 
-        dbQueue = new SQLDatabaseQueue(indexesDatabaseFile, keyProvider);
+        dbQueue = new SQLDatabaseQueue(indexesDatabaseFile, keyProvider, profile, 0);
         dbQueue.updateSchema(new SchemaOnlyMigration(QueryConstants.getSchemaVersion1()), 1);
         dbQueue.updateSchema(new SchemaOnlyMigration(QueryConstants.getSchemaVersion2()), 2);
 
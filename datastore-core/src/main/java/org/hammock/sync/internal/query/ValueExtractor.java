@@ -58,7 +58,7 @@ public class ValueExtractor {
         List<String> path = new ArrayList<String>(Arrays.asList(fields));
         String lastSegment = path.remove(path.size() - 1);
 
-        Map<String, Object> currentLevel = body.asMap();
+        Map<String, Object> currentLevel = body.asReadOnlyMap();
         for (String field: path) {
             Object map = currentLevel.get(field);
             if (map != null && map instanceof Map) {
@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.replication;
+
+import org.hammock.sync.http.HttpConnectionInterceptorContext;
+import org.hammock.sync.http.HttpConnectionResponseInterceptor;
+import org.hammock.sync.internal.util.Misc;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Chooses how many documents a replication puts in each batch, between fixed bounds, from how
+ * the previous batches went.
+ * </p>
+ * <p>
+ * After a full batch which finished in well under {@link #targetBatchMillis} the size grows by a
+ * quarter. After a batch which took longer than that, came to more than
+ * {@link #maxBatchBytes}, was throttled with a 429 response or left the heap short of free space,
+ * it shrinks by up to a half. Growing slowly and shrinking quickly means a database with both
+ * tiny and very large documents settles on small batches while the large ones are being
+ * replicated and recovers once they have passed.
+ * </p>
+ * <p>
+ * Instances are also response interceptors so that they see 429 responses, including those
+ * which a {@link org.hammock.sync.http.interceptors.Replay429Interceptor} goes on to replay,
+ * so they should be placed ahead of any such interceptor.
+ * </p>
+ */
+public class AdaptiveBatchSize implements HttpConnectionResponseInterceptor {
+
+    private static final Logger logger = Logger.getLogger(AdaptiveBatchSize.class.getName());
+
+    public static final long DEFAULT_TARGET_BATCH_MILLIS = 2000;
+
+    public static final long DEFAULT_MAX_BATCH_BYTES = 4 * 1024 * 1024;
+
+    // The fraction of the maximum heap size below which free space counts as running short
+    private static final double MIN_FREE_HEAP_FRACTION = 0.2;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final long targetBatchMillis;
+
+    private final long maxBatchBytes;
+
+    private final AtomicInteger throttled = new AtomicInteger();
+
+    private int size;
+
+    /**
+     * @param minSize the smallest batch size to use, at least 1
+     * @param maxSize the largest batch size to use, at least {@code minSize}
+     * @param initialSize the batch size to start with, which is brought within the bounds
+     */
+    public AdaptiveBatchSize(int minSize, int maxSize, int initialSize) {
+        this(minSize, maxSize, initialSize, DEFAULT_TARGET_BATCH_MILLIS, DEFAULT_MAX_BATCH_BYTES);
+    }
+
+    /**
+     * @param minSize the smallest batch size to use, at least 1
+     * @param maxSize the largest batch size to use, at least {@code minSize}
+     * @param initialSize the batch size to start with, which is brought within the bounds
+     * @param targetBatchMillis how long a batch should take
+     * @param maxBatchBytes how large the documents in a batch should be at most, in total
+     */
+    public AdaptiveBatchSize(int minSize, int maxSize, int initialSize, long targetBatchMillis,
+                             long maxBatchBytes) {
+        Misc.checkArgument(minSize > 0, "minSize must be greater than 0");
+        Misc.checkArgument(maxSize >= minSize, "maxSize must not be less than minSize");
+        Misc.checkArgument(targetBatchMillis > 0, "targetBatchMillis must be greater than 0");
+        Misc.checkArgument(maxBatchBytes > 0, "maxBatchBytes must be greater than 0");
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetBatchMillis = targetBatchMillis;
+        this.maxBatchBytes = maxBatchBytes;
+        this.size = clamp(initialSize);
+    }
+
+    /**
+     * @return the number of documents to put in the next batch
+     */
+    public synchronized int get() {
+        return this.size;
+    }
+
+    /**
+     * Records how a batch went and adjusts the size of the batches which follow it.
+     *
+     * @param documents the number of documents in the batch
+     * @param bytes the total size of the documents in the batch, or a negative number if it
+     *              isn't known
+     * @param millis how long the batch took
+     */
+    public synchronized void batchCompleted(int documents, long bytes, long millis) {
+        int next;
+        if (this.throttled.getAndSet(0) > 0 || isHeapShort()) {
+            next = this.size / 2;
+        } else if (millis > this.targetBatchMillis || bytes > this.maxBatchBytes) {
+            // shrink towards the size which would have met both targets
+            double scale = Math.min((double) this.targetBatchMillis / Math.max(millis, 1),
+                    bytes > 0 ? (double) this.maxBatchBytes / bytes : 1.0);
+            next = (int) (this.size * Math.max(Math.min(scale, 1.0), 0.5));
+        } else if (millis < this.targetBatchMillis / 2 && documents >= this.size) {
+            next = this.size + Math.max(1, this.size / 4);
+        } else {
+            next = this.size;
+        }
+        next = clamp(next);
+        if (next != this.size) {
+            logger.log(Level.FINE, String.format("Batch of %d documents, %d bytes took %d ms, " +
+                    "changing batch size from %d to %d", documents, bytes, millis, this.size,
+                    next));
+            this.size = next;
+        }
+    }
+
+    @Override
+    public HttpConnectionInterceptorContext interceptResponse(HttpConnectionInterceptorContext
+                                                                      context) {
+        try {
+            if (context.connection.getConnection().getResponseCode() == 429) {
+                this.throttled.incrementAndGet();
+            }
+        } catch (IOException e) {
+            // no response to look at, the request's own error handling deals with it
+        }
+        return context;
+    }
+
+    private int clamp(int size) {
+        return Math.min(this.maxSize, Math.max(this.minSize, size));
+    }
+
+    private static boolean isHeapShort() {
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return free < runtime.maxMemory() * MIN_FREE_HEAP_FRACTION;
+    }
+}
@@ -21,14 +21,20 @@ import org.hammock.sync.internal.mazha.CouchClient;
 
 import java.io.InputStream;
 
+/**
+ * Copies a pulled attachment's data to a temporary location, ready to be added to the
+ * DocumentStore. If the download fails part way through, the data already copied is kept so
+ * the download can resume from where it stopped.
+ */
 public class AttachmentPullProcessor implements CouchClient
-        .InputStreamProcessor<PreparedAttachment> {
+        .ResumableInputStreamProcessor<PreparedAttachment> {
 
     private final DatastoreWrapper datastoreWrapper;
     private final String contentType;
     private final Attachment.Encoding encoding;
     private final long length;
     private final long encodedLength;
+    private PreparedAttachment.Writer writer = null;
 
     AttachmentPullProcessor(DatastoreWrapper wrapper, String name, String contentType, String
             encoding, long length, long encodedLength) {
@@ -40,10 +46,32 @@ public class AttachmentPullProcessor implements CouchClient
     }
 
     @Override
-    public PreparedAttachment processStream(InputStream stream) throws AttachmentException {
+    public PreparedAttachment processStream(InputStream stream) throws Exception {
+        if (writer == null) {
+            writer = datastoreWrapper.createAttachmentWriter();
+        }
+        // continues from the data written by any earlier attempts
+        writer.write(stream);
+        PreparedAttachment.Writer written = writer;
+        writer = null;
         UnsavedStreamAttachment usa = new UnsavedStreamAttachment(stream, contentType, encoding);
-        PreparedAttachment attachment = datastoreWrapper.prepareAttachment(usa, length,
-                encodedLength);
-        return attachment;
+        try {
+            return datastoreWrapper.prepareAttachment(usa, written, length, encodedLength);
+        } catch (AttachmentException e) {
+            written.discard();
+            throw e;
+        }
+    }
+
+    @Override
+    public long getBytesProcessed() {
+        return (writer == null) ? 0 : writer.getBytesWritten();
+    }
+
+    @Override
+    public void discard() {
+        if (writer != null) {
+            writer.discard();
+        }
     }
 }
@@ -159,6 +159,36 @@ public class CouchClientWrapper implements CouchDB {
         }
     }
 
+    @Override
+    public ChangesResult changes(PullFilter filter, Object lastSequence, int limit, long
+            longpollTimeout) {
+        if (filter == null) {
+            return couchClient.changes(lastSequence, limit, longpollTimeout);
+        } else {
+            return couchClient.changes(filter, lastSequence, limit, longpollTimeout);
+        }
+    }
+
+    @Override
+    public ChangesResult changes(String selector, Object lastSequence, int limit, long
+            longpollTimeout) {
+        if (selector == null) {
+            return couchClient.changes(lastSequence, limit, longpollTimeout);
+        } else {
+            return couchClient.changes(selector, lastSequence, limit, longpollTimeout);
+        }
+    }
+
+    @Override
+    public ChangesResult changes(List<String> docIds, Object lastSequence, int limit, long
+            longpollTimeout) {
+        if (docIds == null || docIds.isEmpty()) {
+            return couchClient.changes(lastSequence, limit, longpollTimeout);
+        } else {
+            return couchClient.changes(docIds, lastSequence, limit, longpollTimeout);
+        }
+    }
+
     @Override
     public Iterable<DocumentRevsList> bulkGetRevisions(List<BulkGetRequest> requests,
                                                        boolean pullAttachmentsInline) {
@@ -51,6 +51,16 @@ interface CouchDB {
     ChangesResult changes(PullFilter filter, Object lastSequence, int limit);
     ChangesResult changes(String selector, Object lastSequence, int limit);
     ChangesResult changes(List<String> docIds, Object lastSequence, int limit);
+
+    /**
+     * As the other {@code changes} methods, but if there are no changes after
+     * {@code lastSequence} the response is held for up to {@code longpollTimeout} milliseconds
+     * waiting for one.
+     */
+    ChangesResult changes(PullFilter filter, Object lastSequence, int limit, long longpollTimeout);
+    ChangesResult changes(String selector, Object lastSequence, int limit, long longpollTimeout);
+    ChangesResult changes(List<String> docIds, Object lastSequence, int limit, long longpollTimeout);
+
     List<DocumentRevs> getRevisions(String documentId,
                                            Collection<String> revisionIds,
                                            Collection<String> attsSince,
@@ -25,6 +25,7 @@ import org.hammock.sync.documentstore.DocumentRevision;
 import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.documentstore.LocalDocument;
 import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.documentstore.DocumentRevisionKey;
 import org.hammock.sync.internal.documentstore.DocumentRevisionTree;
 import org.hammock.sync.internal.documentstore.DocumentRevsList;
 import org.hammock.sync.internal.documentstore.DocumentRevsUtils;
@@ -113,7 +114,7 @@ class DatastoreWrapper {
     }
 
 
-    public void bulkInsert(DocumentRevsList documentRevsList, Map<String[],Map<String, PreparedAttachment>> preparedAttachments, boolean pullAttachmentsInline) throws DocumentException  {
+    public void bulkInsert(DocumentRevsList documentRevsList, Map<DocumentRevisionKey, Map<String, PreparedAttachment>> preparedAttachments, boolean pullAttachmentsInline) throws DocumentException  {
         for(DocumentRevs documentRevs: documentRevsList) {
             logger.log(Level.FINEST,"Bulk inserting document revs: %s",documentRevs);
 
@@ -126,19 +127,38 @@ class DatastoreWrapper {
         }
     }
 
-    Map<String, DocumentRevisionTree> getDocumentTrees(List<DocumentRevision> documents) {
-        Map<String, DocumentRevisionTree> allDocumentTrees =
-                new HashMap<String, DocumentRevisionTree>();
-        for(DocumentRevision doc: documents) {
-            DocumentRevisionTree tree =
-                    this.dbCore.getAllRevisionsOfDocument(doc.getId());
-            allDocumentTrees.put(doc.getId(), tree);
+    /**
+     * Returns the revision trees of {@code documents}, keyed by document ID. The revisions in
+     * the trees only have their metadata, not their bodies or attachments.
+     */
+    Map<String, DocumentRevisionTree> getDocumentTrees(List<DocumentRevision> documents) throws
+            DocumentStoreException {
+        List<String> docIds = new ArrayList<String>(documents.size());
+        for (DocumentRevision doc : documents) {
+            docIds.add(doc.getId());
         }
-        return allDocumentTrees;
+        return this.dbCore.getRevisionTreesMetadata(docIds);
+    }
+
+    /**
+     * Returns the full content of a revision, including its body and attachments.
+     */
+    InternalDocumentRevision getRevision(String docId, String revId) throws
+            DocumentNotFoundException, DocumentStoreException {
+        return this.dbCore.read(docId, revId);
     }
 
     protected PreparedAttachment prepareAttachment(Attachment att, long length, long encodedLength) throws AttachmentException {
         return this.dbCore.prepareAttachment(att, length, encodedLength);
     }
 
+    protected PreparedAttachment.Writer createAttachmentWriter() throws AttachmentException {
+        return this.dbCore.createAttachmentWriter();
+    }
+
+    protected PreparedAttachment prepareAttachment(Attachment att, PreparedAttachment.Writer
+            writer, long length, long encodedLength) throws AttachmentException {
+        return this.dbCore.prepareAttachment(att, writer, length, encodedLength);
+    }
+
 }
@@ -23,6 +23,7 @@ import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -74,22 +75,29 @@ class GetRevisionTaskThreaded implements Iterable<DocumentRevsList> {
     private static final Logger logger = Logger.getLogger(GetRevisionTaskThreaded.class
             .getCanonicalName());
 
-    // this should be a sensible number of threads but we may make this configurable in future
+    // The number of requests made at once by default. Each is a network round trip rather than
+    // CPU bound work, so this doesn't depend on the number of processors.
+    static final int DEFAULT_CONCURRENT_REQUESTS = 16;
+
     private static final int threads = Runtime.getRuntime().availableProcessors() * 2;
-    private static final ThreadPoolExecutor executorService;
-
-    static {
-        // A static thread pool allows it to be shared between all tasks, reducing the overheads of
-        // thread creation and destruction, but at the expense of sharing threads between all
-        // replications (within the classloader/android application).
-        // On a large number of batches this offers a 4-5% improvement over creating a thread pool
-        // for each task instance.
-        ThreadPoolExecutor tpe = new ThreadPoolExecutor(threads, threads, 1,
-                TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>());
-        // Allowing core threads to timeout means we don't keep threads in memory except when
-        // replication tasks are running.
-        tpe.allowCoreThreadTimeOut(true);
-        executorService = tpe;
+    private static ThreadPoolExecutor sharedExecutorService;
+
+    // Used by tasks which aren't given an executor to run their requests on
+    private static synchronized ExecutorService sharedExecutorService() {
+        if (sharedExecutorService == null) {
+            // A static thread pool allows it to be shared between all tasks, reducing the
+            // overheads of thread creation and destruction, but at the expense of sharing
+            // threads between all replications (within the classloader/android application).
+            // On a large number of batches this offers a 4-5% improvement over creating a thread
+            // pool for each task instance.
+            ThreadPoolExecutor tpe = new ThreadPoolExecutor(threads, threads, 1,
+                    TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>());
+            // Allowing core threads to timeout means we don't keep threads in memory except when
+            // replication tasks are running.
+            tpe.allowCoreThreadTimeOut(true);
+            sharedExecutorService = tpe;
+        }
+        return sharedExecutorService;
     }
 
     // members used to make requests:
@@ -108,8 +116,26 @@ class GetRevisionTaskThreaded implements Iterable<DocumentRevsList> {
     public GetRevisionTaskThreaded(CouchDB sourceDb,
                                    List<BulkGetRequest> requests,
                                    boolean pullAttachmentsInline) {
+        this(sourceDb, requests, pullAttachmentsInline, sharedExecutorService(), threads + 1);
+    }
+
+    /**
+     * @param executorService the executor to make the requests on, which may be shared with
+     *                        other tasks
+     * @param concurrentRequests the most requests this task has submitted to
+     *                           {@code executorService} at once. Tasks sharing an executor each
+     *                           keep only this many requests queued, so a task with many
+     *                           requests can't hold up the others' behind all of its own.
+     */
+    public GetRevisionTaskThreaded(CouchDB sourceDb,
+                                   List<BulkGetRequest> requests,
+                                   boolean pullAttachmentsInline,
+                                   ExecutorService executorService,
+                                   int concurrentRequests) {
         Misc.checkNotNull(sourceDb, "sourceDb");
         Misc.checkNotNull(requests, "requests");
+        Misc.checkNotNull(executorService, "executorService");
+        Misc.checkArgument(concurrentRequests > 0, "concurrentRequests must be greater than 0");
         for (BulkGetRequest request : requests) {
             Misc.checkNotNull(request.id, "id");
             Misc.checkNotNull(request.revs, "revs");
@@ -119,7 +145,7 @@ class GetRevisionTaskThreaded implements Iterable<DocumentRevsList> {
         this.requests.addAll(requests);
         this.pullAttachmentsInline = pullAttachmentsInline;
         this.completionService = new QueuingExecutorCompletionService<BulkGetRequest,
-                DocumentRevsList>(executorService, this.requests, threads + 1) {
+                DocumentRevsList>(executorService, this.requests, concurrentRequests) {
             @Override
             public DocumentRevsList executeRequest(BulkGetRequest request) {
                 // since this is part of a thread pool, we'll rename each thread as it takes a task.
@@ -24,12 +24,12 @@ import org.hammock.sync.internal.documentstore.DatabaseImpl;
 import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.documentstore.DocumentException;
 import org.hammock.sync.event.EventBus;
+import org.hammock.sync.internal.documentstore.DocumentRevisionKey;
 import org.hammock.sync.internal.documentstore.DocumentRevsList;
 import org.hammock.sync.internal.documentstore.PreparedAttachment;
 import org.hammock.sync.internal.mazha.ChangesResult;
 import org.hammock.sync.internal.mazha.CouchClient;
 import org.hammock.sync.internal.mazha.DocumentRevs;
-import org.hammock.sync.internal.util.CollectionUtils;
 import org.hammock.sync.internal.util.JSONUtils;
 import org.hammock.sync.internal.util.Misc;
 import org.hammock.sync.replication.DatabaseNotFoundException;
@@ -45,10 +45,23 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -68,7 +81,14 @@ public class PullStrategy implements ReplicationStrategy {
 
         int documentCounter = 0;
 
-        int batchCounter = 0;
+        // Volatile as it is incremented by the thread fetching changes
+        volatile int batchCounter = 0;
+
+        // Makes this replication's open_revs requests when revisionFetchExecutor isn't set
+        ExecutorService revisionFetchPool = null;
+
+        // Downloads this replication's attachments when they aren't pulled inline
+        ExecutorService attachmentFetchPool = null;
     }
 
     private State state;
@@ -97,8 +117,34 @@ public class PullStrategy implements ReplicationStrategy {
 
     public int insertBatchSize = 100;
 
+    // When set, chooses the number of documents in each insert batch instead of insertBatchSize
+    public AdaptiveBatchSize insertBatchSizing = null;
+
     public boolean pullAttachmentsInline = false;
 
+    public int pipelineDepth = 1;
+
+    // The number of open_revs requests to make at once when the source doesn't support _bulk_get
+    public int revisionFetchConcurrency = GetRevisionTaskThreaded.DEFAULT_CONCURRENT_REQUESTS;
+
+    // When set, open_revs requests are made on this executor, which may be shared with other
+    // replications, rather than on threads of this replication's own
+    public ExecutorService revisionFetchExecutor = null;
+
+    // The number of attachments to download at once when they aren't pulled inline
+    public int attachmentFetchConcurrency = 4;
+
+    // Keep replicating changes as they arrive until cancelled, rather than stopping once
+    // caught up
+    public boolean continuous = false;
+
+    // How long, in milliseconds, each request for changes waits for one to arrive once a
+    // continuous replication has caught up
+    public long longpollTimeout = 60000;
+
+    // How often a stage waiting for input checks whether the replication has been cancelled
+    private static final long STAGE_POLL_INTERVAL_MS = 100;
+
     public PullStrategy(URI source,
                         Database target,
                         PullFilter filter,
@@ -219,9 +265,7 @@ public class PullStrategy implements ReplicationStrategy {
         }
     }
 
-    private void replicate()
-            throws DatabaseNotFoundException, ExecutionException, InterruptedException,
-            DocumentException, DocumentStoreException {
+    private void replicate() throws Exception {
         logger.info("Pull replication started");
         long startTime = System.currentTimeMillis();
 
@@ -237,57 +281,89 @@ public class PullStrategy implements ReplicationStrategy {
 
         this.state.documentCounter = 0;
 
-        while (!this.state.cancel) {
-            this.state.batchCounter++;
-            final Object lastKnownCheckpoint = this.targetDb.getCheckpoint(this.getReplicationId());
-            String msg = String.format(
-                    "Batch %s started (completed %s changes so far)",
-                    this.state.batchCounter,
-                    this.state.documentCounter
-            );
-            logger.info(msg);
-            long batchStartTime = System.currentTimeMillis();
+        // Changes are fetched, their revisions fetched and those revisions inserted by three
+        // stages connected by bounded queues, so the next batches are fetched while the current
+        // one is being written to the database.
+        Object lastCheckpoint = this.targetDb.getCheckpoint(this.getReplicationId());
+        BlockingQueue<PipelineItem> changesQueue = new ArrayBlockingQueue<PipelineItem>(this
+                .pipelineDepth);
+        BlockingQueue<PipelineItem> insertQueue = new ArrayBlockingQueue<PipelineItem>(this
+                .pipelineDepth);
+        ExecutorService stages = Executors.newFixedThreadPool(2, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, name + " - pipeline");
+            }
+        });
+        if (!this.useBulkGet && this.revisionFetchExecutor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(this.revisionFetchConcurrency,
+                    this.revisionFetchConcurrency, 1, TimeUnit.MINUTES,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            return new Thread(r, name + " - revisions");
+                        }
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.state.revisionFetchPool = pool;
+        }
+        if (!this.pullAttachmentsInline) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(this.attachmentFetchConcurrency,
+                    this.attachmentFetchConcurrency, 1, TimeUnit.MINUTES,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            return new Thread(r, name + " - attachments");
+                        }
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.state.attachmentFetchPool = pool;
+        }
+        try {
+            Future<Void> changesStage = stages.submit(changesStage(lastCheckpoint,
+                    changesQueue));
+            Future<Void> fetchStage = stages.submit(fetchStage(changesQueue, changesStage,
+                    insertQueue));
 
-            ChangesResultWrapper changeFeeds = this.nextBatch(lastKnownCheckpoint);
             int batchChangesProcessed = 0;
+            for (PipelineItem item = take(insertQueue, fetchStage); item != PipelineItem.END;
+                 item = take(insertQueue, fetchStage)) {
+                if (item.revisions != null) {
+                    this.targetDb.bulkInsert(item.revisions, this.pullAttachmentsInline);
+                    batchChangesProcessed += item.revisions.size();
+                    state.documentCounter += item.revisions.size();
+                    continue;
+                }
 
-            // So we can check whether all changes were processed during
-            // a log analysis.
-            msg = String.format(
-                    "Batch %s contains %s changes",
-                    this.state.batchCounter,
-                    changeFeeds.size()
-            );
-            logger.info(msg);
+                // All the revisions for this batch of changes have been inserted
+                Object lastSeq = item.changes.getLastSeq();
+                if (!this.state.cancel && (lastCheckpoint == null || !lastCheckpoint.equals
+                        (lastSeq))) {
+                    try {
+                        this.targetDb.putCheckpoint(this.getReplicationId(), lastSeq);
+                        lastCheckpoint = lastSeq;
+                    } catch (DocumentStoreException e) {
+                        logger.log(Level.WARNING, "Failed to put checkpoint doc, next " +
+                                "replication will start from previous checkpoint", e);
+                    }
+                }
 
-            if (changeFeeds.size() > 0) {
-                batchChangesProcessed = processOneChangesBatch(changeFeeds);
-                state.documentCounter += batchChangesProcessed;
+                logger.info(String.format(
+                        "Batch %s completed in %sms (batch was %s changes)",
+                        item.batch,
+                        System.currentTimeMillis() - item.startTime,
+                        batchChangesProcessed
+                ));
+                batchChangesProcessed = 0;
             }
-
-            if (!this.state.cancel && (lastKnownCheckpoint == null || !lastKnownCheckpoint.equals(changeFeeds.getLastSeq()))) {
-                try {
-                    this.targetDb.putCheckpoint(this.getReplicationId(), changeFeeds.getLastSeq());
-                } catch (DocumentStoreException e) {
-                    logger.log(Level.WARNING, "Failed to put checkpoint doc, next replication " +
-                            "will " +
-                            "start from previous checkpoint", e);
-                }
+        } finally {
+            // Stop any stages still fetching ahead if we were cancelled or failed
+            stages.shutdownNow();
+            if (this.state.revisionFetchPool != null) {
+                this.state.revisionFetchPool.shutdownNow();
             }
-
-            long batchEndTime = System.currentTimeMillis();
-            msg = String.format(
-                    "Batch %s completed in %sms (batch was %s changes)",
-                    this.state.batchCounter,
-                    batchEndTime - batchStartTime,
-                    batchChangesProcessed
-            );
-            logger.info(msg);
-
-            // This logic depends on the changes in the feed rather than the
-            // changes we actually processed.
-            if (changeFeeds.size() < this.changeLimitPerBatch) {
-                break;
+            if (this.state.attachmentFetchPool != null) {
+                this.state.attachmentFetchPool.shutdownNow();
             }
         }
 
@@ -313,88 +389,265 @@ public class PullStrategy implements ReplicationStrategy {
     public static class BatchItem {
 
         public BatchItem(DocumentRevsList revsList,
-                         HashMap<String[], Map<String, PreparedAttachment>> attachments) {
+                         HashMap<DocumentRevisionKey, Map<String, PreparedAttachment>> attachments) {
             this.revsList = revsList;
             this.attachments = attachments;
         }
 
-        public HashMap<String[], Map<String, PreparedAttachment>> attachments;
+        public HashMap<DocumentRevisionKey, Map<String, PreparedAttachment>> attachments;
         public DocumentRevsList revsList;
     }
 
-    private int processOneChangesBatch(ChangesResultWrapper changeFeeds)
-        throws ExecutionException, InterruptedException, DocumentException,
-        DocumentStoreException {
-    logChangeFeedInfo(changeFeeds);
+    /**
+     * A batch of changes passed between the stages of {@link #replicate()}, with a batch of the
+     * revisions fetched for those changes once they have been fetched.
+     */
+    private static class PipelineItem {
+
+        // Marks the end of a stage's output
+        static final PipelineItem END = new PipelineItem(0, 0, null, null);
+
+        final int batch;
+        final long startTime;
+        final ChangesResultWrapper changes;
+        final List<BatchItem> revisions;
+
+        PipelineItem(int batch, long startTime, ChangesResultWrapper changes,
+                     List<BatchItem> revisions) {
+            this.batch = batch;
+            this.startTime = startTime;
+            this.changes = changes;
+            this.revisions = revisions;
+        }
+
+        PipelineItem withRevisions(List<BatchItem> revisions) {
+            return new PipelineItem(batch, startTime, changes, revisions);
+        }
+    }
 
-    Map<String, List<String>> missingRevisions = getMissingRevisions(changeFeeds);
-    int changesProcessed = 0;
+    /**
+     * Fetches batches of changes starting from {@code since}, until a batch is smaller than
+     * {@link #changeLimitPerBatch}, or in {@link #continuous} mode until the replication is
+     * cancelled.
+     */
+    private Callable<Void> changesStage(final Object since,
+                                        final BlockingQueue<PipelineItem> out) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                Object lastSeq = since;
+                boolean caughtUp = false;
+                while (!state.cancel) {
+                    int batch = ++state.batchCounter;
+                    logger.info(String.format(
+                            "Batch %s started (completed %s changes so far)",
+                            batch,
+                            state.documentCounter
+                    ));
+                    long startTime = System.currentTimeMillis();
+                    ChangesResultWrapper changeFeeds = nextBatch(lastSeq, caughtUp);
+
+                    // So we can check whether all changes were processed during
+                    // a log analysis.
+                    logger.info(String.format(
+                            "Batch %s contains %s changes",
+                            batch,
+                            changeFeeds.size()
+                    ));
+                    out.put(new PipelineItem(batch, startTime, changeFeeds, null));
+
+                    // This logic depends on the changes in the feed rather than the
+                    // changes we actually processed.
+                    if (changeFeeds.size() < changeLimitPerBatch) {
+                        if (!continuous) {
+                            break;
+                        }
+                        // We have caught up, so from now on wait for further changes to
+                        // arrive, passing each response on as a batch of its own
+                        caughtUp = true;
+                    }
+                    lastSeq = changeFeeds.getLastSeq();
+                }
+                out.put(PipelineItem.END);
+                return null;
+            }
+        };
+    }
+
+    private int getInsertBatchSize() {
+        return this.insertBatchSizing != null ? this.insertBatchSizing.get() : this.insertBatchSize;
+    }
+
+    /**
+     * For each batch of changes, fetches the missing revisions in batches of
+     * {@link #insertBatchSize} documents, or as many as {@link #insertBatchSizing} chooses, followed by the batch of changes itself to mark that
+     * it can be checkpointed once they have all been inserted.
+     */
+    private Callable<Void> fetchStage(final BlockingQueue<PipelineItem> in,
+                                      final Future<Void> changesStage,
+                                      final BlockingQueue<PipelineItem> out) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (PipelineItem item = take(in, changesStage); item != PipelineItem.END;
+                     item = take(in, changesStage)) {
+                    ChangesResultWrapper changeFeeds = item.changes;
+                    if (changeFeeds.size() > 0) {
+                        logChangeFeedInfo(changeFeeds);
+                        Map<String, List<String>> missingRevisions = getMissingRevisions
+                                (changeFeeds);
+                        List<String> ids = new ArrayList<String>(missingRevisions.keySet());
+                        int from = 0;
+                        while (from < ids.size()) {
+                            // the size is chosen as each batch is cut, so it can follow the
+                            // batches before it
+                            int to = Math.min(ids.size(), from + getInsertBatchSize());
+                            List<String> batch = ids.subList(from, to);
+                            long start = System.currentTimeMillis();
+                            List<BatchItem> revisions = fetchBatch(batch, missingRevisions);
+                            if (insertBatchSizing != null) {
+                                // the size of the documents isn't known without serialising
+                                // them again, so the heap headroom check stands in for it
+                                insertBatchSizing.batchCompleted(batch.size(), -1,
+                                        System.currentTimeMillis() - start);
+                            }
+                            out.put(item.withRevisions(revisions));
+                            from = to;
+                            if (state.cancel) {
+                                break;
+                            }
+                        }
+                    }
+                    if (state.cancel) {
+                        break;
+                    }
+                    out.put(item);
+                }
+                out.put(PipelineItem.END);
+                return null;
+            }
+        };
+    }
 
-    List<String> ids = new ArrayList<>(missingRevisions.keySet());
-    List<List<String>> batches = CollectionUtils.partition(ids, this.insertBatchSize);
+    /**
+     * Takes the next item output by {@code stage}, rethrowing the exception the stage failed
+     * with if it fails before producing one. Returns {@link PipelineItem#END} once the
+     * replication has been cancelled.
+     */
+    private PipelineItem take(BlockingQueue<PipelineItem> queue, Future<Void> stage) throws
+            Exception {
+        while (!this.state.cancel) {
+            PipelineItem item = queue.poll(STAGE_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            } else if (stage.isDone()) {
+                try {
+                    stage.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw (Exception) cause;
+                }
+            }
+        }
+        return PipelineItem.END;
+    }
 
-    for (List<String> batch : batches) {
-        changesProcessed += processBatch(batch, missingRevisions);
+private List<BatchItem> fetchBatch(List<String> batch, Map<String, List<String>> missingRevisions) throws DocumentStoreException {
+    List<DocumentRevsList> revsLists = new ArrayList<>();
+    for (DocumentRevsList revsList : createTask(batch, missingRevisions)) {
         if (this.state.cancel) {
             break;
         }
+        revsLists.add(revsList);
     }
 
-    return changesProcessed;
-}
-
-private int processBatch(List<String> batch, Map<String, List<String>> missingRevisions) throws ExecutionException, InterruptedException, DocumentStoreException {
-    int changesProcessed = 0;
+    // the attachments are keyed by revision, so every item can share the batch's map
+    HashMap<DocumentRevisionKey, Map<String, PreparedAttachment>> atts = prepareAttachments(revsLists);
     List<BatchItem> batchesToInsert = new ArrayList<>();
-
-    try {
-        Iterable<DocumentRevsList> result = createTask(batch, missingRevisions);
-        for (DocumentRevsList revsList : result) {
-            if (this.state.cancel) {
-                break;
-            }
-            HashMap<String[], Map<String, PreparedAttachment>> atts = prepareAttachments(revsList);
-            batchesToInsert.add(new BatchItem(revsList, atts));
-            changesProcessed++;
-        }
-        this.targetDb.bulkInsert(batchesToInsert, this.pullAttachmentsInline);
-    } catch (Exception e) {
-        throw new ExecutionException(e);
+    for (DocumentRevsList revsList : revsLists) {
+        batchesToInsert.add(new BatchItem(revsList, atts));
     }
-    return changesProcessed;
+    return batchesToInsert;
 }
 
 
-private HashMap<String[], Map<String, PreparedAttachment>> prepareAttachments(DocumentRevsList revsList) {
-    HashMap<String[], Map<String, PreparedAttachment>> atts = new HashMap<>();
+/**
+ * Downloads the attachments of the revisions in {@code revsLists} which aren't already in the
+ * target database, {@link #attachmentFetchConcurrency} at a time.
+ */
+private HashMap<DocumentRevisionKey, Map<String, PreparedAttachment>> prepareAttachments(List<DocumentRevsList> revsLists) {
+    HashMap<DocumentRevisionKey, Map<String, PreparedAttachment>> atts = new HashMap<>();
     if (!this.pullAttachmentsInline) {
+        List<Future<PreparedAttachment>> downloads = new ArrayList<>();
         try {
-            for (DocumentRevs documentRevs : revsList) {
-                Map<String, Object> attachments = documentRevs.getAttachments();
-                Map<String, PreparedAttachment> preparedAtts = new HashMap<>();
-                atts.put(new String[]{documentRevs.getId(), documentRevs.getRev()}, preparedAtts);
-
-                for (Map.Entry<String, Object> entry : attachments.entrySet()) {
-                    if (shouldSkipAttachment(documentRevs, entry.getKey())) {
-                        continue;
+            // find the attachments we already have with one query for the whole batch
+            Map<DocumentRevisionKey, Set<String>> existing = this.targetDb.getDbCore()
+                    .getAttachmentNames(attachmentRevisions(revsLists));
+
+            List<Map<String, PreparedAttachment>> targets = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (DocumentRevsList revsList : revsLists) {
+                for (DocumentRevs documentRevs : revsList) {
+                    Map<String, Object> attachments = documentRevs.getAttachments();
+                    Map<String, PreparedAttachment> preparedAtts = new HashMap<>();
+                    atts.put(new DocumentRevisionKey(documentRevs.getId(), documentRevs.getRev()), preparedAtts);
+
+                    for (Map.Entry<String, Object> entry : attachments.entrySet()) {
+                        if (shouldSkipAttachment(documentRevs, entry.getKey(), existing)) {
+                            continue;
+                        }
+                        downloads.add(submitAttachmentDownload(documentRevs, entry));
+                        targets.add(preparedAtts);
+                        names.add(entry.getKey());
                     }
-                    PreparedAttachment preparedAttachment = prepareAttachment(documentRevs, entry);
-                    preparedAtts.put(entry.getKey(), preparedAttachment);
                 }
             }
 
+            for (int i = 0; i < downloads.size(); i++) {
+                try {
+                    targets.get(i).put(names.get(i), downloads.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
         } catch (Exception e) {
             logger.log(Level.SEVERE,
                     "There was a problem downloading an attachment to the" +
                             " datastore, terminating replication",
                     e);
             this.state.cancel = true;
+            for (Future<PreparedAttachment> download : downloads) {
+                download.cancel(true);
+            }
         }
     }
     return atts;
 }
 
-private boolean shouldSkipAttachment(DocumentRevs documentRevs, String attachmentName) throws DocumentStoreException {
+/**
+ * Returns the revisions in which the attachments of the revisions in {@code revsLists} were
+ * added, where those are in the revisions' histories.
+ */
+private static Set<DocumentRevisionKey> attachmentRevisions(List<DocumentRevsList> revsLists) {
+    Set<DocumentRevisionKey> revisions = new HashSet<>();
+    for (DocumentRevsList revsList : revsLists) {
+        for (DocumentRevs documentRevs : revsList) {
+            for (String attachmentName : documentRevs.getAttachments().keySet()) {
+                DocumentRevisionKey revision = attachmentRevision(documentRevs, attachmentName);
+                if (revision != null) {
+                    revisions.add(revision);
+                }
+            }
+        }
+    }
+    return revisions;
+}
+
+private static DocumentRevisionKey attachmentRevision(DocumentRevs documentRevs, String attachmentName) {
     Map<String, Object> attachmentMetadata = (Map) documentRevs.getAttachments().get(attachmentName);
     int revpos = (Integer) attachmentMetadata.get("revpos");
     DocumentRevs.Revisions revs = documentRevs.getRevisions();
@@ -402,14 +655,37 @@ private boolean shouldSkipAttachment(DocumentRevs documentRevs, String attachmen
 
     if (offset >= 0 && offset < revs.getIds().size()) {
         String revId = String.valueOf(revpos) + "-" + revs.getIds().get(offset);
-        Attachment a = this.targetDb.getDbCore().getAttachment(documentRevs.getId(), revId, attachmentName);
-        if (a != null) {
-            return true;
-        }
+        return new DocumentRevisionKey(documentRevs.getId(), revId);
+    }
+    return null;
+}
+
+private static boolean shouldSkipAttachment(DocumentRevs documentRevs, String attachmentName,
+                                            Map<DocumentRevisionKey, Set<String>> existing) {
+    DocumentRevisionKey revision = attachmentRevision(documentRevs, attachmentName);
+    if (revision != null) {
+        Set<String> names = existing.get(revision);
+        return names != null && names.contains(attachmentName);
     }
     return false;
 }
 
+private Future<PreparedAttachment> submitAttachmentDownload(final DocumentRevs documentRevs, final Map.Entry<String, Object> entry) {
+    Callable<PreparedAttachment> download = new Callable<PreparedAttachment>() {
+        @Override
+        public PreparedAttachment call() throws Exception {
+            return prepareAttachment(documentRevs, entry);
+        }
+    };
+    if (this.state.attachmentFetchPool == null) {
+        // not replicating, so there is no pool to download on
+        FutureTask<PreparedAttachment> task = new FutureTask<PreparedAttachment>(download);
+        task.run();
+        return task;
+    }
+    return this.state.attachmentFetchPool.submit(download);
+}
+
 private PreparedAttachment prepareAttachment(DocumentRevs documentRevs, Map.Entry<String, Object> entry) {
     Map attachmentMetadata = (Map) entry.getValue();
     String contentType = (String) attachmentMetadata.get("content_type");
@@ -467,22 +743,34 @@ private void logChangeFeedInfo(ChangesResultWrapper changeFeeds) {
         }
     }
 
-    private ChangesResultWrapper nextBatch(final Object lastCheckpoint) {
+    private ChangesResultWrapper nextBatch(final Object lastCheckpoint, boolean longpoll) {
         logger.fine("last checkpoint " + lastCheckpoint);
 
         ChangesResult changeFeeds = null;
         if (this.selector != null) {
-            changeFeeds = this.sourceDb.changes(
+            changeFeeds = longpoll ? this.sourceDb.changes(
+                    this.selector,
+                    lastCheckpoint,
+                    this.changeLimitPerBatch,
+                    this.longpollTimeout) : this.sourceDb.changes(
                     this.selector,
                     lastCheckpoint,
                     this.changeLimitPerBatch);
         } else if (this.docIds != null && !this.docIds.isEmpty()) {
-            changeFeeds = this.sourceDb.changes(
+            changeFeeds = longpoll ? this.sourceDb.changes(
+                    this.docIds,
+                    lastCheckpoint,
+                    this.changeLimitPerBatch,
+                    this.longpollTimeout) : this.sourceDb.changes(
                     this.docIds,
                     lastCheckpoint,
                     this.changeLimitPerBatch);
         } else {
-            changeFeeds = this.sourceDb.changes(
+            changeFeeds = longpoll ? this.sourceDb.changes(
+                    this.filter,
+                    lastCheckpoint,
+                    this.changeLimitPerBatch,
+                    this.longpollTimeout) : this.sourceDb.changes(
                     this.filter,
                     lastCheckpoint,
                     this.changeLimitPerBatch);
@@ -497,35 +785,39 @@ private void logChangeFeedInfo(ChangesResultWrapper changeFeeds) {
 
         List<BulkGetRequest> requests = new ArrayList<BulkGetRequest>();
 
+        // only the revisions of the documents in ids are fetched, which may be fewer than
+        // the documents in revisions
+        Map<String, List<String>> idRevisions = new LinkedHashMap<String, List<String>>();
         for (String id : ids) {
             //skip any document with an empty ID
             if (id.isEmpty()) {
                 logger.info("Found document with empty ID in change feed, skipping");
                 continue;
             }
-            // get list for atts_since (these are possible ancestors we have, it's ok to be eager
-
-            // and get all revision IDs higher up in the tree even if they're not our
-            // ancestors and
-            // belong to a different subtree)
-            HashSet<String> possibleAncestors = new HashSet<String>();
-            for (String revId : revisions.get(id)) {
-                List<String> thesePossibleAncestors = targetDb.getDbCore()
-                        .getPossibleAncestorRevisionIDs(id, revId, 50);
-                if (thesePossibleAncestors != null) {
-                    possibleAncestors.addAll(thesePossibleAncestors);
-                }
-            }
+            idRevisions.put(id, revisions.get(id));
+        }
+
+        // get lists for atts_since (these are possible ancestors we have, it's ok to be eager
+        // and get all revision IDs higher up in the tree even if they're not our ancestors and
+        // belong to a different subtree), looked up for all of the documents at once
+        Map<String, List<String>> possibleAncestors = targetDb.getDbCore()
+                .getPossibleAncestorRevisionIDs(idRevisions, 50);
+
+        for (Map.Entry<String, List<String>> entry : idRevisions.entrySet()) {
+            List<String> theseAncestors = possibleAncestors.get(entry.getKey());
             requests.add(new BulkGetRequest(
-                    id,
-                    new ArrayList<String>(revisions.get(id)),
-                    new ArrayList<String>(possibleAncestors)));
+                    entry.getKey(),
+                    new ArrayList<String>(entry.getValue()),
+                    theseAncestors != null ? theseAncestors : new ArrayList<String>()));
         }
 
         if (useBulkGet) {
             return new GetRevisionTaskBulk(this.sourceDb, requests, this.pullAttachmentsInline);
         } else {
-            return new GetRevisionTaskThreaded(this.sourceDb, requests, this.pullAttachmentsInline);
+            ExecutorService executor = this.revisionFetchExecutor != null ? this
+                    .revisionFetchExecutor : this.state.revisionFetchPool;
+            return new GetRevisionTaskThreaded(this.sourceDb, requests, this
+                    .pullAttachmentsInline, executor, this.revisionFetchConcurrency);
         }
     }
 
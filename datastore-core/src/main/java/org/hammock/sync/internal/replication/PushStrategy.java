@@ -20,6 +20,7 @@ import org.hammock.sync.documentstore.Attachment;
 import org.hammock.sync.documentstore.AttachmentException;
 import org.hammock.sync.documentstore.Changes;
 import org.hammock.sync.documentstore.Database;
+import org.hammock.sync.documentstore.DocumentException;
 import org.hammock.sync.documentstore.DocumentRevision;
 import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.event.EventBus;
@@ -30,7 +31,6 @@ import org.hammock.sync.internal.documentstore.InternalDocumentRevision;
 import org.hammock.sync.internal.documentstore.MultipartAttachmentWriter;
 import org.hammock.sync.internal.documentstore.RevisionHistoryHelper;
 import org.hammock.sync.internal.mazha.CouchClient;
-import org.hammock.sync.internal.util.CollectionUtils;
 import org.hammock.sync.internal.util.JSONUtils;
 import org.hammock.sync.internal.util.Misc;
 import org.hammock.sync.replication.DatabaseNotFoundException;
@@ -43,13 +43,20 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -70,6 +77,9 @@ public class PushStrategy implements ReplicationStrategy {
         private int documentCounter = 0;
 
         private int batchCounter = 0;
+
+        // Pushes batches of documents to the remote database
+        private ExecutorService workers;
     }
 
     private State state;
@@ -90,6 +100,11 @@ public class PushStrategy implements ReplicationStrategy {
 
     public int bulkInsertSize = 10;
 
+    public int bulkDocsConcurrency = 4;
+
+    // When set, chooses the number of documents in each batch instead of bulkInsertSize
+    public AdaptiveBatchSize bulkInsertSizing = null;
+
     public PushFilter filter = null;
 
     public PushAttachmentsInline pushAttachmentsInline = PushAttachmentsInline.Small;
@@ -203,22 +218,39 @@ public class PushStrategy implements ReplicationStrategy {
     }
 
     this.state.documentCounter = 0;
-    while (!this.state.cancel) {
-        this.state.batchCounter++;
-
-        replicateBatch(startTime);
+    this.state.workers = Executors.newFixedThreadPool(this.bulkDocsConcurrency,
+            new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, name + " - worker");
+        }
+    });
+    try {
+        // The remote checkpoint is only read once. After that each batch starts from the end of
+        // the previous one, which is the checkpoint this replication has written.
+        long lastPushSequence = getLastCheckpointSequence();
+        logger.fine("Last push sequence from remote database: " + lastPushSequence);
+        Changes changes = getNextBatch(lastPushSequence);
+        while (!this.state.cancel) {
+            this.state.batchCounter++;
 
+            replicateBatch(changes);
 
-        if (getNextBatch().getResults().size() == 0) {
-            break;
+            changes = getNextBatch(changes.getLastSequence());
+            if (changes.getResults().size() == 0) {
+                break;
+            }
         }
+    } finally {
+        // Stop any batches still being pushed if we failed
+        this.state.workers.shutdownNow();
     }
 
 
     logReplicationComplete(startTime);
 }
 
-private void replicateBatch(long startTime) throws ExecutionException, InterruptedException, DocumentStoreException, AttachmentException {
+private void replicateBatch(Changes changes) throws InterruptedException, DocumentStoreException, AttachmentException {
     String msg = String.format(
             "Batch %s started (completed %s changes so far)",
             this.state.batchCounter,
@@ -227,7 +259,6 @@ private void replicateBatch(long startTime) throws ExecutionException, Interrupt
     logger.info(msg);
     long batchStartTime = System.currentTimeMillis();
 
-    Changes changes = getNextBatch();
     final int unfilteredChangesSize = changes.getResults().size();
     final long lastSeq = changes.getLastSequence();
 
@@ -261,7 +292,7 @@ private void logBatchComplete(long batchStartTime, int changesProcessed) {
 }
 
 
-private int processChanges(Changes changes) throws AttachmentException, DocumentStoreException {
+private int processChanges(Changes changes) throws AttachmentException, DocumentStoreException, InterruptedException {
     int changesProcessed = 0;
     if (this.filter != null) {
         changes = filterChanges(changes);
@@ -321,10 +352,8 @@ private void logReplicationComplete(long startTime) {
 
 //Refactoring end
 
-    private Changes getNextBatch() throws ExecutionException, InterruptedException, DocumentStoreException {
-        long lastPushSequence = getLastCheckpointSequence();
-        logger.fine("Last push sequence from remote database: " + lastPushSequence);
-        return this.sourceDb.getDbCore().changes(lastPushSequence, this.changeLimitPerBatch);
+    private Changes getNextBatch(long since) throws DocumentStoreException {
+        return this.sourceDb.getDbCore().changes(since, this.changeLimitPerBatch);
     }
 
     private static class FilteredChanges extends ChangesImpl {
@@ -348,38 +377,103 @@ private void logReplicationComplete(long startTime) {
         List<MultipartAttachmentWriter> multiparts;
     }
 
-    private int processOneChangesBatch(Changes changes) throws AttachmentException, DocumentStoreException {
+    private int processOneChangesBatch(Changes changes) throws AttachmentException,
+            DocumentStoreException, InterruptedException {
 
         int changesProcessed = 0;
 
         // Process the changes themselves in batches, where we post a batch
-        // at a time to the remote database's _bulk_docs endpoint.
-        List<? extends List<DocumentRevision>> batches = CollectionUtils.partition(
-                changes.getResults(),
-                this.bulkInsertSize
-        );
-        for (List<DocumentRevision> batch : batches) {
+        // at a time to the remote database's _bulk_docs endpoint. Up to
+        // bulkDocsConcurrency batches are pushed at once, so the local reads,
+        // revs_diff and upload of one batch overlap with those of the others.
+        List<DocumentRevision> results = changes.getResults();
+        Deque<Future<Integer>> inFlight = new ArrayDeque<Future<Integer>>();
+        int from = 0;
+        while (from < results.size()) {
 
             if (this.state.cancel) { break; }
 
-            Map<String, DocumentRevisionTree> allTrees = this.sourceDb.getDocumentTrees(batch);
-            Map<String, Set<String>> docOpenRevs = this.openRevisions(allTrees);
-            Map<String, CouchClient.MissingRevisions> docMissingRevs = this.targetDb.revsDiff(docOpenRevs);
-
-            ItemsToPush itemsToPush = missingRevisionsToJsonDocs(allTrees, docMissingRevs);
-            List<String> serialisedMissingRevs = itemsToPush.serializedDocs;
-            List<MultipartAttachmentWriter> multiparts = itemsToPush.multiparts;
-
-            if (!this.state.cancel) {
-                this.targetDb.putMultiparts(multiparts);
-                this.targetDb.bulkCreateSerializedDocs(serialisedMissingRevs);
-                changesProcessed += docMissingRevs.size();
+            if (inFlight.size() >= this.bulkDocsConcurrency) {
+                changesProcessed += awaitBatch(inFlight.removeFirst());
             }
+            // the size is chosen as each batch is cut, so it can follow the batches before it
+            int to = Math.min(results.size(), from + getBulkInsertSize());
+            inFlight.addLast(this.state.workers.submit(pushBatch(results.subList(from, to))));
+            from = to;
+        }
+        while (!inFlight.isEmpty()) {
+            changesProcessed += awaitBatch(inFlight.removeFirst());
         }
 
         return changesProcessed;
     }
 
+    private int getBulkInsertSize() {
+        return this.bulkInsertSizing != null ? this.bulkInsertSizing.get() : this.bulkInsertSize;
+    }
+
+    /**
+     * Returns a task which pushes the revisions of {@code batch} which are missing from the
+     * remote database, returning the number of documents which had missing revisions.
+     */
+    private Callable<Integer> pushBatch(final List<DocumentRevision> batch) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                long start = System.currentTimeMillis();
+                Map<String, DocumentRevisionTree> allTrees = sourceDb.getDocumentTrees(batch);
+                Map<String, Set<String>> docOpenRevs = openRevisions(allTrees);
+                Map<String, CouchClient.MissingRevisions> docMissingRevs = targetDb.revsDiff
+                        (docOpenRevs);
+
+                ItemsToPush itemsToPush = missingRevisionsToJsonDocs(allTrees, docMissingRevs);
+                List<String> serialisedMissingRevs = itemsToPush.serializedDocs;
+                List<MultipartAttachmentWriter> multiparts = itemsToPush.multiparts;
+
+                if (state.cancel) {
+                    return 0;
+                }
+                targetDb.putMultiparts(multiparts);
+                targetDb.bulkCreateSerializedDocs(serialisedMissingRevs);
+
+                if (bulkInsertSizing != null) {
+                    long bytes = 0;
+                    for (String doc : serialisedMissingRevs) {
+                        bytes += doc.length();
+                    }
+                    for (MultipartAttachmentWriter multipart : multiparts) {
+                        bytes += multipart.getContentLength();
+                    }
+                    bulkInsertSizing.batchCompleted(batch.size(), bytes,
+                            System.currentTimeMillis() - start);
+                }
+                return docMissingRevs.size();
+            }
+        };
+    }
+
+    /**
+     * Waits for a task from {@link #pushBatch(List)}, rethrowing the exception it failed with.
+     */
+    private static int awaitBatch(Future<Integer> batch) throws AttachmentException,
+            DocumentStoreException, InterruptedException {
+        try {
+            return batch.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AttachmentException) {
+                throw (AttachmentException) cause;
+            } else if (cause instanceof DocumentStoreException) {
+                throw (DocumentStoreException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DocumentStoreException(cause);
+        }
+    }
+
     /**
      * Generate serialised JSON strings and/or MIME multipart/related writer objects for revisions
      * which are missing on the server
@@ -392,13 +486,16 @@ private void logReplicationComplete(long startTime) {
      *         multipart/related writer
      *
      * @throws AttachmentException
+     * @throws DocumentException if a missing revision could not be read
+     * @throws DocumentStoreException
      *
      * @see CouchClient.MissingRevisions
      * @see PushStrategy.ItemsToPush
      */
     private ItemsToPush missingRevisionsToJsonDocs(
             Map<String, DocumentRevisionTree> allTrees,
-            Map<String, CouchClient.MissingRevisions> revisions) throws AttachmentException {
+            Map<String, CouchClient.MissingRevisions> revisions) throws AttachmentException,
+            DocumentException, DocumentStoreException {
 
         ItemsToPush itemsToPush = new ItemsToPush();
 
@@ -410,9 +507,11 @@ private void logReplicationComplete(long startTime) {
                 long sequence = tree.lookup(docId, rev).getSequence();
                 List<InternalDocumentRevision> path = tree.getPathForNode(sequence);
 
-                // get the attachments for the leaf of this path
-                InternalDocumentRevision dr = path.get(0);
-                Map<String, ? extends Attachment> atts = this.sourceDb.getDbCore().attachmentsForRevision(dr);
+                // the tree only has metadata, so get the body and attachments for the leaf of
+                // this path, which is the only revision whose content is sent
+                InternalDocumentRevision dr = this.sourceDb.getRevision(docId, rev);
+                path.set(0, dr);
+                Map<String, ? extends Attachment> atts = dr.getAttachments();
 
                 // get common ancestor generation - needed to correctly stub out attachments
                 // closest back (first) instance of one of the possible ancestors rev ID in the history tree
@@ -24,6 +24,7 @@ import org.hammock.sync.replication.Replicator;
 import org.hammock.sync.internal.util.Misc;
 
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
 /**
  * This class is not intended as API, it is public for EventBus access only.
@@ -53,6 +54,17 @@ public class ReplicatorImpl implements Replicator {
 
     @Override
     public synchronized void start() {
+        start(null);
+    }
+
+    /**
+     * Starts the replication as {@link #start()} does, but runs it on {@code executor} rather
+     * than on a thread of its own.
+     *
+     * @param executor the executor to run the replication on, or {@code null} to start a thread
+     *                 for it
+     */
+    public synchronized void start(Executor executor) {
         switch (this.state) {
             case STARTED:
                 break;  // do nothing, we're already started.
@@ -67,6 +79,20 @@ public class ReplicatorImpl implements Replicator {
                 // complete/stopped/error -> started: (re)start replication for nth time
                 // we assume register() is idempotent
                 this.strategy.getEventBus().register(this);
+                if (executor != null) {
+                    // STARTED before executing, in case the executor runs the strategy on this
+                    // thread
+                    State previous = this.state;
+                    this.strategyThread = null;
+                    this.state = State.STARTED;
+                    try {
+                        executor.execute(this.strategy);
+                    } catch (RuntimeException e) {
+                        this.state = previous;
+                        throw e;
+                    }
+                    break;
+                }
                 String replicatorThreadName = String.format(Locale.ENGLISH,
                         "Replicator: %s - %s",
                         this.strategy.getClass().getSimpleName(),
@@ -160,4 +186,11 @@ public class ReplicatorImpl implements Replicator {
     public int getId() {
         return id;
     }
+
+    /**
+     * @return the URI of the remote database this replicator replicates with
+     */
+    public String getRemote() {
+        return this.strategy.getRemote();
+    }
 }
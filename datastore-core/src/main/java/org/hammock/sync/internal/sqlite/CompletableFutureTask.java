@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.sqlite;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * <p>
+ * A {@link FutureTask} which also completes a {@link CompletableFuture} when it is done, so that
+ * callers can be notified of the result instead of blocking on {@link #get()}.
+ * </p>
+ * <p>
+ * If the task fails, the {@link CompletableFuture} is completed exceptionally with the exception
+ * thrown by the task itself rather than an {@link ExecutionException}. Cancelling the
+ * {@link CompletableFuture} does not cancel the task.
+ * </p>
+ */
+class CompletableFutureTask<T> extends FutureTask<T> {
+
+    private final CompletableFuture<T> completion = new CompletableFuture<T>();
+
+    CompletableFutureTask(Callable<T> callable) {
+        super(callable);
+    }
+
+    CompletableFuture<T> toCompletableFuture() {
+        return completion;
+    }
+
+    @Override
+    protected void done() {
+        try {
+            completion.complete(get());
+        } catch (ExecutionException e) {
+            completion.completeExceptionally(e.getCause());
+        } catch (CancellationException e) {
+            completion.cancel(false);
+        } catch (InterruptedException e) {
+            // can't happen, as the task has already completed
+            Thread.currentThread().interrupt();
+            completion.completeExceptionally(e);
+        }
+    }
+}
@@ -120,6 +120,19 @@ public abstract class SQLDatabase {
      */
     public abstract int getVersion();
 
+    /**
+     * <p>Switches the database to write-ahead logging, allowing read-only connections to read
+     * the database concurrently with a writer.</p>
+     *
+     * <p>The journal mode is persistent, so this only needs to be called once per database file,
+     * but it is harmless to call it again. It must not be called inside a transaction.</p>
+     *
+     * @throws java.sql.SQLException if the journal mode could not be changed
+     *
+     * @see <a target="_blank" href="https://www.sqlite.org/wal.html">SQLite Write-Ahead Logging</a>
+     */
+    public abstract void enableWriteAheadLogging() throws SQLException;
+
     /**
      * Open the database
      */
@@ -136,7 +149,8 @@ public abstract class SQLDatabase {
     public abstract boolean isOpen();
 
     /**
-     * Begins a transaction in EXCLUSIVE mode.
+     * Begins a transaction in EXCLUSIVE mode. On a read-only connection the transaction never
+     * takes the database's write lock.
      * <p>
      * Transactions can be nested.
      * When the outer transaction is ended all of
@@ -175,6 +189,24 @@ public abstract class SQLDatabase {
      */
      public abstract void setTransactionSuccessful();
 
+    /**
+     * Returns whether a transaction nested within the current outermost transaction has been
+     * ended without being marked as successful. If so, the outermost transaction will be rolled
+     * back when it is ended, even if it is marked as successful.
+     *
+     * @return true if the outermost transaction will be rolled back, false if it will be
+     * committed provided that it is marked as successful, or if there is no transaction.
+     */
+     public abstract boolean isNestedTransactionFailed();
+
+    /**
+     * Forgets that a transaction nested within the current outermost transaction was ended
+     * without being marked as successful, so that the outermost transaction can still be
+     * committed. Only for use by callers which have rolled back the nested transaction's changes
+     * themselves, for example by rolling back to a savepoint taken before it began.
+     */
+     public abstract void clearNestedTransactionFailure();
+
     /**
      * Convenience method for updating rows in the database.
      *
@@ -200,6 +232,31 @@ public abstract class SQLDatabase {
      */
     public abstract Cursor rawQuery(String sql, String[] selectionArgs) throws SQLException;
 
+    /**
+     * <p>
+     * Runs the provided SQL and returns a forward-only {@link Cursor} over the result set.
+     * </p>
+     * <p>
+     * Unlike {@link #rawQuery(String, String[])}, rows may be read from the database as the
+     * cursor is advanced rather than all at once, so this should be preferred for queries which
+     * can return a large number of rows and are only iterated once with
+     * {@link Cursor#moveToNext()}. {@link Cursor#getCount()} may not be supported, and the
+     * cursor must be closed before the task which created it completes.
+     * </p>
+     * <p>
+     * The default implementation returns the cursor from {@link #rawQuery(String, String[])}.
+     * </p>
+     *
+     * @param sql the SQL query. The SQL string must not be ; terminated
+     * @param selectionArgs You may include ?s in where clause in the query,
+     *     which will be replaced by the values from selectionArgs. The
+     *     values will be bound as Strings.
+     * @return A forward-only {@link Cursor} object, which is positioned before the first entry.
+     */
+    public Cursor rawQueryStreaming(String sql, String[] selectionArgs) throws SQLException {
+        return rawQuery(sql, selectionArgs);
+    }
+
     /**
      * Convenience method for deleting rows in the database.
      *
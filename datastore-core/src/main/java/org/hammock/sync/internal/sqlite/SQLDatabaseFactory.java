@@ -19,9 +19,11 @@
 
 package org.hammock.sync.internal.sqlite;
 
+import org.hammock.sync.documentstore.StorageProfile;
 import org.hammock.sync.documentstore.encryption.KeyProvider;
 import org.hammock.sync.documentstore.encryption.NullKeyProvider;
 import org.hammock.sync.internal.documentstore.migrations.Migration;
+import org.hammock.sync.internal.util.DatabaseUtils;
 import org.hammock.sync.internal.util.Misc;
 
 import java.io.File;
@@ -98,6 +100,62 @@ public class SQLDatabaseFactory {
         return internalOpenSQLDatabase(dbFile, provider);
     }
 
+    /**
+     * <p>
+     * Open a read-only connection to an existing database file, optionally backed by a
+     * SQLCipher enabled database.
+     * </p>
+     * <p>
+     * The database must already have been created via
+     * {@link #openSQLDatabase(File, KeyProvider)}. Read-only connections are used alongside a
+     * single writer connection, so the database should be in write-ahead logging mode; see
+     * {@link SQLDatabase#enableWriteAheadLogging()}.
+     * </p>
+     * @param dbFile full file path of the db file
+     * @param provider Key provider object storing the SQLCipher key
+     *                 Supply a NullKeyProvider to use a non-encrypted database.
+     * @return read-only {@code SQLDatabase} for the given filename
+     * @throws SQLException if the database cannot be opened.
+     */
+    public static SQLDatabase openReadOnlySQLDatabase(File dbFile, KeyProvider provider) throws
+            SQLException {
+        Misc.checkNotNull(dbFile, "dbFile");
+
+        boolean runningOnAndroid =  Misc.isRunningOnAndroid();
+        boolean useSqlCipher = (provider.getEncryptionKey() != null);
+
+        try {
+            if (runningOnAndroid) {
+                if (useSqlCipher) {
+                    return (SQLDatabase) Class.forName("org.hammock.sync.internal.sqlite.android" +
+                            ".AndroidSQLCipherSQLite")
+                            .getMethod("openReadOnly", File.class, KeyProvider.class)
+                            .invoke(null, new Object[]{dbFile, provider});
+                } else {
+                    return (SQLDatabase) Class.forName("org.hammock.sync.internal.sqlite.android" +
+                            ".AndroidSQLite")
+                            .getMethod("openReadOnly", File.class)
+                            .invoke(null, dbFile);
+                }
+            } else {
+                if (useSqlCipher) {
+                    throw new UnsupportedOperationException("No SQLCipher-based database " +
+                            "implementation for Java SE");
+                } else {
+                    return (SQLDatabase) Class.forName("org.hammock.sync.internal.sqlite" +
+                            ".sqlite4java.SQLiteWrapper")
+                            .getMethod("openReadOnly", File.class)
+                            .invoke(null, dbFile);
+                }
+            }
+        } catch (RuntimeException e){
+            throw e;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to load database module", e);
+            throw new SQLException("Failed to load database module", e);
+        }
+    }
+
     /**
      * Internal method for creating a SQLDatabase that allows a null filename to create an in-memory
      * database which can be useful for performing checks, but creating in-memory databases is not
@@ -147,6 +205,66 @@ public class SQLDatabaseFactory {
         }
     }
 
+    /**
+     * <p>
+     * Apply the PRAGMAs described by a {@link StorageProfile} to a database connection.
+     * </p>
+     * <p>
+     * Most of these settings only last for the lifetime of a connection, so this must be called
+     * on the thread which owns the connection, before it is used for anything else. The page
+     * size and journal mode are properties of the database file; they are only applied if
+     * {@code readOnly} is {@code false}, as is the synchronous setting, which only affects
+     * writes.
+     * </p>
+     *
+     * @param database database connection to configure
+     * @param profile profile to apply
+     * @param readOnly whether {@code database} is a read-only connection
+     * @throws SQLException if a PRAGMA could not be applied
+     */
+    public static void applyStorageProfile(SQLDatabase database, StorageProfile profile,
+                                           boolean readOnly) throws SQLException {
+        Misc.checkNotNull(database, "database");
+        Misc.checkNotNull(profile, "profile");
+        if (!readOnly) {
+            // the page size must be set before the switch to WAL for it to apply to a new file
+            if (profile.getPageSizeBytes() != null) {
+                pragma(database, "page_size", profile.getPageSizeBytes());
+            }
+            if (profile.getJournalMode() == StorageProfile.JournalMode.WAL) {
+                database.enableWriteAheadLogging();
+            } else if (profile.getJournalMode() != null) {
+                pragma(database, "journal_mode", profile.getJournalMode());
+            }
+            if (profile.getSynchronous() != null) {
+                pragma(database, "synchronous", profile.getSynchronous());
+            }
+        }
+        if (profile.getCacheSizeKiB() != null) {
+            // a negative cache_size is a size in KiB rather than a number of pages
+            pragma(database, "cache_size", -profile.getCacheSizeKiB());
+        }
+        if (profile.getMmapSizeBytes() != null) {
+            pragma(database, "mmap_size", profile.getMmapSizeBytes());
+        }
+        if (profile.getTempStore() != null) {
+            pragma(database, "temp_store", profile.getTempStore());
+        }
+    }
+
+    private static void pragma(SQLDatabase database, String name, Object value) throws
+            SQLException {
+        Cursor cursor = null;
+        try {
+            // some PRAGMAs return their new value, which not all platforms allow via execSQL
+            cursor = database.rawQuery(String.format(Locale.ENGLISH, "PRAGMA %s = %s;", name,
+                    value), null);
+            cursor.moveToFirst();
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+    }
+
     /**
      * <p>Update schema for {@code SQLDatabase}</p>
      *
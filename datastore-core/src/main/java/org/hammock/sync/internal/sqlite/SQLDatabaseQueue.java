@@ -14,27 +14,46 @@
 
 package org.hammock.sync.internal.sqlite;
 
+import org.hammock.sync.documentstore.StorageProfile;
 import org.hammock.sync.documentstore.encryption.KeyProvider;
 import org.hammock.sync.documentstore.encryption.NullKeyProvider;
 import org.hammock.sync.internal.documentstore.migrations.Migration;
+import org.hammock.sync.internal.util.Misc;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * <p>
  * SQLDatabaseQuue provides the ability to ensure that the
  * only a single thread accesses the SQLDatabase. Tasks submitted to this
  * queue are guaranteed to be executed in the order they are received
+ * </p>
+ * <p>
+ * The queue can optionally be created with a pool of read-only connections. Tasks submitted
+ * via {@link #submitRead(SQLCallable)} are then executed concurrently on those connections
+ * instead of waiting behind writes on the single writer thread. This requires a
+ * {@link StorageProfile} with write-ahead logging, so that readers see the last committed
+ * state while a write is in progress. Reads submitted this way are not ordered with respect to
+ * writes submitted after them.
+ * </p>
  */
 public class SQLDatabaseQueue {
 
@@ -43,6 +62,58 @@ public class SQLDatabaseQueue {
     private final Logger logger = Logger.getLogger(SQLDatabase.class.getCanonicalName());
     private AtomicBoolean acceptTasks = new AtomicBoolean(true);
     private String sqliteVersion = null;
+
+    private final File file;
+    private final KeyProvider provider;
+    private final StorageProfile profile;
+
+    /**
+     * How long a reader thread may be idle before it exits, closing its connection.
+     */
+    private static final long READER_KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * Executor for read-only tasks, or {@code null} if reads are performed on the writer thread.
+     * Each thread of this executor owns one read-only connection. Idle threads exit after
+     * {@link #READER_KEEP_ALIVE_SECONDS}, so that a database which is not being read holds no
+     * reader threads or connections.
+     */
+    private final ExecutorService readers;
+
+    /**
+     * The read-only connection owned by the current reader thread. Connections are opened lazily
+     * on first use and closed when the reader thread exits.
+     */
+    private final ThreadLocal<SQLDatabase> readerConnection = new ThreadLocal<SQLDatabase>();
+
+    /**
+     * Completes once the most recently submitted schema update has run on the writer thread;
+     * readers wait on this so they never observe a partially migrated database.
+     */
+    private volatile Future<?> schemaReady;
+
+    /**
+     * Maximum number of writes submitted via {@link #submitTransaction(SQLCallable)} which are
+     * committed in one transaction; 1 if group commit is disabled.
+     */
+    private final int groupCommitMaxWrites;
+
+    /**
+     * How long a group which is not full waits for more writes before committing.
+     */
+    private final long groupCommitMaxDelayNanos;
+
+    /**
+     * Guards {@link #openGroup}, and is notified when a group may have stopped accepting writes.
+     */
+    private final Object groupLock = new Object();
+
+    /**
+     * The group commit which newly submitted writes join, or {@code null} if a new group is
+     * needed. Set to {@code null} whenever any other task is queued, so that writes are never
+     * moved ahead of tasks submitted before them.
+     */
+    private GroupCommit openGroup;
     /**
      * Creates an SQLQueue for the database specified.
      * @param file The file where the database is located
@@ -62,14 +133,87 @@ public class SQLDatabaseQueue {
      * @throws SQLException If the database cannot be opened.
      */
     public SQLDatabaseQueue(final File file, KeyProvider provider) throws IOException, SQLException {
+        this(file, provider, 0);
+    }
+
+    /**
+     * Creates an SQLQueue for the SQLCipher-based database specified, with a pool of read-only
+     * connections for tasks submitted via {@link #submitRead(SQLCallable)}.
+     * @param file The file where the database is located
+     * @param provider The key provider object that contains the user-defined SQLCipher key.
+     *                 Supply a NullKeyProvider to use a non-encrypted database.
+     * @param readConnections The number of read-only connections to use. If zero, reads are
+     *                        performed on the writer thread. Otherwise the database is switched
+     *                        to write-ahead logging.
+     * @throws IOException If a problem occurs creating the database
+     * @throws SQLException If the database cannot be opened.
+     */
+    public SQLDatabaseQueue(final File file, KeyProvider provider, int readConnections) throws
+            IOException, SQLException {
+        this(file, provider, readConnections > 0 ? new StorageProfile.Builder()
+                .journalMode(StorageProfile.JournalMode.WAL)
+                .build() : StorageProfile.DEFAULT, readConnections);
+    }
+
+    /**
+     * Creates an SQLQueue for the SQLCipher-based database specified, tuned according to
+     * {@code profile}, with a pool of read-only connections for tasks submitted via
+     * {@link #submitRead(SQLCallable)}.
+     * @param file The file where the database is located
+     * @param provider The key provider object that contains the user-defined SQLCipher key.
+     *                 Supply a NullKeyProvider to use a non-encrypted database.
+     * @param profile The PRAGMAs to apply to each connection as it is opened.
+     * @param readConnections The number of read-only connections to use. If zero, reads are
+     *                        performed on the writer thread. Must be zero unless
+     *                        {@code profile} uses write-ahead logging.
+     * @throws IOException If a problem occurs creating the database
+     * @throws SQLException If the database cannot be opened.
+     */
+    public SQLDatabaseQueue(final File file, KeyProvider provider, final StorageProfile profile,
+                            int readConnections) throws IOException, SQLException {
+        Misc.checkNotNull(profile, "profile");
+        Misc.checkArgument(readConnections >= 0, "readConnections must not be negative");
+        Misc.checkArgument(readConnections == 0 ||
+                profile.getJournalMode() == StorageProfile.JournalMode.WAL,
+                "Read-only connections require write-ahead logging");
+        this.file = file;
+        this.provider = provider;
+        this.profile = profile;
+        this.groupCommitMaxWrites = profile.getGroupCommitMaxWrites();
+        this.groupCommitMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(profile
+                .getGroupCommitMaxDelayMillis());
         queue = Executors.newSingleThreadExecutor(new ThreadFactory(file));
         this.db = SQLDatabaseFactory.openSQLDatabase(file, provider);
-        queue.execute(new Runnable() {
+        queue.submit(new Runnable() {
             @Override
             public void run() {
                 db.open();
             }
         });
+        // The profile is applied on the writer thread, as most PRAGMAs only affect the
+        // connection they are run on. Readers wait for it, so that the database is already in
+        // WAL mode when they open their connections.
+        schemaReady = queue.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                try {
+                    SQLDatabaseFactory.applyStorageProfile(db, profile, false);
+                } catch (SQLException e) {
+                    logger.log(Level.SEVERE, "Failed to apply storage profile " + profile, e);
+                    throw e;
+                }
+                return null;
+            }
+        });
+        if (readConnections > 0) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(readConnections, readConnections,
+                    READER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ReaderThreadFactory(file));
+            pool.allowCoreThreadTimeOut(true);
+            readers = pool;
+        } else {
+            readers = null;
+        }
     }
 
     /**
@@ -78,7 +222,11 @@ public class SQLDatabaseQueue {
      * @param version The version of the schema
      */
     public void updateSchema(final Migration migration, final int version){
-        queue.execute(new UpdateSchemaCallable(migration, version)); // Fire and forget
+        // Fire and forget, but remember the task so that readers can wait for it
+        synchronized (groupLock) {
+            closeOpenGroup();
+            schemaReady = queue.submit(new UpdateSchemaCallable(migration, version));
+        }
     }
 
     /**
@@ -110,14 +258,127 @@ public class SQLDatabaseQueue {
     }
 
     /**
+     * Submits a database task for execution, as {@link #submit(SQLCallable)}, without the caller
+     * having to block to find out when it has completed.
+     * @param callable The task to be performed
+     * @param <T> The type of object that is returned from the task
+     * @throws RejectedExecutionException Thrown when the queue has been shutdown
+     * @return CompletableFuture which is completed on the database thread when the task has
+     * been executed, exceptionally with the task's exception if it failed.
+     */
+    public <T> CompletableFuture<T> submitAsync(SQLCallable<T> callable){
+        return this.submitTaskToQueue(new SQLQueueCallable<T>(db, callable))
+                .toCompletableFuture();
+    }
+
+    /**
+     * <p>
      * Submits a database task for execution in a transaction
+     * </p>
+     * <p>
+     * If the queue's {@link StorageProfile} enables group commit, the task may share its
+     * transaction with other tasks submitted via this method immediately before or after it.
+     * It then runs in its own savepoint, so that if it throws, only its changes are rolled back.
+     * Either way, the returned future completes once the transaction has been committed.
+     * </p>
      * @param callable The task to be performed
      * @param <T> The type of object that is returned from the task
      * @throws RejectedExecutionException thrown when the queue has been shutdown
      * @return Future representing the task to be executed.
      */
     public <T> Future<T> submitTransaction(SQLCallable<T> callable){
-        return this.submitTaskToQueue(new SQLQueueCallable<T>(db, callable, true));
+        if (groupCommitMaxWrites <= 1) {
+            return this.submitTaskToQueue(new SQLQueueCallable<T>(db, callable, true));
+        }
+        return this.submitGroupCommitWrite(callable);
+    }
+
+    /**
+     * Submits a database task for execution in a transaction, as
+     * {@link #submitTransaction(SQLCallable)}, without the caller having to block to find out
+     * when it has completed.
+     * @param callable The task to be performed
+     * @param <T> The type of object that is returned from the task
+     * @throws RejectedExecutionException thrown when the queue has been shutdown
+     * @return CompletableFuture which is completed on the database thread once the transaction
+     * has ended, exceptionally with the task's exception if it failed.
+     */
+    public <T> CompletableFuture<T> submitTransactionAsync(SQLCallable<T> callable){
+        if (groupCommitMaxWrites <= 1) {
+            return this.submitTaskToQueue(new SQLQueueCallable<T>(db, callable, true))
+                    .toCompletableFuture();
+        }
+        return this.submitGroupCommitWrite(callable);
+    }
+
+    /**
+     * Adds a write to the open group commit, queueing a new group if there isn't one which
+     * will accept it.
+     * @return CompletableFuture which is completed once the group's transaction has ended.
+     */
+    private <T> CompletableFuture<T> submitGroupCommitWrite(SQLCallable<T> callable){
+        GroupCommitWrite<T> write = new GroupCommitWrite<T>(callable);
+        synchronized (groupLock) {
+            if (!acceptTasks.get()) {
+                throw new RejectedExecutionException("Database is closed");
+            }
+            if (openGroup == null || !openGroup.add(write)) {
+                GroupCommit group = new GroupCommit();
+                group.add(write);
+                queue.submit(group);
+                openGroup = group;
+            }
+        }
+        return write.future;
+    }
+
+    /**
+     * <p>
+     * Submits a read-only database task for execution.
+     * </p>
+     * <p>
+     * If this queue has a pool of read-only connections the task is executed on one of them,
+     * concurrently with other reads and with any write in progress, and sees the database as of
+     * the last committed transaction. Otherwise this is equivalent to
+     * {@link #submit(SQLCallable)}.
+     * </p>
+     * <p>
+     * The task must not modify the database.
+     * </p>
+     * @param callable The task to be performed
+     * @param <T> The type of object that is returned from the task
+     * @throws RejectedExecutionException Thrown when the queue has been shutdown
+     * @return Future representing the task to be executed.
+     */
+    public <T> Future<T> submitRead(SQLCallable<T> callable){
+        return this.submitReadTask(callable);
+    }
+
+    /**
+     * Submits a read-only database task for execution, as {@link #submitRead(SQLCallable)},
+     * without the caller having to block to find out when it has completed.
+     * @param callable The task to be performed
+     * @param <T> The type of object that is returned from the task
+     * @throws RejectedExecutionException Thrown when the queue has been shutdown
+     * @return CompletableFuture which is completed on the thread which executed the task once it
+     * has been executed, exceptionally with the task's exception if it failed.
+     */
+    public <T> CompletableFuture<T> submitReadAsync(SQLCallable<T> callable){
+        return this.submitReadTask(callable).toCompletableFuture();
+    }
+
+    private <T> CompletableFutureTask<T> submitReadTask(SQLCallable<T> callable){
+        if (readers == null) {
+            return this.submitTaskToQueue(new SQLQueueCallable<T>(db, callable));
+        }
+        if(acceptTasks.get()){
+            CompletableFutureTask<T> task = new CompletableFutureTask<T>(new ReadCallable<T>
+                    (callable));
+            readers.execute(task);
+            return task;
+        } else {
+            throw new RejectedExecutionException("Database is closed");
+        }
     }
 
     /**
@@ -130,13 +391,27 @@ public class SQLDatabaseQueue {
     public void shutdown() {
         // If shutdown has already been called then we don't need to shutdown again
         if (acceptTasks.getAndSet(false)) {
-            //pass straight to queue, tasks passed via submitTaskToQueue will now be blocked.
-            Future<?> close = queue.submit(new Runnable() {
-                @Override
-                public void run() {
-                    db.close();
+            // Let outstanding reads finish and close the reader connections before the writer
+            // connection, so that the writer is the last connection to close.
+            if (readers != null) {
+                readers.shutdown();
+                try {
+                    readers.awaitTermination(5, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    logger.log(Level.SEVERE, "Interrupted while waiting for readers to terminate", e);
                 }
-            });
+            }
+            //pass straight to queue, tasks passed via submitTaskToQueue will now be blocked.
+            Future<?> close;
+            synchronized (groupLock) {
+                closeOpenGroup();
+                close = queue.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        db.close();
+                    }
+                });
+            }
             queue.shutdown();
             try {
                 close.get();
@@ -167,14 +442,31 @@ public class SQLDatabaseQueue {
      * @return Future representing the task to be executed.
      * @throws RejectedExecutionException If the queue has been shutdown.
      */
-    private <T> Future<T> submitTaskToQueue(SQLQueueCallable<T> callable){
+    private <T> CompletableFutureTask<T> submitTaskToQueue(SQLQueueCallable<T> callable){
         if(acceptTasks.get()){
-            return queue.submit(callable);
+            CompletableFutureTask<T> task = new CompletableFutureTask<T>(callable);
+            synchronized (groupLock) {
+                closeOpenGroup();
+                queue.execute(task);
+            }
+            return task;
         } else {
             throw new RejectedExecutionException("Database is closed");
         }
     }
 
+    /**
+     * Stops further writes joining the open group commit, if there is one. Must be called
+     * holding {@link #groupLock}.
+     */
+    private void closeOpenGroup() {
+        if (openGroup != null) {
+            openGroup = null;
+            // wake the group if it is waiting for more writes
+            groupLock.notifyAll();
+        }
+    }
+
     /**
      * Returns the SQLite Version.
      * @return The SQLite version or "Unknown" if the version could not be determined.
@@ -231,6 +523,186 @@ public class SQLDatabaseQueue {
         }
     }
 
+    /**
+     * Thread factory for reader threads. Each reader thread closes the read-only connection it
+     * opened when it exits, as connections may only be closed by the thread that owns them.
+     */
+    private class ReaderThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final File file;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        public ReaderThreadFactory(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        r.run();
+                    } finally {
+                        SQLDatabase reader = readerConnection.get();
+                        if (reader != null) {
+                            readerConnection.remove();
+                            reader.close();
+                        }
+                    }
+                }
+            }, "SQLDatabaseQueue reader " + threadNumber.getAndIncrement() + " - " + file);
+        }
+    }
+
+    /**
+     * Runs a task on the read-only connection of the current reader thread, opening the
+     * connection if this is the first task on this thread.
+     */
+    private class ReadCallable<T> implements Callable<T> {
+        private final SQLCallable<T> callable;
+
+        public ReadCallable(SQLCallable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public T call() throws Exception {
+            schemaReady.get();
+            SQLDatabase reader = readerConnection.get();
+            if (reader == null) {
+                reader = SQLDatabaseFactory.openReadOnlySQLDatabase(file, provider);
+                readerConnection.set(reader);
+                SQLDatabaseFactory.applyStorageProfile(reader, profile, true);
+            }
+            return new SQLQueueCallable<T>(reader, callable).call();
+        }
+    }
+
+    /**
+     * <p>
+     * A group of writes committed in a single transaction. The group is queued when its first
+     * write is submitted and accepts further writes until it starts committing, it is full or
+     * another task is queued after it.
+     * </p>
+     * <p>
+     * Once it reaches the front of the queue, a group which is not full waits up to
+     * {@link #groupCommitMaxDelayNanos} for further writes. Each write then runs in its own
+     * savepoint within the group's transaction.
+     * </p>
+     */
+    private class GroupCommit implements Runnable {
+
+        // guarded by groupLock
+        private final List<GroupCommitWrite<?>> writes = new ArrayList<GroupCommitWrite<?>>();
+        private boolean started = false;
+
+        /**
+         * Adds a write to this group. Must be called holding {@link #groupLock}.
+         * @return false if the group is no longer accepting writes
+         */
+        boolean add(GroupCommitWrite<?> write) {
+            if (started || writes.size() >= groupCommitMaxWrites) {
+                return false;
+            }
+            writes.add(write);
+            if (writes.size() >= groupCommitMaxWrites) {
+                groupLock.notifyAll();
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            List<GroupCommitWrite<?>> batch;
+            synchronized (groupLock) {
+                long deadline = System.nanoTime() + groupCommitMaxDelayNanos;
+                long remaining = groupCommitMaxDelayNanos;
+                try {
+                    while (openGroup == this && writes.size() < groupCommitMaxWrites &&
+                            remaining > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(groupLock, remaining);
+                        remaining = deadline - System.nanoTime();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                started = true;
+                if (openGroup == this) {
+                    openGroup = null;
+                }
+                batch = new ArrayList<GroupCommitWrite<?>>(writes);
+            }
+
+            try {
+                db.beginTransaction();
+                try {
+                    for (GroupCommitWrite<?> write : batch) {
+                        write.execute(db);
+                    }
+                    // each write's savepoint undoes its own failed nested transactions, so this
+                    // should not happen, but the writes must not be reported as committed if it
+                    // does
+                    if (db.isNestedTransactionFailed()) {
+                        throw new SQLException("Group commit was rolled back by a failed " +
+                                "nested transaction");
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Throwable t) {
+                logger.log(Level.SEVERE, "Group commit of " + batch.size() + " writes failed", t);
+                for (GroupCommitWrite<?> write : batch) {
+                    write.fail(t);
+                }
+                return;
+            }
+            for (GroupCommitWrite<?> write : batch) {
+                write.complete();
+            }
+        }
+    }
+
+    /**
+     * A write belonging to a {@link GroupCommit}. Its future, which is returned to the caller,
+     * is only completed after the group's transaction has ended. A write whose future has been
+     * cancelled before the group starts is not run.
+     */
+    private static class GroupCommitWrite<T> {
+
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        private final SQLCallable<T> callable;
+        private T result;
+        private Exception failure;
+
+        GroupCommitWrite(SQLCallable<T> callable) {
+            this.callable = callable;
+        }
+
+        void execute(SQLDatabase db) throws Exception {
+            if (future.isCancelled()) {
+                return;
+            }
+            try {
+                result = new SavepointCallable<T>(callable).call(db);
+            } catch (SavepointCallable.RolledBackException e) {
+                failure = e.getCause();
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        void fail(Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
     private class UpdateSchemaCallable implements Runnable {
         private final Migration migration;
         private final int version;
@@ -14,6 +14,7 @@
 
 package org.hammock.sync.internal.sqlite;
 
+import java.sql.SQLException;
 import java.util.concurrent.Callable;
 
 /**
@@ -65,6 +66,11 @@ class SQLQueueCallable<T> implements Callable<T> {
                 db.beginTransaction();
                 //call(db) throws an exception if the transaction should be rolled back
                 T returned = sqlCallable.call(db);
+                if (db.isNestedTransactionFailed()) {
+                    // the transaction will be rolled back when it ends, so don't report success
+                    throw new SQLException("Transaction was rolled back by a failed nested " +
+                            "transaction");
+                }
                 db.setTransactionSuccessful();
                 return returned;
             } finally {
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.sqlite;
+
+import java.sql.SQLException;
+
+/**
+ * <p>
+ * Runs a {@link SQLCallable} inside a
+ * <a target="_blank" href="https://www.sqlite.org/lang_savepoint.html">savepoint</a>, so that if
+ * it throws, only the changes it made are rolled back and the enclosing transaction can carry on.
+ * </p>
+ * <p>
+ * If the callable throws and its changes were rolled back, the exception is wrapped in a
+ * {@link RolledBackException}. A transaction nested in the callable which ends without being
+ * marked as successful counts as the callable failing: its changes are rolled back to the
+ * savepoint, rather than the enclosing transaction being rolled back when it ends. Any other exception means that the savepoint itself could not be
+ * created, released or rolled back, and the enclosing transaction should be abandoned.
+ * </p>
+ */
+public class SavepointCallable<T> implements SQLCallable<T> {
+
+    private static final String SAVEPOINT = "savepoint_callable";
+
+    private final SQLCallable<T> callable;
+
+    public SavepointCallable(SQLCallable<T> callable) {
+        this.callable = callable;
+    }
+
+    @Override
+    public T call(SQLDatabase db) throws Exception {
+        // a nested transaction which failed before the savepoint can't be undone by it
+        boolean nestedFailedBefore = db.isNestedTransactionFailed();
+        db.execSQL("SAVEPOINT " + SAVEPOINT);
+        T result;
+        try {
+            result = callable.call(db);
+            if (!nestedFailedBefore && db.isNestedTransactionFailed()) {
+                throw new SQLException("A transaction nested in the savepoint was rolled back");
+            }
+        } catch (Exception e) {
+            db.execSQL("ROLLBACK TO SAVEPOINT " + SAVEPOINT);
+            db.execSQL("RELEASE SAVEPOINT " + SAVEPOINT);
+            if (!nestedFailedBefore) {
+                // the nested transaction's changes have been rolled back with the rest of the
+                // callable's, so it must not roll back the enclosing transaction too
+                db.clearNestedTransactionFailure();
+            }
+            throw new RolledBackException(e);
+        }
+        db.execSQL("RELEASE SAVEPOINT " + SAVEPOINT);
+        return result;
+    }
+
+    /**
+     * Thrown when the wrapped callable failed and its changes have been rolled back. The
+     * callable's exception is the cause.
+     */
+    public static class RolledBackException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        RolledBackException(Exception cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+}
@@ -22,7 +22,9 @@ import org.hammock.sync.internal.mazha.CouchClient;
 import org.hammock.sync.internal.mazha.Document;
 import org.hammock.sync.internal.mazha.OpenRevision;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
@@ -114,8 +116,7 @@ public class JSONUtils {
 
     public static boolean isValidJSON(final String json) {
         try {
-            getsMapper().readValue(json, Map.class);
-            return true;
+            return isSingleJSONObject(getsMapper().getFactory().createParser(json));
         } catch (Exception e) {
             return false;
         }
@@ -123,13 +124,29 @@ public class JSONUtils {
 
     public static boolean isValidJSON(final byte[] json) {
         try {
-            getsMapper().readValue(json, Map.class);
-            return true;
+            return isSingleJSONObject(getsMapper().getFactory().createParser(json));
         } catch (Exception e) {
             return false;
         }
     }
 
+    /**
+     * Checks that the parser's input is a single JSON object by streaming through its tokens,
+     * rather than building a Map which would then be thrown away.
+     */
+    private static boolean isSingleJSONObject(JsonParser parser) throws IOException {
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            // throws if the object is malformed or truncated
+            parser.skipChildren();
+            return parser.nextToken() == null;
+        } finally {
+            parser.close();
+        }
+    }
+
     public static byte[] serializeAsBytes(Map object) {
         return serializeAsBytes(object, true);
     }
@@ -229,6 +246,15 @@ public class JSONUtils {
         return fromJson(reader, STRING_MAP_TYPE_DEF);
     }
 
+    /**
+     * Creates a parser for reading JSON from {@code reader} one token at a time. The value the
+     * parser is positioned on can be bound with {@link JsonParser#readValueAs(Class)}, using the
+     * same configuration as the {@code fromJson} methods.
+     */
+    public static JsonParser createParser(Reader reader) throws IOException {
+        return getsMapper().getFactory().createParser(reader);
+    }
+
     public static <T> T fromJsonToList(Reader reader, TypeReference<T> typeReference) {
         return fromJson(reader, typeReference);
     }
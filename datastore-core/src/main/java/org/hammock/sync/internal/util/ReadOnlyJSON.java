@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.util;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * <p>
+ * Read-only views of deserialised JSON, as produced by {@link JSONUtils#deserialize(byte[])}.
+ * </p>
+ * <p>
+ * Nested objects and arrays are wrapped as they are reached rather than copied up front, so
+ * creating a view is cheap and any attempt to modify it, at any depth, throws
+ * {@link UnsupportedOperationException}.
+ * </p>
+ */
+public final class ReadOnlyJSON {
+
+    private ReadOnlyJSON() {
+        // static utility class
+    }
+
+    /**
+     * @param map the JSON object to wrap
+     * @return a read-only view of {@code map}, which reflects later changes to it
+     */
+    public static Map<String, Object> view(Map<String, Object> map) {
+        return new MapView(map);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object wrap(Object value) {
+        if (value instanceof Map) {
+            return new MapView((Map<String, Object>) value);
+        } else if (value instanceof List) {
+            return new ListView((List<Object>) value);
+        }
+        return value;
+    }
+
+    private static final class MapView extends AbstractMap<String, Object> {
+
+        private final Map<String, Object> map;
+
+        MapView(Map<String, Object> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return wrap(map.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    final Iterator<Entry<String, Object>> entries = map.entrySet().iterator();
+                    return new Iterator<Entry<String, Object>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Entry<String, Object> entry = entries.next();
+                            return new SimpleImmutableEntry<String, Object>(entry.getKey(),
+                                    wrap(entry.getValue()));
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException("JSON view is read-only");
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return map.size();
+                }
+            };
+        }
+    }
+
+    private static final class ListView extends AbstractList<Object> implements RandomAccess {
+
+        private final List<Object> list;
+
+        ListView(List<Object> list) {
+            this.list = list;
+        }
+
+        @Override
+        public Object get(int index) {
+            return wrap(list.get(index));
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.replication;
+
+import org.hammock.sync.event.Subscribe;
+import org.hammock.sync.event.notifications.ReplicationCompleted;
+import org.hammock.sync.event.notifications.ReplicationErrored;
+import org.hammock.sync.internal.replication.ReplicatorImpl;
+import org.hammock.sync.internal.util.Misc;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Runs many replications on a fixed number of worker threads, rather than on a thread each.
+ * </p>
+ * <p>
+ * Replications waiting to run are started highest priority first and, within a priority, in
+ * the order they were scheduled, so none is overtaken by one of the same priority scheduled
+ * after it. At most {@code maxConcurrentPerRemote} replications with the same remote server
+ * run at once; while a server is at that limit, replications with other servers are started
+ * instead. A replication which errors is scheduled again after a delay which doubles with each
+ * attempt, until it has been attempted {@code maxAttempts} times.
+ * </p>
+ * <p>
+ * Replicators must be built with {@link ReplicatorBuilder} and, once scheduled, should only be
+ * started and stopped by the scheduler. {@link #shutdown()} should be called once the
+ * scheduler is no longer needed, to stop its threads.
+ * </p>
+ */
+public class ReplicationScheduler {
+
+    private static final Logger logger = Logger.getLogger(ReplicationScheduler.class
+            .getCanonicalName());
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final int workerThreads;
+
+    private final int maxConcurrentPerRemote;
+
+    private final int maxAttempts;
+
+    private final long initialBackoffMillis;
+
+    private final ExecutorService workers;
+
+    // Starts replications and schedules retries. Replicators are only ever started from this
+    // thread, never from their own event callbacks.
+    private final ScheduledExecutorService dispatcher;
+
+    // The fields below are guarded by this
+
+    private final PriorityQueue<Scheduled> pending = new PriorityQueue<Scheduled>(11,
+            new Comparator<Scheduled>() {
+                @Override
+                public int compare(Scheduled a, Scheduled b) {
+                    if (a.priority != b.priority) {
+                        return a.priority > b.priority ? -1 : 1;
+                    }
+                    return a.order < b.order ? -1 : (a.order == b.order ? 0 : 1);
+                }
+            });
+
+    private final Map<Replicator, Scheduled> scheduled = new IdentityHashMap<Replicator,
+            Scheduled>();
+
+    private final Map<String, Integer> runningPerRemote = new HashMap<String, Integer>();
+
+    private long nextOrder = 0;
+
+    private int running = 0;
+
+    private int retrying = 0;
+
+    private int completed = 0;
+
+    private int failed = 0;
+
+    private long documentsReplicated = 0;
+
+    private long batchesReplicated = 0;
+
+    private boolean shutdown = false;
+
+    /**
+     * Creates a scheduler which makes up to {@link #DEFAULT_MAX_ATTEMPTS} attempts at each
+     * replication.
+     *
+     * @param workerThreads the number of replications to run at once, at least 1
+     * @param maxConcurrentPerRemote the number of replications with the same remote server to
+     *                               run at once, at least 1
+     */
+    public ReplicationScheduler(int workerThreads, int maxConcurrentPerRemote) {
+        this(workerThreads, maxConcurrentPerRemote, DEFAULT_MAX_ATTEMPTS,
+                DEFAULT_INITIAL_BACKOFF_MILLIS);
+    }
+
+    /**
+     * @param workerThreads the number of replications to run at once, at least 1
+     * @param maxConcurrentPerRemote the number of replications with the same remote server to
+     *                               run at once, at least 1
+     * @param maxAttempts the number of times to attempt a replication before giving up on it,
+     *                    at least 1
+     * @param initialBackoffMillis how long to wait before attempting a replication again after
+     *                             its first error, doubling for each later error
+     */
+    public ReplicationScheduler(int workerThreads, int maxConcurrentPerRemote, int maxAttempts,
+                                long initialBackoffMillis) {
+        Misc.checkArgument(workerThreads > 0, "workerThreads must be greater than 0");
+        Misc.checkArgument(maxConcurrentPerRemote > 0, "maxConcurrentPerRemote must be greater " +
+                "than 0");
+        Misc.checkArgument(maxAttempts > 0, "maxAttempts must be greater than 0");
+        Misc.checkArgument(initialBackoffMillis >= 0, "initialBackoffMillis must not be " +
+                "negative");
+        this.workerThreads = workerThreads;
+        this.maxConcurrentPerRemote = maxConcurrentPerRemote;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.workers = Executors.newFixedThreadPool(workerThreads, threadFactory("worker"));
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(threadFactory
+                ("dispatcher"));
+    }
+
+    /**
+     * Schedules a replication with priority 0.
+     *
+     * @param replicator the replicator to run, built with {@link ReplicatorBuilder}
+     * @see #schedule(Replicator, int)
+     */
+    public void schedule(Replicator replicator) {
+        schedule(replicator, 0);
+    }
+
+    /**
+     * Schedules a replication to run once a worker thread is free and fewer than
+     * {@code maxConcurrentPerRemote} replications with its remote server are running, ahead of
+     * any waiting replications with a lower priority.
+     *
+     * @param replicator the replicator to run, built with {@link ReplicatorBuilder}
+     * @param priority the priority of the replication, higher priorities run first
+     */
+    public synchronized void schedule(Replicator replicator, int priority) {
+        Misc.checkState(!this.shutdown, "The scheduler has been shut down");
+        Misc.checkArgument(replicator instanceof ReplicatorImpl, "replicator must be built with " +
+                "ReplicatorBuilder");
+        Misc.checkArgument(!this.scheduled.containsKey(replicator), "replicator is already " +
+                "scheduled");
+
+        ReplicatorImpl replicatorImpl = (ReplicatorImpl) replicator;
+        Scheduled s = new Scheduled(replicatorImpl, remoteServer(replicatorImpl.getRemote()),
+                priority, this.nextOrder++);
+        this.scheduled.put(replicator, s);
+        this.pending.add(s);
+        replicator.getEventBus().register(s);
+        dispatchLater();
+    }
+
+    /**
+     * @return a snapshot of the progress of the replications scheduled so far
+     */
+    public synchronized Progress getProgress() {
+        return new Progress(this.pending.size(), this.running, this.retrying, this.completed,
+                this.failed, this.documentsReplicated, this.batchesReplicated);
+    }
+
+    /**
+     * Stops the running replications, drops those still waiting to run and stops the
+     * scheduler's threads once the running replications have stopped.
+     */
+    public void shutdown() {
+        List<Replicator> toStop = new ArrayList<Replicator>();
+        synchronized (this) {
+            if (this.shutdown) {
+                return;
+            }
+            this.shutdown = true;
+            this.pending.clear();
+            for (Scheduled s : this.scheduled.values()) {
+                toStop.add(s.replicator);
+            }
+        }
+        this.dispatcher.shutdownNow();
+        for (Replicator replicator : toStop) {
+            replicator.stop();
+        }
+        this.workers.shutdown();
+    }
+
+    private void dispatchLater() {
+        if (this.shutdown) {
+            return;
+        }
+        this.dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        });
+    }
+
+    // Runs on the dispatcher thread
+    private void dispatch() {
+        List<Scheduled> toStart = new ArrayList<Scheduled>();
+        synchronized (this) {
+            List<Scheduled> skipped = new ArrayList<Scheduled>();
+            while (!this.shutdown && this.running < this.workerThreads && !this.pending.isEmpty()) {
+                Scheduled next = this.pending.poll();
+                int runningForRemote = runningFor(next.remote);
+                if (runningForRemote >= this.maxConcurrentPerRemote) {
+                    // leave it for a replication with another server to overtake
+                    skipped.add(next);
+                    continue;
+                }
+                this.runningPerRemote.put(next.remote, runningForRemote + 1);
+                this.running++;
+                next.attempts++;
+                toStart.add(next);
+            }
+            this.pending.addAll(skipped);
+        }
+        // start outside the lock, as the replicators' own locks are taken before ours when they
+        // report finishing
+        for (Scheduled s : toStart) {
+            try {
+                s.replicator.start(this.workers);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, String.format("Failed to start replication with %s",
+                        s.remote), e);
+                finished(s, null);
+            }
+        }
+    }
+
+    private synchronized void finished(final Scheduled s, ReplicationCompleted completedEvent) {
+        this.running--;
+        int runningForRemote = runningFor(s.remote) - 1;
+        if (runningForRemote > 0) {
+            this.runningPerRemote.put(s.remote, runningForRemote);
+        } else {
+            this.runningPerRemote.remove(s.remote);
+        }
+
+        if (completedEvent != null) {
+            this.completed++;
+            this.documentsReplicated += completedEvent.documentsReplicated;
+            this.batchesReplicated += completedEvent.batchesReplicated;
+            unschedule(s);
+        } else if (s.attempts < this.maxAttempts && !this.shutdown) {
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, this.initialBackoffMillis << Math.min(s
+                    .attempts - 1, 20));
+            logger.info(String.format(Locale.ENGLISH, "Replication with %s failed on attempt " +
+                    "%d, retrying in %d ms", s.remote, s.attempts, backoff));
+            this.retrying++;
+            this.dispatcher.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (ReplicationScheduler.this) {
+                        retrying--;
+                        pending.add(s);
+                    }
+                    dispatch();
+                }
+            }, backoff, TimeUnit.MILLISECONDS);
+        } else {
+            this.failed++;
+            unschedule(s);
+        }
+        dispatchLater();
+    }
+
+    private void unschedule(final Scheduled s) {
+        this.scheduled.remove(s.replicator);
+        if (!this.shutdown) {
+            // not from within the event being delivered to s
+            this.dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    s.replicator.getEventBus().unregister(s);
+                }
+            });
+        }
+    }
+
+    private int runningFor(String remote) {
+        Integer count = this.runningPerRemote.get(remote);
+        return count == null ? 0 : count;
+    }
+
+    private static String remoteServer(String remote) {
+        try {
+            URI uri = new URI(remote);
+            if (uri.getHost() != null) {
+                return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() != -1 ? ":" +
+                        uri.getPort() : "");
+            }
+        } catch (Exception e) {
+            // fall through and treat the whole identifier as the server
+        }
+        return remote;
+    }
+
+    private static ThreadFactory threadFactory(final String role) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, String.format(Locale.ENGLISH, "ReplicationScheduler %s %d",
+                        role, count.incrementAndGet()));
+            }
+        };
+    }
+
+    /**
+     * A replication known to the scheduler. This class is not intended as API, it is public for
+     * EventBus access only.
+     */
+    public final class Scheduled {
+
+        private final ReplicatorImpl replicator;
+
+        private final String remote;
+
+        private final int priority;
+
+        private final long order;
+
+        // guarded by the scheduler
+        private int attempts = 0;
+
+        private Scheduled(ReplicatorImpl replicator, String remote, int priority, long order) {
+            this.replicator = replicator;
+            this.remote = remote;
+            this.priority = priority;
+            this.order = order;
+        }
+
+        @Subscribe
+        public void complete(ReplicationCompleted event) {
+            finished(this, event);
+        }
+
+        @Subscribe
+        public void error(ReplicationErrored event) {
+            finished(this, null);
+        }
+    }
+
+    /**
+     * A snapshot of the progress of the replications scheduled with a
+     * {@link ReplicationScheduler}.
+     */
+    public static final class Progress {
+
+        /**
+         * The number of replications waiting for a worker thread or for their remote server to
+         * be below its limit
+         */
+        public final int pending;
+
+        /**
+         * The number of replications running
+         */
+        public final int running;
+
+        /**
+         * The number of replications waiting to be attempted again after an error
+         */
+        public final int retrying;
+
+        /**
+         * The number of replications which have completed or been stopped
+         */
+        public final int completed;
+
+        /**
+         * The number of replications given up on after erroring on every attempt
+         */
+        public final int failed;
+
+        /**
+         * The total number of documents replicated by the completed replications
+         */
+        public final long documentsReplicated;
+
+        /**
+         * The total number of batches replicated by the completed replications
+         */
+        public final long batchesReplicated;
+
+        Progress(int pending, int running, int retrying, int completed, int failed,
+                 long documentsReplicated, long batchesReplicated) {
+            this.pending = pending;
+            this.running = running;
+            this.retrying = retrying;
+            this.completed = completed;
+            this.failed = failed;
+            this.documentsReplicated = documentsReplicated;
+            this.batchesReplicated = batchesReplicated;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "Progress{pending=%d, running=%d, " +
+                    "retrying=%d, completed=%d, failed=%d, documentsReplicated=%d, " +
+                    "batchesReplicated=%d}", pending, running, retrying, completed, failed,
+                    documentsReplicated, batchesReplicated);
+        }
+    }
+}
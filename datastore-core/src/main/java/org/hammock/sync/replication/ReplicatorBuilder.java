@@ -19,6 +19,7 @@ import org.hammock.sync.http.HttpConnectionResponseInterceptor;
 import org.hammock.sync.http.internal.interceptors.CookieInterceptor;
 import org.hammock.sync.http.internal.interceptors.IamCookieInterceptor;
 import org.hammock.sync.documentstore.DocumentStore;
+import org.hammock.sync.internal.replication.AdaptiveBatchSize;
 import org.hammock.sync.internal.replication.PullStrategy;
 import org.hammock.sync.internal.replication.PushStrategy;
 import org.hammock.sync.internal.replication.ReplicatorImpl;
@@ -32,6 +33,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A Builder to create a {@link Replicator Object}
@@ -175,6 +178,12 @@ public abstract class ReplicatorBuilder<S, T, E> {
 
         private int bulkInsertSize = 10;
 
+        private int bulkDocsConcurrency = 4;
+
+        private int minBulkInsertSize = 0;
+
+        private int maxBulkInsertSize = 0;
+
         private PushAttachmentsInline pushAttachmentsInline = PushAttachmentsInline.Small;
 
         private PushFilter pushFilter = null;
@@ -188,13 +197,27 @@ public abstract class ReplicatorBuilder<S, T, E> {
             // add cookie interceptor and remove creds from URI if required
             super.target = super.addAuthInterceptorIfRequired(super.target);
 
+            List<HttpConnectionResponseInterceptor> responseInterceptors = super
+                    .responseInterceptors;
+            AdaptiveBatchSize bulkInsertSizing = null;
+            if (maxBulkInsertSize > 0) {
+                bulkInsertSizing = new AdaptiveBatchSize(minBulkInsertSize, maxBulkInsertSize,
+                        bulkInsertSize);
+                // ahead of the other interceptors so that it sees any 429 responses
+                responseInterceptors = new ArrayList<HttpConnectionResponseInterceptor>();
+                responseInterceptors.add(bulkInsertSizing);
+                responseInterceptors.addAll(super.responseInterceptors);
+            }
+
             PushStrategy pushStrategy = new PushStrategy(super.source.database(),
                     super.target,
                     super.requestInterceptors,
-                    super.responseInterceptors);
+                    responseInterceptors);
 
             pushStrategy.changeLimitPerBatch = changeLimitPerBatch;
             pushStrategy.bulkInsertSize = bulkInsertSize;
+            pushStrategy.bulkDocsConcurrency = bulkDocsConcurrency;
+            pushStrategy.bulkInsertSizing = bulkInsertSizing;
             pushStrategy.pushAttachmentsInline = pushAttachmentsInline;
             pushStrategy.filter = pushFilter;
 
@@ -236,6 +259,44 @@ public abstract class ReplicatorBuilder<S, T, E> {
             return this;
         }
 
+        /**
+         * <p>Sets bounds within which the number of documents to bulk insert into the CouchDB
+         * instance at a time is chosen, starting from {@link #bulkInsertSize(int)}, instead of
+         * always using that number.
+         * </p>
+         * The size grows while batches are quick and shrinks when they are slow, large, throttled
+         * by the server or leave little free heap, so that both small and large documents are
+         * pushed in batches that suit them.
+         *
+         * @param minBulkInsertSize The smallest number of documents to insert at a time, at
+         *                          least 1
+         * @param maxBulkInsertSize The largest number of documents to insert at a time, at
+         *                          least {@code minBulkInsertSize}
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Push adaptiveBulkInsertSize(int minBulkInsertSize, int maxBulkInsertSize) {
+            Misc.checkArgument(minBulkInsertSize > 0, "minBulkInsertSize must be greater than 0");
+            Misc.checkArgument(maxBulkInsertSize >= minBulkInsertSize, "maxBulkInsertSize must " +
+                    "not be less than minBulkInsertSize");
+            this.minBulkInsertSize = minBulkInsertSize;
+            this.maxBulkInsertSize = maxBulkInsertSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of batches of {@link #bulkInsertSize(int)} documents to push to the
+         * CouchDB instance at the same time
+         *
+         * @param bulkDocsConcurrency The number of batches to push at the same time, at least 1
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Push bulkDocsConcurrency(int bulkDocsConcurrency) {
+            Misc.checkArgument(bulkDocsConcurrency > 0, "bulkDocsConcurrency must be greater " +
+                    "than 0");
+            this.bulkDocsConcurrency = bulkDocsConcurrency;
+            return this;
+        }
+
         /**
          * Sets the strategy to decide whether to push attachments inline or separately
          *
@@ -265,8 +326,24 @@ public abstract class ReplicatorBuilder<S, T, E> {
 
         private int insertBatchSize = 100;
 
+        private int minInsertBatchSize = 0;
+
+        private int maxInsertBatchSize = 0;
+
         private boolean pullAttachmentsInline = false;
 
+        private int pipelineDepth = 1;
+
+        private boolean continuous = false;
+
+        private long longpollTimeout = 60000;
+
+        private int revisionFetchConcurrency = 16;
+
+        private ExecutorService revisionFetchExecutor = null;
+
+        private int attachmentFetchConcurrency = 4;
+
         @Override
         public Replicator build() {
 
@@ -282,17 +359,36 @@ public abstract class ReplicatorBuilder<S, T, E> {
             // add cookie interceptor and remove creds from URI if required
             super.source = super.addAuthInterceptorIfRequired(super.source);
 
+            List<HttpConnectionResponseInterceptor> responseInterceptors = super
+                    .responseInterceptors;
+            AdaptiveBatchSize insertBatchSizing = null;
+            if (maxInsertBatchSize > 0) {
+                insertBatchSizing = new AdaptiveBatchSize(minInsertBatchSize, maxInsertBatchSize,
+                        insertBatchSize);
+                // ahead of the other interceptors so that it sees any 429 responses
+                responseInterceptors = new ArrayList<HttpConnectionResponseInterceptor>();
+                responseInterceptors.add(insertBatchSizing);
+                responseInterceptors.addAll(super.responseInterceptors);
+            }
+
             PullStrategy pullStrategy = new PullStrategy(super.source,
                     super.target.database(),
                     pullPullFilter,
                     pullPullSelector,
                     pullDocIds,
                     super.requestInterceptors,
-                    super.responseInterceptors);
+                    responseInterceptors);
 
             pullStrategy.changeLimitPerBatch = changeLimitPerBatch;
             pullStrategy.insertBatchSize = insertBatchSize;
+            pullStrategy.insertBatchSizing = insertBatchSizing;
             pullStrategy.pullAttachmentsInline = pullAttachmentsInline;
+            pullStrategy.pipelineDepth = pipelineDepth;
+            pullStrategy.continuous = continuous;
+            pullStrategy.longpollTimeout = longpollTimeout;
+            pullStrategy.revisionFetchConcurrency = revisionFetchConcurrency;
+            pullStrategy.revisionFetchExecutor = revisionFetchExecutor;
+            pullStrategy.attachmentFetchConcurrency = attachmentFetchConcurrency;
 
             return new ReplicatorImpl(pullStrategy, super.id);
         }
@@ -368,6 +464,31 @@ public abstract class ReplicatorBuilder<S, T, E> {
             return this;
         }
 
+        /**
+         * <p>Sets bounds within which the number of documents to insert into the SQLite database
+         * in one transaction is chosen, starting from {@link #insertBatchSize(int)}, instead of
+         * always using that number.
+         * </p>
+         * The size grows while batches are quick to fetch and shrinks when they are slow,
+         * throttled by the server or leave little free heap, so that both small and large
+         * documents are pulled in batches that suit them.
+         *
+         * @param minInsertBatchSize The smallest number of documents to insert in one
+         *                           transaction, at least 1
+         * @param maxInsertBatchSize The largest number of documents to insert in one
+         *                           transaction, at least {@code minInsertBatchSize}
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull adaptiveInsertBatchSize(int minInsertBatchSize, int maxInsertBatchSize) {
+            Misc.checkArgument(minInsertBatchSize > 0, "minInsertBatchSize must be greater " +
+                    "than 0");
+            Misc.checkArgument(maxInsertBatchSize >= minInsertBatchSize, "maxInsertBatchSize " +
+                    "must not be less than minInsertBatchSize");
+            this.minInsertBatchSize = minInsertBatchSize;
+            this.maxInsertBatchSize = maxInsertBatchSize;
+            return this;
+        }
+
         /**
          * Sets whether to pull attachments inline or separately
          *
@@ -378,6 +499,101 @@ public abstract class ReplicatorBuilder<S, T, E> {
             this.pullAttachmentsInline = pullAttachmentsInline;
             return this;
         }
+
+        /**
+         * Sets the number of requests for document revisions to make at once when the source
+         * database doesn't support {@code _bulk_get} and each document is fetched separately.
+         *
+         * @param revisionFetchConcurrency The number of requests to make at once, at least 1
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull revisionFetchConcurrency(int revisionFetchConcurrency) {
+            Misc.checkArgument(revisionFetchConcurrency > 0, "revisionFetchConcurrency must be " +
+                    "greater than 0");
+            this.revisionFetchConcurrency = revisionFetchConcurrency;
+            return this;
+        }
+
+        /**
+         * <p>Sets the executor to make requests for document revisions on when the source
+         * database doesn't support {@code _bulk_get}, instead of threads belonging to the
+         * replication.
+         * </p>
+         * One executor can be shared between many replications. Each replication has at most
+         * {@link #revisionFetchConcurrency(int)} requests waiting on it at a time, so a large
+         * replication can't hold up the others' requests behind all of its own. The caller is
+         * responsible for shutting the executor down.
+         *
+         * @param revisionFetchExecutor The executor to make requests on, or {@code null} to use
+         *                              threads belonging to the replication
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull revisionFetchExecutor(ExecutorService revisionFetchExecutor) {
+            this.revisionFetchExecutor = revisionFetchExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the number of attachments to download at once when attachments are not pulled
+         * inline. The attachments of each batch of documents are downloaded together before the
+         * batch is inserted.
+         *
+         * @param attachmentFetchConcurrency The number of attachments to download at once, at
+         *                                   least 1
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull attachmentFetchConcurrency(int attachmentFetchConcurrency) {
+            Misc.checkArgument(attachmentFetchConcurrency > 0, "attachmentFetchConcurrency " +
+                    "must be greater than 0");
+            this.attachmentFetchConcurrency = attachmentFetchConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets the number of batches that may be fetched ahead of the batch being inserted into
+         * the SQLite database. Fetching from the _changes feed, fetching revisions and inserting
+         * them overlap, with up to this many batches waiting between each of those steps.
+         *
+         * @param pipelineDepth The number of batches to fetch ahead, at least 1
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull pipelineDepth(int pipelineDepth) {
+            Misc.checkArgument(pipelineDepth > 0, "pipelineDepth must be greater than 0");
+            this.pipelineDepth = pipelineDepth;
+            return this;
+        }
+
+        /**
+         * <p>Sets whether the replication keeps running once it has caught up with the source
+         * database.</p>
+         *
+         * <p>A continuous replication waits for further changes using {@code feed=longpoll}
+         * requests to the {@code _changes} feed, replicating them as they arrive until it is
+         * stopped. It only completes when {@link Replicator#stop()} is called.</p>
+         *
+         * @param continuous Whether the replication is continuous
+         * @return This instance of {@link ReplicatorBuilder}
+         * @see #longpollTimeout(long, TimeUnit)
+         */
+        public Pull continuous(boolean continuous) {
+            this.continuous = continuous;
+            return this;
+        }
+
+        /**
+         * Sets how long each request for changes made by a continuous replication which has
+         * caught up waits for a change to arrive. Any read timeout set on the HTTP connections
+         * should be longer than this.
+         *
+         * @param timeout The longest time to wait for a change, default 60 seconds
+         * @param unit The unit of {@code timeout}
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull longpollTimeout(long timeout, TimeUnit unit) {
+            Misc.checkArgument(timeout > 0, "timeout must be greater than 0");
+            this.longpollTimeout = unit.toMillis(timeout);
+            return this;
+        }
     }
 
 
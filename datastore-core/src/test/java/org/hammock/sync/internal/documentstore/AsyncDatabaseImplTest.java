@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore;
+
+import org.hammock.sync.documentstore.AsyncDatabase;
+import org.hammock.sync.documentstore.Changes;
+import org.hammock.sync.documentstore.ConflictException;
+import org.hammock.sync.documentstore.DocumentNotFoundException;
+import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.event.Subscribe;
+import org.hammock.sync.event.notifications.DocumentCreated;
+import org.hammock.sync.event.notifications.DocumentModified;
+import org.hammock.sync.event.notifications.DocumentUpdated;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+public class AsyncDatabaseImplTest extends BasicDatastoreTestBase {
+
+    AsyncDatabase async;
+    List<DocumentModified> events = new ArrayList<DocumentModified>();
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        async = new AsyncDatabaseImpl(datastore);
+        datastore.getEventBus().register(this);
+    }
+
+    @Test
+    public void createUpdateDeleteAndRead() throws Exception {
+        DocumentRevision rev = new DocumentRevision("doc");
+        rev.setBody(bodyOne);
+        DocumentRevision created = async.create(rev).get();
+        Assert.assertTrue(created.getRevision().startsWith("1-"));
+        Assert.assertEquals(bodyOne.asMap(), async.read("doc").get().getBody().asMap());
+
+        created.setBody(bodyTwo);
+        DocumentRevision updated = async.update(created).get();
+        Assert.assertTrue(updated.getRevision().startsWith("2-"));
+        Assert.assertEquals(bodyTwo.asMap(), datastore.read("doc").getBody().asMap());
+
+        DocumentRevision deleted = async.delete(updated).get();
+        Assert.assertTrue(deleted.isDeleted());
+
+        Assert.assertEquals(3, events.size());
+        Assert.assertTrue(events.get(0) instanceof DocumentCreated);
+        Assert.assertTrue(events.get(1) instanceof DocumentUpdated);
+        Assert.assertEquals(created.getRevision(), events.get(1).prevDocument.getRevision());
+    }
+
+    @Test
+    public void readMissingDocumentFailsWithDocumentNotFound() throws Exception {
+        try {
+            async.read("missing").get();
+            Assert.fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof DocumentNotFoundException);
+        }
+    }
+
+    @Test
+    public void createExistingDocumentFailsWithConflict() throws Exception {
+        DocumentRevision rev = new DocumentRevision("doc");
+        rev.setBody(bodyOne);
+        datastore.create(rev);
+        events.clear();
+
+        DocumentRevision duplicate = new DocumentRevision("doc");
+        duplicate.setBody(bodyTwo);
+        try {
+            async.create(duplicate).get();
+            Assert.fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ConflictException);
+        }
+        Assert.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void changesAndRevsDiff() throws Exception {
+        createTwoDocuments();
+        Changes changes = async.changes(0, 10).get();
+        Assert.assertEquals(2, changes.getResults().size());
+
+        String docId = changes.getResults().get(0).getId();
+        String revId = changes.getResults().get(0).getRevision();
+        Map<String, List<String>> missing = async.revsDiff(Collections.singletonMap(docId,
+                Arrays.asList(revId, "2-a"))).get();
+        Assert.assertEquals(Collections.singletonList("2-a"), missing.get(docId));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidArgumentsThrowImmediately() throws Exception {
+        async.changes(0, 0);
+    }
+
+    @Subscribe
+    public void onWrite(DocumentModified dm) {
+        events.add(dm);
+    }
+}
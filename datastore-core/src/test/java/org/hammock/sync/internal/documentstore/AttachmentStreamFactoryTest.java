@@ -27,6 +27,7 @@ import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -394,6 +395,58 @@ public class AttachmentStreamFactoryTest extends BasicDatastoreTestBase {
 
     }
 
+    @Test
+    /**
+     * Assert a PreparedAttachment.Writer with known key continues writing the encrypted stream
+     * after reading the data fails part way through, giving the same data and sha1 as writing it
+     * in one go.
+     */
+    public void testPreparedAttachmentWriterResumesEncryptedUnencodedStream()
+            throws AttachmentException, IOException, InvalidKeyException {
+
+        AttachmentStreamFactory asf = new AttachmentStreamFactory(
+                EncryptionTestConstants.keyProvider16Byte
+        );
+
+        File plainText = f("fixture/EncryptedAttachmentTest_plainText");
+        final byte[] data = FileUtils.readFileToByteArray(plainText);
+        final int failAt = data.length / 2;
+
+        PreparedAttachment.Writer writer = new PreparedAttachment.Writer(
+                datastore_manager_dir, asf);
+        try {
+            writer.write(new ByteArrayInputStream(data, 0, failAt) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    int read = super.read(b, off, len);
+                    if (read == -1) {
+                        throw new RuntimeException("Simulated connection failure");
+                    }
+                    return read;
+                }
+            });
+            Assert.fail("Expected the first write to fail");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        Assert.assertEquals(failAt, writer.getBytesWritten());
+        writer.write(new ByteArrayInputStream(data, failAt, data.length - failAt));
+        Assert.assertEquals(data.length, writer.getBytesWritten());
+
+        UnsavedFileAttachment usf = new UnsavedFileAttachment(plainText, "text/plain");
+        PreparedAttachment resumed = PreparedAttachment.fromWriter(usf, writer, 0);
+        PreparedAttachment expected = new PreparedAttachment(usf, datastore_manager_dir, 0, asf);
+
+        Assert.assertEquals(data.length, resumed.length);
+        Assert.assertArrayEquals(expected.sha1, resumed.sha1);
+        Assert.assertTrue("Resumed writing to encrypted stream didn't give correct output",
+                IOUtils.contentEquals(
+                        new EncryptedAttachmentInputStream(
+                                new FileInputStream(resumed.tempFile),
+                                EncryptionTestConstants.key16Byte),
+                        new FileInputStream(plainText)));
+    }
+
     private static File f(String filename) {
         return TestUtils.loadFixture(filename);
     }
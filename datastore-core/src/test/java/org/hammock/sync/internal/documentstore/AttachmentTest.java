@@ -26,6 +26,7 @@ import org.hammock.sync.documentstore.ConflictException;
 import org.hammock.sync.documentstore.DocumentBodyFactory;
 import org.hammock.sync.documentstore.DocumentException;
 import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.documentstore.StorageProfile;
 import org.hammock.sync.documentstore.UnsavedFileAttachment;
 import org.hammock.sync.documentstore.UnsavedStreamAttachment;
 import org.hammock.sync.documentstore.encryption.NullKeyProvider;
@@ -45,10 +46,16 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -93,6 +100,36 @@ public class AttachmentTest extends BasicDatastoreTestBase {
         }
     }
 
+    @Test
+    public void getAttachmentNames_severalRevisions_namesForRequestedRevisionsOnly() throws
+            Exception {
+        String att1Name = "attachment_1.txt";
+        String att2Name = "attachment_2.txt";
+        DocumentRevision rev_1Mut = new DocumentRevision();
+        rev_1Mut.setBody(bodyOne);
+        rev_1Mut.getAttachments().put(att1Name, new UnsavedFileAttachment(TestUtils.loadFixture
+                ("fixture/" + att1Name), "text/plain"));
+        DocumentRevision rev_1 = datastore.create(rev_1Mut);
+        rev_1.getAttachments().put(att2Name, new UnsavedFileAttachment(TestUtils.loadFixture
+                ("fixture/" + att2Name), "text/plain"));
+        DocumentRevision rev_2 = datastore.update(rev_1);
+        DocumentRevision other = new DocumentRevision();
+        other.setBody(bodyTwo);
+        other = datastore.create(other);
+
+        DocumentRevisionKey key1 = new DocumentRevisionKey(rev_1.getId(), rev_1.getRevision());
+        DocumentRevisionKey key2 = new DocumentRevisionKey(rev_2.getId(), rev_2.getRevision());
+        // the other document has no revision with this ID, only the first document does
+        DocumentRevisionKey otherKey = new DocumentRevisionKey(other.getId(), rev_2.getRevision());
+        Map<DocumentRevisionKey, Set<String>> names = datastore.getAttachmentNames(Arrays.asList
+                (key1, key2, otherKey));
+
+        Assert.assertEquals(2, names.size());
+        Assert.assertEquals(Collections.singleton(att1Name), names.get(key1));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(att1Name, att2Name)), names.get
+                (key2));
+    }
+
     // check that the transaction gets rolled back if one file is dodgy
     @Test
     public void setBadAttachmentsTest() throws Exception {
@@ -259,6 +296,43 @@ public class AttachmentTest extends BasicDatastoreTestBase {
         }
     }
 
+    @Test
+    public void attachmentsForMultipleRevisionsTest() throws Exception {
+        String att1Name = "attachment_1.txt";
+        String att2Name = "attachment_2.txt";
+        File att1File = TestUtils.loadFixture("fixture/" + att1Name);
+        File att2File = TestUtils.loadFixture("fixture/" + att2Name);
+
+        DocumentRevision doc1 = new DocumentRevision("doc1");
+        doc1.setBody(bodyOne);
+        doc1.getAttachments().put(att1Name, new UnsavedFileAttachment(att1File, "text/plain"));
+        doc1.getAttachments().put(att2Name, new UnsavedFileAttachment(att2File, "text/plain"));
+        datastore.create(doc1);
+        DocumentRevision doc2 = new DocumentRevision("doc2");
+        doc2.setBody(bodyTwo);
+        datastore.create(doc2);
+        DocumentRevision doc3 = new DocumentRevision("doc3");
+        doc3.setBody(bodyOne);
+        doc3.getAttachments().put(att2Name, new UnsavedFileAttachment(att2File, "text/plain"));
+        datastore.create(doc3);
+
+        List<DocumentRevision> docs = datastore.read(Arrays.asList("doc1", "doc2", "doc3"));
+        Assert.assertEquals(3, docs.size());
+        Map<String, DocumentRevision> byId = new HashMap<String, DocumentRevision>();
+        for (DocumentRevision doc : docs) {
+            byId.put(doc.getId(), doc);
+        }
+        Assert.assertEquals(2, byId.get("doc1").getAttachments().size());
+        Assert.assertTrue(byId.get("doc2").getAttachments().isEmpty());
+        Assert.assertEquals(1, byId.get("doc3").getAttachments().size());
+
+        // attachments are read back from the files their keys map to
+        Attachment att = byId.get("doc3").getAttachments().get(att2Name);
+        Assert.assertTrue(IOUtils.contentEquals(new FileInputStream(att2File),
+                att.getInputStream()));
+        Assert.assertFalse(((InternalDocumentRevision) byId.get("doc3")).isBodyModified());
+    }
+
     @Test
     public void duplicateAttachmentTest() throws Exception {
 
@@ -463,4 +537,54 @@ public class AttachmentTest extends BasicDatastoreTestBase {
         Assert.assertTrue(attachments.isEmpty());
     }
 
+    // reading attachments on a read-only connection must not wait for, or block, the writer
+    @Test
+    public void readWithAttachmentsIsNotBlockedByWriteInProgress() throws Exception {
+        String dir = TestUtils.createTempTestingDir(AttachmentTest.class.getName());
+        DatabaseImpl walDatabase = new DatabaseImpl(new File(dir, "db"), new File(dir,
+                "extensions"), new NullKeyProvider(), StorageProfile.THROUGHPUT);
+        try {
+            String attachmentName = "attachment_1.txt";
+            DocumentRevision rev_1Mut = new DocumentRevision();
+            rev_1Mut.setBody(bodyOne);
+            rev_1Mut.getAttachments().put(attachmentName, new UnsavedFileAttachment(TestUtils
+                    .loadFixture("fixture/" + attachmentName), "text/plain"));
+            DocumentRevision rev_1 = walDatabase.create(rev_1Mut);
+
+            final CountDownLatch writeStarted = new CountDownLatch(1);
+            final CountDownLatch finishWrite = new CountDownLatch(1);
+            Future<Void> write = walDatabase.runOnDbQueue(new SQLCallable<Void>() {
+                @Override
+                public Void call(SQLDatabase db) throws Exception {
+                    db.beginTransaction();
+                    try {
+                        db.execSQL("CREATE TABLE write_in_progress (id INTEGER);");
+                        writeStarted.countDown();
+                        Assert.assertTrue(finishWrite.await(1, TimeUnit.MINUTES));
+                    } finally {
+                        // rolled back, as it was never marked successful
+                        db.endTransaction();
+                    }
+                    return null;
+                }
+            });
+            try {
+                Assert.assertTrue(writeStarted.await(1, TimeUnit.MINUTES));
+
+                DocumentRevision read = walDatabase.read(rev_1.getId());
+                Assert.assertTrue(read.getAttachments().containsKey(attachmentName));
+                Assert.assertNotNull(walDatabase.getAttachment(rev_1.getId(), rev_1.getRevision(),
+                        attachmentName));
+                Assert.assertTrue(walDatabase.attachmentsForRevision((InternalDocumentRevision)
+                        rev_1).containsKey(attachmentName));
+            } finally {
+                finishWrite.countDown();
+            }
+            write.get();
+        } finally {
+            walDatabase.close();
+            TestUtils.deleteTempTestingDir(dir);
+        }
+    }
+
 }
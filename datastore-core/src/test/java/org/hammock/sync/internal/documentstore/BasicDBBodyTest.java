@@ -26,6 +26,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -97,6 +98,54 @@ public class BasicDBBodyTest {
         Assert.assertTrue(m.get("IntegerValue").equals(2147483647)); // Integer.MAX_VALUE
     }
 
+    @Test
+    public void asReadOnlyMap_matchesAsMap() throws Exception {
+        DocumentBody body = new DocumentBodyImpl(jsonData);
+        Map<String, Object> readOnly = body.asReadOnlyMap();
+        assertMapIsCorrect(readOnly);
+        Assert.assertEquals(body.asMap(), readOnly);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void asReadOnlyMap_cannotModifyTopLevel() throws Exception {
+        new DocumentBodyImpl(jsonData).asReadOnlyMap().put("Sunrise", false);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void asReadOnlyMap_cannotModifyNestedArray() throws Exception {
+        ((List) new DocumentBodyImpl(jsonData).asReadOnlyMap().get("Activities")).clear();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void asReadOnlyMap_defaultCannotModifyNestedArray() throws Exception {
+        final DocumentBody body = new DocumentBodyImpl(jsonData);
+        // only implements the abstract methods, so uses the default asReadOnlyMap
+        DocumentBody minimal = new DocumentBody() {
+            @Override
+            public Map<String, Object> asMap() {
+                return body.asMap();
+            }
+
+            @Override
+            public byte[] asBytes() {
+                return body.asBytes();
+            }
+        };
+        ((List) minimal.asReadOnlyMap().get("Activities")).clear();
+    }
+
+    @Test
+    public void asReadOnlyBytes_matchesAsBytes() throws Exception {
+        DocumentBody body = new DocumentBodyImpl(jsonData);
+        ByteBuffer buffer = body.asReadOnlyBytes();
+        Assert.assertTrue(buffer.isReadOnly());
+        byte[] read = new byte[buffer.remaining()];
+        buffer.get(read);
+        Assert.assertTrue(Arrays.equals(jsonData, read));
+        // each view has its own position
+        Assert.assertEquals(jsonData.length, body.asReadOnlyBytes().remaining());
+    }
+
     private void assertMapIsCorrect(Map<String, Object> actualMap) {
         Assert.assertEquals(5, actualMap.size());
         Assert.assertTrue((Boolean) actualMap.get("Sunrise"));
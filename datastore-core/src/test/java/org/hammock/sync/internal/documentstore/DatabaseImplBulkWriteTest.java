@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore;
+
+import org.hammock.sync.documentstore.ConflictException;
+import org.hammock.sync.documentstore.DocumentNotFoundException;
+import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.documentstore.DocumentWriteResult;
+import org.hammock.sync.event.Subscribe;
+import org.hammock.sync.event.notifications.DocumentCreated;
+import org.hammock.sync.event.notifications.DocumentDeleted;
+import org.hammock.sync.event.notifications.DocumentModified;
+import org.hammock.sync.event.notifications.DocumentUpdated;
+import org.hammock.sync.event.notifications.DocumentsModified;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DatabaseImplBulkWriteTest extends BasicDatastoreTestBase {
+
+    List<DocumentsModified> bulkEvents = new ArrayList<DocumentsModified>();
+    List<DocumentModified> singleEvents = new ArrayList<DocumentModified>();
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        datastore.getEventBus().register(this);
+    }
+
+    @Test
+    public void createAll_duplicateIdOnlyFailsThatDocument() throws Exception {
+        DocumentRevision existing = new DocumentRevision("existing");
+        existing.setBody(bodyOne);
+        datastore.create(existing);
+        singleEvents.clear();
+
+        DocumentRevision first = new DocumentRevision("first");
+        first.setBody(bodyOne);
+        DocumentRevision duplicate = new DocumentRevision("existing");
+        duplicate.setBody(bodyTwo);
+        DocumentRevision generated = new DocumentRevision();
+        generated.setBody(bodyTwo);
+
+        List<DocumentWriteResult> results = datastore.createAll(Arrays.asList(first, duplicate,
+                generated));
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertTrue(results.get(0).isSuccessful());
+        Assert.assertEquals("first", results.get(0).getRevision().getId());
+        Assert.assertFalse(results.get(1).isSuccessful());
+        Assert.assertTrue(results.get(1).getError() instanceof ConflictException);
+        Assert.assertSame(duplicate, results.get(1).getInput());
+        Assert.assertTrue(results.get(2).isSuccessful());
+        Assert.assertNotNull(results.get(2).getRevision().getId());
+
+        Assert.assertEquals(3, datastore.getDocumentCount());
+        Assert.assertEquals(bodyOne.asMap(), datastore.read("existing").getBody().asMap());
+
+        Assert.assertEquals(1, bulkEvents.size());
+        Assert.assertEquals(2, bulkEvents.get(0).events.size());
+        Assert.assertTrue(bulkEvents.get(0).events.get(0) instanceof DocumentCreated);
+        Assert.assertTrue(singleEvents.isEmpty());
+    }
+
+    @Test
+    public void updateAll_staleRevisionOnlyFailsThatDocument() throws Exception {
+        DocumentRevision one = new DocumentRevision("one");
+        one.setBody(bodyOne);
+        one = datastore.create(one);
+        DocumentRevision two = new DocumentRevision("two");
+        two.setBody(bodyOne);
+        two = datastore.create(two);
+        DocumentRevision stale = datastore.read("two");
+        two.setBody(bodyTwo);
+        datastore.update(two);
+
+        one.setBody(bodyTwo);
+        stale.setBody(bodyTwo);
+        List<DocumentWriteResult> results = datastore.updateAll(Arrays.asList(one, stale));
+
+        Assert.assertTrue(results.get(0).isSuccessful());
+        Assert.assertTrue(results.get(0).getRevision().getRevision().startsWith("2-"));
+        Assert.assertTrue(results.get(1).getError() instanceof ConflictException);
+        Assert.assertEquals(bodyTwo.asMap(), datastore.read("one").getBody().asMap());
+
+        Assert.assertEquals(1, bulkEvents.size());
+        Assert.assertEquals(1, bulkEvents.get(0).events.size());
+        DocumentModified event = bulkEvents.get(0).events.get(0);
+        Assert.assertTrue(event instanceof DocumentUpdated);
+        Assert.assertTrue(event.prevDocument.getRevision().startsWith("1-"));
+    }
+
+    @Test
+    public void deleteAll_deletesDocumentsAndReportsMissingOnes() throws Exception {
+        DocumentRevision one = new DocumentRevision("one");
+        one.setBody(bodyOne);
+        one = datastore.create(one);
+        DocumentRevision local = new DocumentRevision("_local/settings");
+        local.setBody(bodyOne);
+        datastore.create(local);
+        DocumentRevision missing = new DocumentRevision("_local/missing");
+
+        List<DocumentWriteResult> results = datastore.deleteAll(Arrays.asList(one, local,
+                missing));
+
+        Assert.assertTrue(results.get(0).isSuccessful());
+        Assert.assertTrue(results.get(0).getRevision().isDeleted());
+        Assert.assertTrue(results.get(1).isSuccessful());
+        Assert.assertNull(results.get(1).getRevision());
+        Assert.assertTrue(results.get(2).getError() instanceof DocumentNotFoundException);
+        Assert.assertEquals(0, datastore.getDocumentCount());
+
+        Assert.assertEquals(1, bulkEvents.size());
+        Assert.assertEquals(2, bulkEvents.get(0).events.size());
+        Assert.assertTrue(bulkEvents.get(0).events.get(1) instanceof DocumentDeleted);
+    }
+
+    @Test
+    public void createAll_invalidRevisionOnlyFailsThatDocument() throws Exception {
+        DocumentRevision valid = new DocumentRevision("valid");
+        valid.setBody(bodyOne);
+        DocumentRevision withRevision = new DocumentRevision("invalid", "1-abc");
+        withRevision.setBody(bodyOne);
+
+        List<DocumentWriteResult> results = datastore.createAll(Arrays.asList(valid,
+                withRevision));
+
+        Assert.assertTrue(results.get(0).isSuccessful());
+        Assert.assertTrue(results.get(1).getError() instanceof IllegalArgumentException);
+        Assert.assertEquals(1, datastore.getDocumentCount());
+    }
+
+    @Test
+    public void createAll_noSuccessfulWritesPostsNoEvent() throws Exception {
+        List<DocumentWriteResult> results = datastore.createAll(new
+                ArrayList<DocumentRevision>());
+        Assert.assertTrue(results.isEmpty());
+        Assert.assertTrue(bulkEvents.isEmpty());
+    }
+
+    @Test
+    public void commitWrites_failedNestedTransactionOnlyFailsThatDocument() throws Exception {
+        DocumentRevision first = new DocumentRevision("first");
+        first.setBody(bodyOne);
+        DocumentRevision nested = new DocumentRevision("nested");
+        nested.setBody(bodyOne);
+        DocumentRevision last = new DocumentRevision("last");
+        last.setBody(bodyOne);
+
+        final DatabaseImpl.PreparedWrite create = datastore.prepareWrite(1, nested,
+                DatabaseImpl.WriteOperation.CREATE);
+        DatabaseImpl.PreparedWrite nestedRollback = new DatabaseImpl.PreparedWrite(1, nested) {
+            @Override
+            public DocumentModified call(SQLDatabase db) throws Exception {
+                DocumentModified event = create.call(db);
+                // end a nested transaction without marking it successful, as
+                // AttachmentManager.fileFromKey does if it can't read the database
+                db.beginTransaction();
+                db.endTransaction();
+                return event;
+            }
+        };
+        DocumentWriteResult[] results = new DocumentWriteResult[3];
+        datastore.commitWrites(Arrays.asList(
+                datastore.prepareWrite(0, first, DatabaseImpl.WriteOperation.CREATE),
+                nestedRollback,
+                datastore.prepareWrite(2, last, DatabaseImpl.WriteOperation.CREATE)), results);
+
+        Assert.assertTrue(results[0].isSuccessful());
+        Assert.assertFalse(results[1].isSuccessful());
+        Assert.assertTrue(results[2].isSuccessful());
+        // the other documents were committed, and nothing from the failed write was
+        Assert.assertEquals(2, datastore.getDocumentCount());
+        Assert.assertNotNull(datastore.read("first"));
+        Assert.assertNotNull(datastore.read("last"));
+        Assert.assertFalse(datastore.contains("nested"));
+
+        Assert.assertEquals(1, bulkEvents.size());
+        Assert.assertEquals(2, bulkEvents.get(0).events.size());
+    }
+
+    @Subscribe
+    public void onBulkWrite(DocumentsModified dm) {
+        bulkEvents.add(dm);
+    }
+
+    @Subscribe
+    public void onWrite(DocumentModified dm) {
+        singleEvents.add(dm);
+    }
+}
@@ -34,6 +34,7 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -193,6 +194,28 @@ public class DatabaseImplConflictsTest extends BasicDatastoreTestBase {
         Assert.assertEquals("Tom", newWinner.getBody().asMap().get("name"));
     }
 
+    @Test
+    public void getRevisionTreesMetadata_conflictedDocument_sameTreeWithoutBodies()
+            throws Exception {
+        String docId = this.createConflictedDocument();
+        DocumentRevisionTree fullTree = this.datastore.getAllRevisionsOfDocument(docId);
+
+        Map<String, DocumentRevisionTree> trees = this.datastore.getRevisionTreesMetadata(
+                Arrays.asList(docId, "missing"));
+
+        Assert.assertEquals(1, trees.size());
+        DocumentRevisionTree tree = trees.get(docId);
+        Assert.assertTrue(tree.hasConflicts());
+        Assert.assertEquals(fullTree.leafRevisionIds(), tree.leafRevisionIds());
+        Assert.assertEquals(fullTree.getCurrentRevision().getRevision(),
+                tree.getCurrentRevision().getRevision());
+        for (InternalDocumentRevision leaf : fullTree.leafRevisions()) {
+            Assert.assertEquals(fullTree.getPath(leaf.getSequence()),
+                    tree.getPath(leaf.getSequence()));
+            Assert.assertNull(tree.bySequence(leaf.getSequence()).getBody());
+        }
+    }
+
     // attachments on the non-current document, check they get copied over when we select it
     @Test
     public void resolveConflictsForDocument_twoConflictAndNewWinner_newWinnerInsertedWithAttachments()
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore;
+
+import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.internal.common.ValueListMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class DatabaseImplPossibleAncestorsTest extends BasicDatastoreTestBase {
+
+    @Test
+    public void getPossibleAncestorRevisionIDs_manyDocs_sameAsOneAtATime() throws Exception {
+        ValueListMap<String, String> revs = new ValueListMap<String, String>();
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 600; i++) {
+            DocumentRevision revMut = new DocumentRevision();
+            revMut.setBody(bodyOne);
+            DocumentRevision rev = datastore.create(revMut);
+            if (i % 2 == 0) {
+                rev.setBody(bodyTwo);
+                rev = datastore.update(rev);
+            }
+            ids.add(rev.getId());
+            revs.addValueToKey(rev.getId(), "3-a");
+            revs.addValueToKey(rev.getId(), "1-b");
+        }
+        revs.addValueToKey("missing", "2-a");
+
+        Map<String, List<String>> ancestors = datastore.getPossibleAncestorRevisionIDs(revs, 50);
+
+        Assert.assertFalse(ancestors.containsKey("missing"));
+        for (String id : ids) {
+            HashSet<String> expected = new HashSet<String>();
+            for (String revId : revs.get(id)) {
+                List<String> these = datastore.getPossibleAncestorRevisionIDs(id, revId, 50);
+                if (these != null) {
+                    expected.addAll(these);
+                }
+            }
+            Assert.assertFalse(expected.isEmpty());
+            Assert.assertEquals(expected, new HashSet<String>(ancestors.get(id)));
+        }
+    }
+
+    @Test
+    public void getPossibleAncestorRevisionIDs_firstGenerationOnly_returnNothing() throws
+            Exception {
+        DocumentRevision revMut = new DocumentRevision();
+        revMut.setBody(bodyOne);
+        DocumentRevision rev = datastore.create(revMut);
+        ValueListMap<String, String> revs = new ValueListMap<String, String>();
+        revs.addValueToKey(rev.getId(), "1-a");
+
+        Assert.assertTrue(datastore.getPossibleAncestorRevisionIDs(revs, 50).isEmpty());
+    }
+}
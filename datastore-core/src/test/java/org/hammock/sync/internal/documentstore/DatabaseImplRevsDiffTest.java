@@ -24,6 +24,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -144,4 +145,33 @@ public class DatabaseImplRevsDiffTest extends BasicDatastoreTestBase{
         Assert.assertFalse(missing.get(rev1.getId()).contains(rev1.getRevision()));
     }
 
+    @Test
+    public void revsDiff_manyDocs_onlyNonExistingRevisionsReturned() throws Exception {
+        // more doc and rev IDs than fit in the placeholders of one query
+        List<DocumentRevision> docs = new ArrayList<DocumentRevision>();
+        for (int i = 0; i < 400; i++) {
+            DocumentRevision revMut = new DocumentRevision();
+            revMut.setBody(bodyOne);
+            docs.add(datastore.create(revMut));
+        }
+
+        ValueListMap<String, String> revs = new ValueListMap<String, String>();
+        for (int i = 0; i < docs.size(); i++) {
+            DocumentRevision doc = docs.get(i);
+            revs.addValueToKey(doc.getId(), doc.getRevision());
+            revs.addValueToKey(doc.getId(), "2-a");
+            // exists, but as a revision of a different document
+            revs.addValueToKey(doc.getId(), docs.get((i + 1) % docs.size()).getRevision());
+        }
+
+        Map<String, List<String>> missing = datastore.revsDiff(revs);
+        Assert.assertEquals(docs.size(), missing.size());
+        for (int i = 0; i < docs.size(); i++) {
+            List<String> docMissing = missing.get(docs.get(i).getId());
+            Assert.assertEquals(2, docMissing.size());
+            Assert.assertTrue(docMissing.contains("2-a"));
+            Assert.assertTrue(docMissing.contains(docs.get((i + 1) % docs.size()).getRevision()));
+        }
+    }
+
 }
@@ -19,6 +19,7 @@ package org.hammock.sync.internal.documentstore;
 import org.hammock.sync.documentstore.Attachment;
 import org.hammock.sync.documentstore.DocumentException;
 import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.documentstore.UnsavedStreamAttachment;
 import org.hammock.sync.event.Subscribe;
 import org.hammock.sync.event.notifications.DocumentCreated;
 import org.hammock.sync.event.notifications.DocumentUpdated;
@@ -29,11 +30,14 @@ import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
@@ -173,6 +177,36 @@ public class ForceInsertTest extends BasicDatastoreTestBase {
 
     }
 
+    @Test
+    public void forceinsertWithPreparedAttachments_conflicts_attachedToOwnRevisionOnly() throws
+            Exception {
+        DocumentRevision doc1_rev1Mut = new DocumentRevision();
+        doc1_rev1Mut.setBody(bodyOne);
+        DocumentRevision doc1_rev1 = datastore.create(doc1_rev1Mut);
+
+        // the prepared attachments for both revisions are shared by both items, as when pulling
+        Map<DocumentRevisionKey, Map<String, PreparedAttachment>> prepared = new
+                HashMap<DocumentRevisionKey, Map<String, PreparedAttachment>>();
+        List<ForceInsertItem> items = new ArrayList<ForceInsertItem>();
+        for (String revId : Arrays.asList("2-a", "2-b")) {
+            byte[] data = ("data for " + revId).getBytes(StandardCharsets.UTF_8);
+            PreparedAttachment pa = datastore.prepareAttachment(new UnsavedStreamAttachment(new
+                    ByteArrayInputStream(data), "text/plain"), data.length, 0);
+            prepared.put(new DocumentRevisionKey(doc1_rev1.getId(), revId),
+                    Collections.singletonMap("att-" + revId, pa));
+            InternalDocumentRevision rev = new DocumentRevisionBuilder().setDocId(doc1_rev1.getId())
+                    .setRevId(revId).setBody(bodyOne).build();
+            items.add(new ForceInsertItem(rev, Arrays.asList(doc1_rev1.getRevision(), revId),
+                    null, prepared, false));
+        }
+        datastore.forceInsert(items);
+
+        Assert.assertNotNull(datastore.getAttachment(doc1_rev1.getId(), "2-a", "att-2-a"));
+        Assert.assertNull(datastore.getAttachment(doc1_rev1.getId(), "2-a", "att-2-b"));
+        Assert.assertNotNull(datastore.getAttachment(doc1_rev1.getId(), "2-b", "att-2-b"));
+        Assert.assertNull(datastore.getAttachment(doc1_rev1.getId(), "2-b", "att-2-a"));
+    }
+
     // some tests don't care about these events so we need to check for null
     @Subscribe
     public void onDocumentCreated(DocumentCreated dc) {
@@ -156,4 +156,42 @@ public class MultipartAttachmentWriterTests {
         Assert.assertTrue(TestUtils.streamsEqual(fis, new ByteArrayInputStream(bos.toByteArray())));
     }
 
+    @Test
+    public void ReadMethodsGiveSameBytesTest() throws Exception {
+        MultipartAttachmentWriter mpw = new MultipartAttachmentWriter();
+        mpw.setBody(bodyOne.asMap());
+
+        // binary data, so bytes with the top bit set are read
+        File f = TestUtils.loadFixture("fixture/bonsai-boston.jpg");
+        Attachment att0 = new UnsavedFileAttachment(f, "image/jpeg");
+        mpw.addAttachment(att0, f.length());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        InputStream is = mpw.makeInputStream();
+        byte buf[] = new byte[chunkSize];
+        int amountRead;
+        while ((amountRead = is.read(buf)) > 0) {
+            expected.write(buf, 0, amountRead);
+        }
+        Assert.assertEquals(mpw.getContentLength(), expected.size());
+
+        // read into the middle of a larger buffer
+        ByteArrayOutputStream withOffset = new ByteArrayOutputStream();
+        is = mpw.makeInputStream();
+        byte offsetBuf[] = new byte[chunkSize + 2];
+        while ((amountRead = is.read(offsetBuf, 1, chunkSize)) > 0) {
+            withOffset.write(offsetBuf, 1, amountRead);
+        }
+        Assert.assertArrayEquals(expected.toByteArray(), withOffset.toByteArray());
+
+        // read one byte at a time
+        ByteArrayOutputStream singleBytes = new ByteArrayOutputStream();
+        is = mpw.makeInputStream();
+        int b;
+        while ((b = is.read()) != -1) {
+            singleBytes.write(b);
+        }
+        Assert.assertArrayEquals(expected.toByteArray(), singleBytes.toByteArray());
+    }
+
 }
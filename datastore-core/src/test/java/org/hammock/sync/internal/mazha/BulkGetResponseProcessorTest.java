@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.mazha;
+
+import org.hammock.sync.internal.documentstore.DocumentRevsList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+public class BulkGetResponseProcessorTest {
+
+    private static List<DocumentRevsList> process(String json) throws IOException {
+        return new BulkGetResponseProcessor().processStream(new ByteArrayInputStream(json
+                .getBytes("UTF-8")));
+    }
+
+    private static int count(DocumentRevsList list) {
+        int count = 0;
+        for (DocumentRevs ignored : list) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void processStream_revisionsGroupedByIdInResponseOrder() throws IOException {
+        List<DocumentRevsList> revs = process("{\"results\":[" +
+                "{\"id\":\"b\",\"docs\":[{\"ok\":{\"_id\":\"b\",\"_rev\":\"1-x\"," +
+                "\"_revisions\":{\"start\":1,\"ids\":[\"x\"]},\"n\":1}}]}," +
+                "{\"id\":\"a\",\"docs\":[{\"ok\":{\"_id\":\"a\",\"_rev\":\"2-x\"," +
+                "\"_revisions\":{\"start\":2,\"ids\":[\"x\",\"w\"]}}}]}," +
+                "{\"id\":\"a\",\"docs\":[{\"ok\":{\"_id\":\"a\",\"_rev\":\"2-y\"," +
+                "\"_revisions\":{\"start\":2,\"ids\":[\"y\",\"w\"]},\"_deleted\":true}}]}]}");
+
+        Assert.assertEquals(2, revs.size());
+        Assert.assertEquals(1, count(revs.get(0)));
+        Assert.assertEquals("b", revs.get(0).get(0).getId());
+        Assert.assertEquals(1, revs.get(0).get(0).getOthers().get("n"));
+        Assert.assertEquals(2, count(revs.get(1)));
+        for (DocumentRevs documentRevs : revs.get(1)) {
+            Assert.assertEquals("a", documentRevs.getId());
+            Assert.assertEquals(2, documentRevs.getRevisions().getStart());
+        }
+    }
+
+    @Test
+    public void processStream_errorsAndUnknownFieldsSkipped() throws IOException {
+        List<DocumentRevsList> revs = process("{\"extra\":{\"nested\":[1,2]},\"results\":[" +
+                "{\"id\":\"a\",\"docs\":[{\"error\":{\"id\":\"a\",\"rev\":\"1-x\"," +
+                "\"error\":\"not_found\",\"reason\":\"missing\"}}]}," +
+                "{\"id\":\"b\",\"docs\":[{\"ok\":{\"_id\":\"b\",\"_rev\":\"1-y\"," +
+                "\"_revisions\":{\"start\":1,\"ids\":[\"y\"]}}}]}]}");
+
+        Assert.assertEquals(1, revs.size());
+        Assert.assertEquals("b", revs.get(0).get(0).getId());
+    }
+
+    @Test(expected = IOException.class)
+    public void processStream_truncatedResponse_throws() throws IOException {
+        process("{\"results\":[{\"id\":\"a\",\"docs\":[{\"ok\":{\"_id\":\"a\",\"_re");
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.mazha;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.hammock.sync.http.HttpConnection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Checks that a response which fails part way through is resumed with a {@code Range} request
+ * where the server allows it, and is otherwise started again from the beginning.
+ */
+public class CouchClientResumeTest {
+
+    private static final byte[] DATA = "0123456789".getBytes();
+
+    private final CouchClient client = new CouchClient(URI.create("http://127.0.0.1:5984/db"),
+            null, null);
+
+    @Test
+    public void resumesFromOffsetOnPartialContent() throws Exception {
+        ScriptedConnection connection = new ScriptedConnection(
+                response(200, null, new FailingInputStream(DATA, 4)),
+                response(206, "bytes 4-9/10", new ByteArrayInputStream(DATA, 4, 6)));
+        BytesProcessor processor = new BytesProcessor();
+
+        Assert.assertArrayEquals(DATA, client.executeWithResume(connection, processor));
+        Assert.assertEquals(Arrays.asList(null, "bytes=4-"), connection.ranges);
+        Assert.assertEquals(0, processor.discards);
+    }
+
+    @Test
+    public void restartsFromBeginningOnWholeResponse() throws Exception {
+        ScriptedConnection connection = new ScriptedConnection(
+                response(200, null, new FailingInputStream(DATA, 4)),
+                response(200, null, new ByteArrayInputStream(DATA)));
+        BytesProcessor processor = new BytesProcessor();
+
+        Assert.assertArrayEquals(DATA, client.executeWithResume(connection, processor));
+        Assert.assertEquals(Arrays.asList(null, "bytes=4-"), connection.ranges);
+        Assert.assertEquals(1, processor.discards);
+    }
+
+    @Test
+    public void restartsFromBeginningOnRangeNotSatisfiable() throws Exception {
+        ScriptedConnection connection = new ScriptedConnection(
+                response(200, null, new FailingInputStream(DATA, 4)),
+                response(416, "bytes */10", null),
+                response(200, null, new ByteArrayInputStream(DATA)));
+        BytesProcessor processor = new BytesProcessor();
+
+        Assert.assertArrayEquals(DATA, client.executeWithResume(connection, processor));
+        Assert.assertEquals(Arrays.asList(null, "bytes=4-", null), connection.ranges);
+        Assert.assertEquals(1, processor.discards);
+    }
+
+    @Test
+    public void restartsFromBeginningOnDifferentRange() throws Exception {
+        ScriptedConnection connection = new ScriptedConnection(
+                response(200, null, new FailingInputStream(DATA, 4)),
+                response(206, "bytes 0-9/10", new ByteArrayInputStream(DATA)),
+                response(200, null, new ByteArrayInputStream(DATA)));
+        BytesProcessor processor = new BytesProcessor();
+
+        Assert.assertArrayEquals(DATA, client.executeWithResume(connection, processor));
+        Assert.assertEquals(Arrays.asList(null, "bytes=4-", null), connection.ranges);
+        Assert.assertEquals(1, processor.discards);
+    }
+
+    @Test
+    public void getContentRangeStartValid() throws Exception {
+        Assert.assertEquals(4, contentRangeStart("bytes 4-9/10"));
+        Assert.assertEquals(4, contentRangeStart("bytes 4-9/*"));
+        Assert.assertEquals(0, contentRangeStart("bytes 0-9/10"));
+    }
+
+    @Test
+    public void getContentRangeStartInvalid() throws Exception {
+        Assert.assertEquals(-1, contentRangeStart(null));
+        Assert.assertEquals(-1, contentRangeStart(""));
+        Assert.assertEquals(-1, contentRangeStart("items 4-9/10"));
+        Assert.assertEquals(-1, contentRangeStart("bytes */10"));
+        Assert.assertEquals(-1, contentRangeStart("bytes x-9/10"));
+    }
+
+    private static long contentRangeStart(String contentRange) throws Exception {
+        ScriptedConnection connection = new ScriptedConnection(response(206, contentRange,
+                new ByteArrayInputStream(DATA)));
+        connection.execute();
+        return CouchClient.getContentRangeStart(connection);
+    }
+
+    private static HttpURLConnection response(int responseCode, String contentRange,
+                                              InputStream body) throws IOException {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(connection.getResponseCode()).thenReturn(responseCode);
+        when(connection.getHeaderField("Content-Range")).thenReturn(contentRange);
+        if (body != null) {
+            when(connection.getInputStream()).thenReturn(body);
+        } else {
+            when(connection.getInputStream()).thenThrow(new IOException("HTTP " + responseCode));
+        }
+        return connection;
+    }
+
+    /**
+     * Gives each call to {@link #execute()} the next of a fixed list of responses, recording
+     * the {@code Range} header it was called with.
+     */
+    private static class ScriptedConnection extends HttpConnection {
+
+        private final List<String> ranges = new ArrayList<String>();
+        private final Queue<HttpURLConnection> responses;
+        private HttpURLConnection current;
+
+        ScriptedConnection(HttpURLConnection... responses) throws IOException {
+            super("GET", new URL("http://127.0.0.1:5984/db/doc/att"), null);
+            this.responses = new LinkedList<HttpURLConnection>(Arrays.asList(responses));
+        }
+
+        @Override
+        public HttpConnection execute() throws IOException {
+            ranges.add(requestProperties.get("Range"));
+            current = responses.remove();
+            return this;
+        }
+
+        @Override
+        public HttpURLConnection getConnection() {
+            return current;
+        }
+
+        @Override
+        public InputStream responseAsInputStream() throws IOException {
+            return current.getInputStream();
+        }
+    }
+
+    /**
+     * Collects the response's bytes, keeping those read before a failure.
+     */
+    private static class BytesProcessor implements CouchClient
+            .ResumableInputStreamProcessor<byte[]> {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int discards = 0;
+
+        @Override
+        public byte[] processStream(InputStream stream) throws IOException {
+            int b;
+            while ((b = stream.read()) != -1) {
+                bytes.write(b);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public long getBytesProcessed() {
+            return bytes.size();
+        }
+
+        @Override
+        public void discard() {
+            bytes.reset();
+            discards++;
+        }
+    }
+
+    /**
+     * Gives the first {@code failAfter} bytes of {@code data}, then fails.
+     */
+    private static class FailingInputStream extends InputStream {
+
+        private final byte[] data;
+        private final int failAfter;
+        private int pos = 0;
+
+        FailingInputStream(byte[] data, int failAfter) {
+            this.data = data;
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= failAfter) {
+                throw new IOException("Connection reset");
+            }
+            return data[pos++] & 0xff;
+        }
+    }
+}
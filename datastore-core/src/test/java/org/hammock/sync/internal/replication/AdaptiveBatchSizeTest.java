@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.replication;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveBatchSizeTest {
+
+    private static final long TARGET_MILLIS = 1000;
+
+    private static final long MAX_BYTES = 1000;
+
+    private static AdaptiveBatchSize sizing(int min, int max, int initial) {
+        return new AdaptiveBatchSize(min, max, initial, TARGET_MILLIS, MAX_BYTES);
+    }
+
+    @Test
+    public void constructor_initialSizeOutOfBounds_clamped() {
+        Assert.assertEquals(10, sizing(10, 20, 1).get());
+        Assert.assertEquals(20, sizing(10, 20, 100).get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_maxLessThanMin_throws() {
+        sizing(10, 5, 5);
+    }
+
+    @Test
+    public void batchCompleted_quickFullBatches_growUpToMax() {
+        AdaptiveBatchSize sizing = sizing(1, 30, 16);
+        sizing.batchCompleted(16, 100, 10);
+        Assert.assertEquals(20, sizing.get());
+        sizing.batchCompleted(20, 100, 10);
+        Assert.assertEquals(25, sizing.get());
+        sizing.batchCompleted(25, 100, 10);
+        Assert.assertEquals(30, sizing.get());
+    }
+
+    @Test
+    public void batchCompleted_quickPartialBatch_unchanged() {
+        AdaptiveBatchSize sizing = sizing(1, 100, 16);
+        sizing.batchCompleted(3, 100, 10);
+        Assert.assertEquals(16, sizing.get());
+    }
+
+    @Test
+    public void batchCompleted_slowBatch_shrinksByAtMostHalf() {
+        AdaptiveBatchSize sizing = sizing(1, 100, 40);
+        sizing.batchCompleted(40, -1, 1250);
+        Assert.assertEquals(32, sizing.get());
+        sizing.batchCompleted(32, -1, 100000);
+        Assert.assertEquals(16, sizing.get());
+    }
+
+    @Test
+    public void batchCompleted_largeBatch_shrinks() {
+        AdaptiveBatchSize sizing = sizing(1, 100, 40);
+        sizing.batchCompleted(40, 1600, 10);
+        Assert.assertEquals(25, sizing.get());
+    }
+
+    @Test
+    public void batchCompleted_slowBatches_notBelowMin() {
+        AdaptiveBatchSize sizing = sizing(5, 100, 8);
+        sizing.batchCompleted(8, -1, 100000);
+        sizing.batchCompleted(5, -1, 100000);
+        Assert.assertEquals(5, sizing.get());
+    }
+}
@@ -16,6 +16,9 @@
 
 package org.hammock.sync.internal.replication;
 
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -27,11 +30,16 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Test GetRevisionTask.
@@ -87,6 +95,46 @@ public class GetRevisionTaskTest {
         verify(sourceDB).getRevisions(docId, revIds, attsSince, pullAttachmentsInline);
     }
 
+    @Test
+    public void test_shared_executor_requests_interleaved() throws Exception {
+        final List<String> fetched = Collections.synchronizedList(new ArrayList<String>());
+        CouchDB sourceDB = mock(CouchDB.class);
+        when(sourceDB.getRevisions(anyString(), anyCollection(), anyCollection(), anyBoolean()))
+                .thenAnswer(new Answer<List<DocumentRevs>>() {
+                    @Override
+                    public List<DocumentRevs> answer(InvocationOnMock invocation) {
+                        fetched.add((String) invocation.getArguments()[0]);
+                        return new ArrayList<DocumentRevs>();
+                    }
+                });
+
+        List<BulkGetRequest> requestsA = new ArrayList<BulkGetRequest>();
+        for (int i = 0; i < 5; i++) {
+            requestsA.add(new BulkGetRequest("a" + i, Arrays.asList("1-a"), new
+                    ArrayList<String>()));
+        }
+        List<BulkGetRequest> requestsB = new ArrayList<BulkGetRequest>();
+        requestsB.add(new BulkGetRequest("b", Arrays.asList("1-b"), new ArrayList<String>()));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Iterable<DocumentRevsList> taskA = new GetRevisionTaskThreaded(sourceDB, requestsA,
+                    pullAttachmentsInline, executor, 1);
+            Iterable<DocumentRevsList> taskB = new GetRevisionTaskThreaded(sourceDB, requestsB,
+                    pullAttachmentsInline, executor, 1);
+            for (DocumentRevsList revs : taskA) {
+            }
+            for (DocumentRevsList revs : taskB) {
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // b's only request waited behind one of a's requests rather than all of them
+        Assert.assertEquals(6, fetched.size());
+        Assert.assertEquals("b", fetched.get(1));
+    }
+
     public void test_exceptions_propagate()
         throws Exception {
         CouchDB sourceDB = mock(CouchDB.class);
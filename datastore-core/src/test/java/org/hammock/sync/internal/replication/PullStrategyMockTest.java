@@ -19,6 +19,7 @@ package org.hammock.sync.internal.replication;
 import static org.junit.Assume.assumeNoException;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doThrow;
@@ -233,6 +234,73 @@ public class PullStrategyMockTest extends ReplicationTestBase {
         verify(mockListener,never()).error(any(ReplicationStrategyErrored.class));
     }
 
+    @Test
+    public void call_revisionFetchError_pullAbortedWithoutCheckpoint() throws Exception {
+        CouchDB mockRemoteDb = mock(CouchDB.class);
+        when(mockRemoteDb.changes((PullFilter) null, null, 1000)).then(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                FileReader fr = new FileReader(TestUtils.loadFixture
+                        ("fixture/testReplicationDocWithEmptyId_changes.json"));
+                return JSONUtils.fromJson(fr, ChangesResult.class);
+            }
+        });
+        when(mockRemoteDb.exists()).thenReturn(true);
+        doThrow(new RuntimeException("Mocked error.")).when(mockRemoteDb).getRevisions
+                (anyString(), any(Collection.class), any(Collection.class), anyBoolean());
+
+        StrategyListener mockListener = mock(StrategyListener.class);
+        PullStrategy pullStrategy = super.getPullStrategy();
+        pullStrategy.sourceDb = mockRemoteDb;
+        pullStrategy.getEventBus().register(mockListener);
+        pullStrategy.run();
+
+        // the failure in the revision fetching stage ends the replication
+        verify(mockListener).error(any(ReplicationStrategyErrored.class));
+        verify(mockListener, never()).complete(any(ReplicationStrategyCompleted.class));
+        Assert.assertEquals(0, this.datastore.getDocumentCount());
+        Assert.assertNull(pullStrategy.targetDb.getCheckpoint(pullStrategy.getReplicationId()));
+    }
+
+    @Test
+    public void continuous_caughtUp_waitsForChangesUntilCancelled() throws Exception {
+        CouchDB mockRemoteDb = mock(CouchDB.class);
+        when(mockRemoteDb.changes((PullFilter) null, null, 1000)).then(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                FileReader fr = new FileReader(TestUtils.loadFixture
+                        ("fixture/empty_changes.json"));
+                return JSONUtils.fromJson(fr, ChangesResult.class);
+            }
+        });
+        when(mockRemoteDb.exists()).thenReturn(true);
+
+        StrategyListener mockListener = mock(StrategyListener.class);
+        final PullStrategy pullStrategy = super.getPullStrategy();
+        pullStrategy.sourceDb = mockRemoteDb;
+        pullStrategy.continuous = true;
+        pullStrategy.longpollTimeout = 10;
+        pullStrategy.getEventBus().register(mockListener);
+
+        // once caught up the strategy waits for more changes, stop it when it does
+        when(mockRemoteDb.changes((PullFilter) null, "10-d9e5b0147af143e5b6d1979378ad957b",
+                1000, 10L)).then(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                pullStrategy.setCancel();
+                FileReader fr = new FileReader(TestUtils.loadFixture
+                        ("fixture/empty_changes.json"));
+                return JSONUtils.fromJson(fr, ChangesResult.class);
+            }
+        });
+        pullStrategy.run();
+
+        verify(mockRemoteDb).changes((PullFilter) null, "10-d9e5b0147af143e5b6d1979378ad957b",
+                1000, 10L);
+        verify(mockListener).complete(any(ReplicationStrategyCompleted.class));
+        verify(mockListener, never()).error(any(ReplicationStrategyErrored.class));
+    }
+
     @Test
     public void testSetCheckpointWhenEmpty() throws Exception {
         CouchDB mockRemoteDb = mock(CouchDB.class);
@@ -16,12 +16,14 @@
 
 package org.hammock.sync.internal.replication;
 
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -132,6 +134,68 @@ public class PushStrategyMockTest extends ReplicationTestBase {
     }
 
 
+    @Test
+    public void push_severalBatches_allBatchesPushed() throws Exception {
+        //Prepare
+        StrategyListener mockListener = mock(StrategyListener.class);
+        CouchDB mockRemoteDb = mock(CouchDB.class);
+        PushStrategy pushStrategy = super.getPushStrategy();
+        pushStrategy.targetDb = mockRemoteDb;
+        pushStrategy.bulkInsertSize = 2;
+        pushStrategy.bulkDocsConcurrency = 3;
+        pushStrategy.eventBus.register(mockListener);
+
+        for (int i = 0; i < 9; i++) {
+            BarUtils.createBar(datastore, "Tom" + i, i);
+        }
+
+        when(mockRemoteDb.getCheckpoint(anyString())).thenReturn("0");
+        when(mockRemoteDb.exists()).thenReturn(true);
+        when(mockRemoteDb.revsDiff(any(Map.class))).thenReturn(new HashMap<String, CouchClient.MissingRevisions>());
+
+        // Exec
+        pushStrategy.run();
+
+        // Verify
+        verify(mockRemoteDb, times(5)).revsDiff(any(Map.class));
+        verify(mockRemoteDb, times(5)).bulkCreateSerializedDocs(any(List.class));
+        verify(mockRemoteDb).putCheckpoint(anyString(), eq("9"));
+        verify(mockListener, never()).error(any(ReplicationStrategyErrored.class));
+        verify(mockListener).complete(any(ReplicationStrategyCompleted.class));
+    }
+
+    @Test
+    public void push_severalChangesBatches_checkpointReadOnce() throws Exception {
+        //Prepare
+        StrategyListener mockListener = mock(StrategyListener.class);
+        CouchDB mockRemoteDb = mock(CouchDB.class);
+        PushStrategy pushStrategy = super.getPushStrategy();
+        pushStrategy.targetDb = mockRemoteDb;
+        pushStrategy.changeLimitPerBatch = 2;
+        pushStrategy.eventBus.register(mockListener);
+
+        for (int i = 0; i < 5; i++) {
+            BarUtils.createBar(datastore, "Tom" + i, i);
+        }
+
+        when(mockRemoteDb.getCheckpoint(anyString())).thenReturn("0");
+        when(mockRemoteDb.exists()).thenReturn(true);
+        when(mockRemoteDb.revsDiff(any(Map.class))).thenReturn(new HashMap<String, CouchClient.MissingRevisions>());
+
+        // Exec
+        pushStrategy.run();
+
+        // Verify
+        // later batches continue from the checkpoints written rather than reading them back
+        verify(mockRemoteDb, times(1)).getCheckpoint(anyString());
+        verify(mockRemoteDb).putCheckpoint(anyString(), eq("2"));
+        verify(mockRemoteDb).putCheckpoint(anyString(), eq("4"));
+        verify(mockRemoteDb).putCheckpoint(anyString(), eq("5"));
+        verify(mockListener, never()).error(any(ReplicationStrategyErrored.class));
+        verify(mockListener).complete(any(ReplicationStrategyCompleted.class));
+        Assert.assertEquals(3, pushStrategy.getBatchCounter());
+    }
+
     @Test
     public void push_coordinatorThreadInterrupted_pushAbortedCorrectly() throws
             Exception {
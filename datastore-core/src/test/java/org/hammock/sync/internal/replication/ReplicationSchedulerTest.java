@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.replication;
+
+import org.hammock.sync.event.EventBus;
+import org.hammock.sync.replication.ReplicationScheduler;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReplicationSchedulerTest {
+
+    private ReplicationScheduler scheduler;
+
+    private final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void schedule_oneWorker_higherPriorityRunsFirst() throws Exception {
+        scheduler = new ReplicationScheduler(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        scheduler.schedule(new ReplicatorImpl(new FakeStrategy("first", "http://a", release, 0)));
+        awaitStarted(1);
+        scheduler.schedule(new ReplicatorImpl(new FakeStrategy("low", "http://b", null, 0)), 0);
+        scheduler.schedule(new ReplicatorImpl(new FakeStrategy("high", "http://c", null, 0)), 5);
+        scheduler.schedule(new ReplicatorImpl(new FakeStrategy("low2", "http://d", null, 0)), 0);
+        release.countDown();
+
+        awaitFinished(4);
+        Assert.assertEquals(4, scheduler.getProgress().completed);
+        Assert.assertEquals(4, scheduler.getProgress().documentsReplicated);
+        Assert.assertEquals(Arrays.asList("first", "high", "low", "low2"), started);
+    }
+
+    @Test
+    public void schedule_sameRemote_limitedConcurrency() throws Exception {
+        scheduler = new ReplicationScheduler(4, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        for (int i = 0; i < 6; i++) {
+            FakeStrategy strategy = new FakeStrategy("r" + i, "http://host:5984/db" + i, null, 0);
+            strategy.running = running;
+            strategy.maxRunning = maxRunning;
+            scheduler.schedule(new ReplicatorImpl(strategy));
+        }
+
+        awaitFinished(6);
+        Assert.assertEquals(6, scheduler.getProgress().completed);
+        Assert.assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void schedule_errorsThenCompletes_retried() throws Exception {
+        scheduler = new ReplicationScheduler(2, 2, 3, 10);
+
+        scheduler.schedule(new ReplicatorImpl(new FakeStrategy("flaky", "http://a", null, 2)));
+
+        awaitFinished(1);
+        ReplicationScheduler.Progress progress = scheduler.getProgress();
+        Assert.assertEquals(1, progress.completed);
+        Assert.assertEquals(0, progress.failed);
+        Assert.assertEquals(3, started.size());
+    }
+
+    @Test
+    public void schedule_alwaysErrors_givenUpAfterMaxAttempts() throws Exception {
+        scheduler = new ReplicationScheduler(2, 2, 2, 10);
+
+        scheduler.schedule(new ReplicatorImpl(new FakeStrategy("broken", "http://a", null,
+                Integer.MAX_VALUE)));
+
+        awaitFinished(1);
+        ReplicationScheduler.Progress progress = scheduler.getProgress();
+        Assert.assertEquals(0, progress.completed);
+        Assert.assertEquals(1, progress.failed);
+        Assert.assertEquals(2, started.size());
+    }
+
+    private void awaitStarted(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (started.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, started.size());
+    }
+
+    private void awaitFinished(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        ReplicationScheduler.Progress progress = scheduler.getProgress();
+        while (progress.completed + progress.failed < count && System.currentTimeMillis() <
+                deadline) {
+            Thread.sleep(10);
+            progress = scheduler.getProgress();
+        }
+        Assert.assertEquals(count, progress.completed + progress.failed);
+    }
+
+    private class FakeStrategy implements ReplicationStrategy {
+
+        private final EventBus eventBus = new EventBus();
+        private final String name;
+        private final String remote;
+        private final CountDownLatch release;
+        private int failuresLeft;
+        AtomicInteger running;
+        AtomicInteger maxRunning;
+
+        FakeStrategy(String name, String remote, CountDownLatch release, int failures) {
+            this.name = name;
+            this.remote = remote;
+            this.release = release;
+            this.failuresLeft = failures;
+        }
+
+        @Override
+        public void run() {
+            started.add(name);
+            try {
+                if (running != null) {
+                    int now = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), now));
+                    }
+                    Thread.sleep(50);
+                    running.decrementAndGet();
+                }
+                if (release != null) {
+                    release.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                eventBus.post(new ReplicationStrategyErrored(this, new RuntimeException("fail")));
+            } else {
+                eventBus.post(new ReplicationStrategyCompleted(this));
+            }
+        }
+
+        @Override
+        public void setCancel() {
+        }
+
+        @Override
+        public boolean isReplicationTerminated() {
+            return true;
+        }
+
+        @Override
+        public EventBus getEventBus() {
+            return eventBus;
+        }
+
+        @Override
+        public String getReplicationId() {
+            return name;
+        }
+
+        @Override
+        public int getDocumentCounter() {
+            return 1;
+        }
+
+        @Override
+        public int getBatchCounter() {
+            return 1;
+        }
+
+        @Override
+        public String getRemote() {
+            return remote;
+        }
+    }
+}
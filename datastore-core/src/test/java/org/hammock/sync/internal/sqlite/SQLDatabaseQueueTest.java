@@ -0,0 +1,313 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.sqlite;
+
+import org.hammock.sync.documentstore.StorageProfile;
+import org.hammock.sync.documentstore.encryption.NullKeyProvider;
+import org.hammock.sync.internal.documentstore.migrations.SchemaOnlyMigration;
+import org.hammock.sync.internal.util.DatabaseUtils;
+import org.hammock.sync.util.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class SQLDatabaseQueueTest {
+
+    private String databaseDir;
+    private SQLDatabaseQueue queue;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE animals (id INTEGER PRIMARY KEY, name TEXT NOT NULL);",
+            "INSERT INTO animals (name) VALUES ('aardvark');"
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        databaseDir = TestUtils.createTempTestingDir(SQLDatabaseQueueTest.class.getName());
+        queue = new SQLDatabaseQueue(new File(databaseDir, "db.sync"), new NullKeyProvider(), 2);
+        queue.updateSchema(new SchemaOnlyMigration(SCHEMA), 1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queue.shutdown();
+        TestUtils.deleteTempTestingDir(databaseDir);
+    }
+
+    @Test
+    public void readSeesSchemaUpdateSubmittedBeforeIt() throws Exception {
+        Assert.assertEquals(1, queue.submitRead(new CountCallable()).get().intValue());
+    }
+
+    @Test
+    public void readIsNotBlockedByWriteInProgress() throws Exception {
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch finishWrite = new CountDownLatch(1);
+        Future<Void> write = queue.submitTransaction(new SQLCallable<Void>() {
+            @Override
+            public Void call(SQLDatabase db) throws Exception {
+                db.execSQL("INSERT INTO animals (name) VALUES ('badger');");
+                writeStarted.countDown();
+                Assert.assertTrue(finishWrite.await(1, TimeUnit.MINUTES));
+                return null;
+            }
+        });
+        Assert.assertTrue(writeStarted.await(1, TimeUnit.MINUTES));
+
+        // the reader sees the last committed state while the writer is still in its transaction
+        Assert.assertEquals(1, queue.submitRead(new CountCallable()).get(1, TimeUnit.MINUTES)
+                .intValue());
+
+        finishWrite.countDown();
+        write.get();
+        Assert.assertEquals(2, queue.submitRead(new CountCallable()).get().intValue());
+    }
+
+    @Test(expected = java.util.concurrent.ExecutionException.class)
+    public void readConnectionCannotWrite() throws Exception {
+        queue.submitRead(new SQLCallable<Void>() {
+            @Override
+            public Void call(SQLDatabase db) throws Exception {
+                db.execSQL("INSERT INTO animals (name) VALUES ('cat');");
+                return null;
+            }
+        }).get();
+    }
+
+    @Test
+    public void storageProfileAppliedToWriterAndReaders() throws Exception {
+        StorageProfile profile = new StorageProfile.Builder()
+                .journalMode(StorageProfile.JournalMode.WAL)
+                .synchronous(StorageProfile.Synchronous.NORMAL)
+                .cacheSizeKiB(4096)
+                .build();
+        SQLDatabaseQueue tuned = new SQLDatabaseQueue(new File(databaseDir, "tuned.sync"),
+                new NullKeyProvider(), profile, 1);
+        try {
+            Assert.assertEquals("wal", tuned.submit(new PragmaCallable("journal_mode")).get());
+            // 1 is NORMAL
+            Assert.assertEquals("1", tuned.submit(new PragmaCallable("synchronous")).get());
+            Assert.assertEquals("-4096", tuned.submit(new PragmaCallable("cache_size")).get());
+            Assert.assertEquals("-4096", tuned.submitRead(new PragmaCallable("cache_size")).get());
+        } finally {
+            tuned.shutdown();
+        }
+    }
+
+    @Test
+    public void defaultProfileKeepsRollbackJournal() throws Exception {
+        SQLDatabaseQueue rollback = new SQLDatabaseQueue(new File(databaseDir, "default.sync"),
+                new NullKeyProvider(), StorageProfile.DEFAULT, 0);
+        try {
+            Assert.assertEquals("delete", rollback.submit(new PragmaCallable("journal_mode"))
+                    .get());
+        } finally {
+            rollback.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readConnectionsRequireWal() throws Exception {
+        StorageProfile profile = new StorageProfile.Builder()
+                .journalMode(StorageProfile.JournalMode.DELETE)
+                .build();
+        new SQLDatabaseQueue(new File(databaseDir, "rollback.sync"), new NullKeyProvider(),
+                profile, 1);
+    }
+
+    @Test
+    public void readConnectionsOnlyUsedWithWal() throws Exception {
+        Assert.assertEquals(3, new StorageProfile.Builder()
+                .journalMode(StorageProfile.JournalMode.WAL)
+                .readConnections(3)
+                .build().getReadConnections());
+        Assert.assertEquals(0, new StorageProfile.Builder()
+                .journalMode(StorageProfile.JournalMode.DELETE)
+                .readConnections(3)
+                .build().getReadConnections());
+    }
+
+    @Test
+    public void groupCommitRollsBackOnlyTheFailedWrite() throws Exception {
+        StorageProfile profile = new StorageProfile.Builder()
+                .journalMode(StorageProfile.JournalMode.WAL)
+                .groupCommit(10, 100)
+                .build();
+        SQLDatabaseQueue grouped = new SQLDatabaseQueue(new File(databaseDir, "grouped.sync"),
+                new NullKeyProvider(), profile, 1);
+        try {
+            grouped.updateSchema(new SchemaOnlyMigration(SCHEMA), 1);
+
+            // hold up the writer so that the following writes are queued together
+            final CountDownLatch release = new CountDownLatch(1);
+            grouped.submit(new SQLCallable<Void>() {
+                @Override
+                public Void call(SQLDatabase db) throws Exception {
+                    Assert.assertTrue(release.await(1, TimeUnit.MINUTES));
+                    return null;
+                }
+            });
+            Future<Void> first = grouped.submitTransaction(new InsertCallable("badger", false));
+            Future<Void> failed = grouped.submitTransaction(new InsertCallable("cat", true));
+            Future<Void> last = grouped.submitTransaction(new InsertCallable("dog", false));
+            release.countDown();
+
+            first.get();
+            last.get();
+            try {
+                failed.get();
+                Assert.fail("Expected the failing write to fail");
+            } catch (java.util.concurrent.ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            Assert.assertEquals(3, grouped.submitRead(new CountCallable()).get().intValue());
+        } finally {
+            grouped.shutdown();
+        }
+    }
+
+    @Test
+    public void groupCommitRollsBackOnlyTheWriteWithFailedNestedTransaction() throws Exception {
+        StorageProfile profile = new StorageProfile.Builder()
+                .journalMode(StorageProfile.JournalMode.WAL)
+                .groupCommit(10, 100)
+                .build();
+        SQLDatabaseQueue grouped = new SQLDatabaseQueue(new File(databaseDir, "grouped.sync"),
+                new NullKeyProvider(), profile, 1);
+        try {
+            grouped.updateSchema(new SchemaOnlyMigration(SCHEMA), 1);
+
+            // hold up the writer so that the following writes are queued together
+            final CountDownLatch release = new CountDownLatch(1);
+            grouped.submit(new SQLCallable<Void>() {
+                @Override
+                public Void call(SQLDatabase db) throws Exception {
+                    Assert.assertTrue(release.await(1, TimeUnit.MINUTES));
+                    return null;
+                }
+            });
+            Future<Void> first = grouped.submitTransaction(new InsertCallable("badger", false));
+            Future<Void> failed = grouped.submitTransaction(new NestedRollbackCallable("cat"));
+            Future<Void> last = grouped.submitTransaction(new InsertCallable("dog", false));
+            release.countDown();
+
+            first.get();
+            last.get();
+            try {
+                failed.get();
+                Assert.fail("Expected the write with a failed nested transaction to fail");
+            } catch (java.util.concurrent.ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof java.sql.SQLException);
+            }
+            // the other writes are committed, and nothing from the failed write is
+            Assert.assertEquals(3, grouped.submitRead(new CountCallable()).get().intValue());
+        } finally {
+            grouped.shutdown();
+        }
+    }
+
+    @Test
+    public void transactionWithFailedNestedTransactionFails() throws Exception {
+        try {
+            queue.submitTransaction(new NestedRollbackCallable("cat")).get();
+            Assert.fail("Expected the write with a failed nested transaction to fail");
+        } catch (java.util.concurrent.ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof java.sql.SQLException);
+        }
+        Assert.assertEquals(1, queue.submitRead(new CountCallable()).get().intValue());
+    }
+
+    private static class InsertCallable implements SQLCallable<Void> {
+        private final String name;
+        private final boolean fail;
+
+        InsertCallable(String name, boolean fail) {
+            this.name = name;
+            this.fail = fail;
+        }
+
+        @Override
+        public Void call(SQLDatabase db) throws Exception {
+            db.execSQL("INSERT INTO animals (name) VALUES (?);", new Object[]{name});
+            if (fail) {
+                throw new IllegalStateException("Failing after insert of " + name);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Inserts a row, then ends a nested transaction without marking it successful and carries
+     * on as if nothing happened, as a callable which handles an error in a nested transaction
+     * by logging it would.
+     */
+    private static class NestedRollbackCallable implements SQLCallable<Void> {
+        private final String name;
+
+        NestedRollbackCallable(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Void call(SQLDatabase db) throws Exception {
+            db.execSQL("INSERT INTO animals (name) VALUES (?);", new Object[]{name});
+            db.beginTransaction();
+            try {
+                db.execSQL("INSERT INTO animals (name) VALUES (?);", new Object[]{name});
+            } finally {
+                db.endTransaction();
+            }
+            return null;
+        }
+    }
+
+    private static class PragmaCallable implements SQLCallable<String> {
+        private final String pragma;
+
+        PragmaCallable(String pragma) {
+            this.pragma = pragma;
+        }
+
+        @Override
+        public String call(SQLDatabase db) throws Exception {
+            Cursor cursor = null;
+            try {
+                cursor = db.rawQuery("PRAGMA " + pragma + ";", null);
+                Assert.assertTrue(cursor.moveToFirst());
+                return cursor.getString(0);
+            } finally {
+                DatabaseUtils.closeCursorQuietly(cursor);
+            }
+        }
+    }
+
+    private static class CountCallable implements SQLCallable<Integer> {
+        @Override
+        public Integer call(SQLDatabase db) throws Exception {
+            Cursor cursor = null;
+            try {
+                cursor = db.rawQuery("SELECT COUNT(*) FROM animals", null);
+                Assert.assertTrue(cursor.moveToFirst());
+                return cursor.getInt(0);
+            } finally {
+                DatabaseUtils.closeCursorQuietly(cursor);
+            }
+        }
+    }
+}
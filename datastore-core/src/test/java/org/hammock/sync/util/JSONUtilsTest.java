@@ -61,6 +61,27 @@ public class JSONUtilsTest {
         Assert.assertFalse(JSONUtils.isValidJSON("101"));
     }
 
+    @Test
+    public void isValidJSON_nestedObjectBytes() {
+        Assert.assertTrue(JSONUtils.isValidJSON("{\"a\":{\"b\":[1,2,{\"c\":null}]},\"d\":\"e\"}"
+                .getBytes()));
+    }
+
+    @Test
+    public void isValidJSON_truncatedObjectBytes() {
+        Assert.assertFalse(JSONUtils.isValidJSON("{\"a\":{\"b\":[1,2".getBytes()));
+    }
+
+    @Test
+    public void isValidJSON_arrayBytes() {
+        Assert.assertFalse(JSONUtils.isValidJSON("[{\"a\":1}]".getBytes()));
+    }
+
+    @Test
+    public void isValidJSON_trailingContentBytes() {
+        Assert.assertFalse(JSONUtils.isValidJSON("{\"a\":1} x".getBytes()));
+    }
+
     @Test
     public void serializeAsBytes() {
         Map obj = new HashMap<String, String>();
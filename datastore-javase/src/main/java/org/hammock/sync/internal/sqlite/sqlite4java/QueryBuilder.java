@@ -20,6 +20,8 @@ import org.hammock.sync.internal.android.ContentValues;
 import org.hammock.sync.internal.util.Misc;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.regex.Pattern;
 
 public class QueryBuilder {
@@ -27,6 +29,44 @@ public class QueryBuilder {
     private static final Pattern sLimitPattern =
             Pattern.compile("\\s*\\d+\\s*(,\\s*\\d+\\s*)?");
 
+    static final String[] CONFLICT_VALUES = new String[]
+            {"", " OR ROLLBACK ", " OR ABORT ", " OR FAIL ", " OR IGNORE ", " OR REPLACE "};
+
+    /**
+     * Returns the column names of {@code values} in a fixed order, so that the same set of
+     * columns always produces the same SQL text and the compiled statement can be reused.
+     */
+    static List<String> sortedColumns(ContentValues values) {
+        List<String> columns = new ArrayList<String>(values.keySet());
+        Collections.sort(columns);
+        return columns;
+    }
+
+    public static String buildInsertQuery(String table, ContentValues values, int conflictAlgorithm) {
+        StringBuilder query = new StringBuilder(120);
+        query.append("INSERT ")
+                .append(CONFLICT_VALUES[conflictAlgorithm])
+                .append(" INTO \"")
+                .append(table)
+                .append("\"")
+                .append('(');
+
+        int i = 0;
+        for (String colName : sortedColumns(values)) {
+            query.append((i > 0) ? "," : "");
+            query.append(colName);
+            i++;
+        }
+        query.append(')');
+        query.append(" VALUES (");
+        for (i = 0; i < values.size(); i++) {
+            query.append((i > 0) ? ",?" : "?");
+        }
+        query.append(')');
+
+        return query.toString();
+    }
+
     public static String buildUpdateQuery(String table, ContentValues values, String whereClause, String[] whereArgs) {
 
         StringBuilder query = new StringBuilder(120);
@@ -37,7 +77,7 @@ public class QueryBuilder {
                 .append(" SET ");
 
         int i = 0;
-        for (String colName : values.keySet()) {
+        for (String colName : sortedColumns(values)) {
             query.append((i > 0) ? "," : "");
             query.append(colName);
             query.append("=?");
@@ -55,7 +95,7 @@ public class QueryBuilder {
     public static Object[] buildBindArguments(ContentValues values, String[] whereArgs) {
         ArrayList<Object> bindArgs = new ArrayList<Object>();
 
-        for (String colName : values.keySet()) {
+        for (String colName : sortedColumns(values)) {
             bindArgs.add(values.get(colName));
         }
 
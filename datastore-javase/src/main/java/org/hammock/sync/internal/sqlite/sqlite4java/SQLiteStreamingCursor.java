@@ -0,0 +1,186 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.sqlite.sqlite4java;
+
+import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteStatement;
+import org.hammock.sync.internal.sqlite.Cursor;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Forward-only {@link Cursor} which keeps its {@link SQLiteStatement} open and reads each row
+ * from it as the cursor is advanced, rather than copying the whole result set up front as
+ * {@link SQLiteCursor} does.
+ * </p>
+ * <p>
+ * Column values are only valid until the next call to {@link #moveToNext()}. The row count is
+ * not known until every row has been read, so {@link #getCount()} is not supported, and
+ * {@link #moveToFirst()} is only supported before the cursor has moved past the first row.
+ * Like the statement it wraps, the cursor may only be used from the thread which created it,
+ * and must be closed to release the statement.
+ * </p>
+ */
+public class SQLiteStreamingCursor implements Cursor {
+
+    private final SQLiteStatement stmt;
+    private List<String> names;
+    private int position = -1;
+    private boolean afterLast = false;
+
+    public SQLiteStreamingCursor(SQLiteStatement stmt) {
+        this.stmt = stmt;
+    }
+
+    @Override
+    public int getCount() {
+        throw new UnsupportedOperationException("The row count of a streaming cursor is not " +
+                "known until all rows have been read");
+    }
+
+    @Override
+    public int getColumnCount() {
+        return getColumnNames().size();
+    }
+
+    @Override
+    public int columnType(int index) {
+        try {
+            return SQLiteWrapperUtils.mapColumnType(stmt.columnType(index));
+        } catch (SQLiteException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String columnName(int index) {
+        return getColumnNames().get(index);
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        if (position == -1) {
+            return moveToNext();
+        } else if (position == 0) {
+            return !afterLast;
+        }
+        throw new UnsupportedOperationException("A streaming cursor cannot move backwards");
+    }
+
+    @Override
+    public String getString(int index) {
+        try {
+            return stmt.columnString(index);
+        } catch (SQLiteException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int getInt(int index) {
+        try {
+            return stmt.columnInt(index);
+        } catch (SQLiteException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public long getLong(int index) {
+        try {
+            return stmt.columnLong(index);
+        } catch (SQLiteException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public float getFloat(int index) {
+        try {
+            return (float) stmt.columnDouble(index);
+        } catch (SQLiteException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public byte[] getBlob(int index) {
+        try {
+            return stmt.columnBlob(index);
+        } catch (SQLiteException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        return afterLast;
+    }
+
+    @Override
+    public boolean moveToNext() {
+        if (afterLast) {
+            return false;
+        }
+        try {
+            if (stmt.step()) {
+                position++;
+                return true;
+            }
+        } catch (SQLiteException e) {
+            throw new IllegalStateException(e);
+        }
+        afterLast = true;
+        // release the statement, and with it any read transaction, as soon as it is exhausted
+        SQLiteWrapperUtils.disposeQuietly(stmt);
+        return false;
+    }
+
+    @Override
+    public void close() {
+        SQLiteWrapperUtils.disposeQuietly(stmt);
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        return getColumnNames().indexOf(columnName);
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) throws IllegalArgumentException {
+        int i = getColumnIndex(columnName);
+        if(i < 0) {
+            throw new IllegalArgumentException("Can not find column: " + columnName);
+        } else {
+            return i;
+        }
+    }
+
+    private List<String> getColumnNames() {
+        // column lookups by name happen for every row, so only ask the statement once
+        if (names == null) {
+            try {
+                names = SQLiteWrapperUtils.getColumnNames(stmt);
+            } catch (SQLiteException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return "SQLiteStreamingCursor: position " + position + ", afterLast " + afterLast;
+    }
+}
@@ -24,6 +24,8 @@ import org.hammock.sync.internal.util.Misc;
 import java.io.File;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Stack;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -37,11 +39,18 @@ public class SQLiteWrapper extends SQLDatabase {
     private final static String LOG_TAG = "SQLiteWrapper";
     private static final Logger logger = Logger.getLogger(SQLiteWrapper.class.getCanonicalName());
 
-    private static final String[] CONFLICT_VALUES = new String[]
-            {"", " OR ROLLBACK ", " OR ABORT ", " OR FAIL ", " OR IGNORE ", " OR REPLACE "};
+    /**
+     * Maximum number of compiled statements kept by {@link #statementCache}.
+     */
+    private static final int STATEMENT_CACHE_SIZE = 64;
 
     private final File databaseFile;
 
+    /**
+     * Whether connections opened by this wrapper refuse to modify the database.
+     */
+    private final boolean readOnly;
+
     private SQLiteConnection localConnection;
 
     /**
@@ -58,8 +67,32 @@ public class SQLiteWrapper extends SQLDatabase {
      */
     private Stack<Boolean> transactionStack = new Stack<Boolean>();
 
+    /**
+     * Compiled statements for the SQL most recently executed via {@link #execSQL(String,
+     * Object[])}, {@link #insertWithOnConflict(String, ContentValues, int)}, {@link #update} and
+     * {@link #delete}, keyed by SQL text and in least-recently-used order. Statements are
+     * removed while they are executing, so nested use of the same SQL compiles a second one.
+     * Like the connection, this is only accessed from the thread which owns the connection.
+     */
+    private final Map<String, SQLiteStatement> statementCache = new LinkedHashMap<String,
+            SQLiteStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+            if (size() > STATEMENT_CACHE_SIZE) {
+                SQLiteWrapperUtils.disposeQuietly(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
     public SQLiteWrapper(File databaseFile) {
+        this(databaseFile, false);
+    }
+
+    public SQLiteWrapper(File databaseFile, boolean readOnly) {
         this.databaseFile = databaseFile;
+        this.readOnly = readOnly;
     }
 
     public static SQLiteWrapper open(File databaseFile) {
@@ -68,6 +101,20 @@ public class SQLiteWrapper extends SQLDatabase {
         return db;
     }
 
+    /**
+     * Opens a read-only wrapper for an existing database file. The connection is opened lazily
+     * by the first thread to use it and is confined to that thread.
+     *
+     * @param databaseFile the existing database file
+     * @return a wrapper whose connection cannot modify the database
+     */
+    public static SQLiteWrapper openReadOnly(File databaseFile) {
+        Misc.checkNotNull(databaseFile, "databaseFile");
+        SQLiteWrapper db = new SQLiteWrapper(databaseFile, true);
+        db.open();
+        return db;
+    }
+
     public SQLiteConnection getConnection() {
         if (localConnection == null) {
             localConnection = createNewConnection();
@@ -84,8 +131,15 @@ public class SQLiteWrapper extends SQLDatabase {
             } else {
                 conn = new SQLiteConnection();
             }
-            // open with "open or create" flag
-            conn.open(true);
+            if (readOnly) {
+                // the writer connection has already created the database; query_only rather
+                // than a read-only open, so that the connection can still use the WAL index
+                conn.open(false);
+                conn.exec("PRAGMA query_only = ON;");
+            } else {
+                // open with "open or create" flag
+                conn.open(true);
+            }
             conn.setBusyTimeout(30*1000);
             return conn;
         } catch (SQLiteException ex) {
@@ -107,6 +161,24 @@ public class SQLiteWrapper extends SQLDatabase {
         }
     }
 
+    @Override
+    public void enableWriteAheadLogging() throws SQLException {
+        SQLiteStatement stmt = null;
+        try {
+            stmt = getConnection().prepare("PRAGMA journal_mode = WAL;");
+            // the pragma returns the journal mode in effect after the call
+            String mode = stmt.step() ? stmt.columnString(0) : null;
+            if (!"wal".equalsIgnoreCase(mode)) {
+                throw new SQLException("Could not enable write-ahead logging, journal mode is " +
+                        mode);
+            }
+        } catch (SQLiteException e) {
+            throw new SQLException(e);
+        } finally {
+            SQLiteWrapperUtils.disposeQuietly(stmt);
+        }
+    }
+
     @Override
     public int getVersion() {
         try {
@@ -131,7 +203,9 @@ public class SQLiteWrapper extends SQLDatabase {
         // Start new set of nested transactions
         if(this.transactionStack.size() == 0) {
             try {
-                this.execSQL("BEGIN EXCLUSIVE;");
+                // a read-only connection must not take the write lock, which would wait for
+                // and then block the writer
+                this.execSQL(readOnly ? "BEGIN DEFERRED;" : "BEGIN EXCLUSIVE;");
             } catch (SQLException e) {
                 String error = "Fatal error running 'BEGIN', the database is probably malfunctioning.";
                 throw new IllegalStateException(error);
@@ -195,11 +269,27 @@ public class SQLiteWrapper extends SQLDatabase {
         this.transactionStack.push(true);
     }
 
+    @Override
+    public boolean isNestedTransactionFailed() {
+        return this.transactionStack.size() > 0 && !transactionNestedSetSuccess;
+    }
+
+    @Override
+    public void clearNestedTransactionFailure() {
+        Misc.checkState(this.transactionStack.size() >= 1,
+                "TransactionStatus stack must not be empty");
+        transactionNestedSetSuccess = true;
+    }
+
     @Override
     public void close() {
         // it's not possible to call dispose from other threads
         // so the best we can do is call dispose on the connection
         // for the same thread as us
+        for (SQLiteStatement stmt : statementCache.values()) {
+            SQLiteWrapperUtils.disposeQuietly(stmt);
+        }
+        statementCache.clear();
         SQLiteConnection conn = localConnection;
         if (conn != null && !conn.isDisposed()) {
             conn.dispose();
@@ -219,16 +309,10 @@ public class SQLiteWrapper extends SQLDatabase {
     @Override
     public void execSQL(String sql, Object[] bindArgs) throws SQLException {
         Misc.checkNotNullOrEmpty(sql.trim(), "Input SQL");
-        SQLiteStatement stmt = null;
         try {
-            stmt = this.getConnection().prepare(sql);
-            stmt = SQLiteWrapperUtils.bindArguments(stmt, bindArgs);
-            while (stmt.step()) {
-            }
+            this.executeSQLStatement(sql, bindArgs);
         } catch (SQLiteException e) {
             throw new SQLException(e);
-        } finally {
-            SQLiteWrapperUtils.disposeQuietly(stmt);
         }
     }
 
@@ -259,6 +343,16 @@ public class SQLiteWrapper extends SQLDatabase {
         }
     }
 
+    @Override
+    public SQLiteStreamingCursor rawQueryStreaming(String sql, String[] bindArgs) throws
+            SQLException {
+        try {
+            return SQLiteWrapperUtils.buildSQLiteStreamingCursor(getConnection(), sql, bindArgs);
+        } catch (SQLiteException e) {
+            throw new SQLException(e);
+        }
+    }
+
     @Override
     public int delete(String table, String whereClause, String[] whereArgs) {
         try {
@@ -285,34 +379,13 @@ public class SQLiteWrapper extends SQLDatabase {
         }
 
         try {
-            StringBuilder sql = new StringBuilder();
-            sql.append("INSERT ");
-            sql.append(CONFLICT_VALUES[conflictAlgorithm]);
-            sql.append(" INTO \"");
-            sql.append(table);
-            sql.append("\"");
-            sql.append('(');
-
-
-            Object[] bindArgs  = new Object[size];
-            int i = 0;
-            for (String colName : initialValues.keySet()) {
-                sql.append((i > 0) ? "," : "");
-                sql.append(colName);
-                bindArgs[i++] = initialValues.get(colName);
-            }
-            sql.append(')');
-            sql.append(" VALUES (");
-            for (i = 0; i < size; i++) {
-                sql.append((i > 0) ? ",?" : "?");
-            }
-
-            sql.append(')');
-            this.executeSQLStatement(sql.toString(), bindArgs);
+            String sql = QueryBuilder.buildInsertQuery(table, initialValues, conflictAlgorithm);
+            Object[] bindArgs = QueryBuilder.buildBindArguments(initialValues, null);
+            this.executeSQLStatement(sql, bindArgs);
             return getConnection().getLastInsertId();
         } catch (SQLiteException e) {
             logger.log(Level.SEVERE, String.format("Error inserting to: %s, %s, %s", table,
-                    initialValues, CONFLICT_VALUES[conflictAlgorithm]), e);
+                    initialValues, QueryBuilder.CONFLICT_VALUES[conflictAlgorithm]), e);
             return -1;
         }
     }
@@ -323,9 +396,45 @@ public class SQLiteWrapper extends SQLDatabase {
     }
 
     private void executeSQLStatement(String sql, Object[] values) throws SQLiteException{
-        SQLiteStatement stmt = getConnection().prepare(sql);
-        stmt = SQLiteWrapperUtils.bindArguments(stmt, values);
-        while (stmt.step()) {
+        SQLiteStatement stmt = acquireStatement(sql);
+        try {
+            SQLiteWrapperUtils.bindArguments(stmt, values);
+            while (stmt.step()) {
+            }
+        } finally {
+            releaseStatement(sql, stmt);
+        }
+    }
+
+    /**
+     * Returns a compiled statement for {@code sql}, from the cache if there is one, removing it
+     * from the cache until it is released.
+     */
+    private SQLiteStatement acquireStatement(String sql) throws SQLiteException {
+        SQLiteStatement stmt = statementCache.remove(sql);
+        if (stmt != null && !stmt.isDisposed()) {
+            return stmt;
+        }
+        // sqlite4java's own cache is unbounded, so bypass it and bound ours instead
+        return getConnection().prepare(sql, false);
+    }
+
+    /**
+     * Resets a statement obtained from {@link #acquireStatement(String)} and returns it to the
+     * cache, or disposes of it if it could not be reset.
+     */
+    private void releaseStatement(String sql, SQLiteStatement stmt) {
+        try {
+            // clear the bindings too, so that cached statements don't keep large blobs alive
+            stmt.reset(true);
+        } catch (SQLiteException e) {
+            logger.log(Level.FINE, "Could not reset statement, it will not be reused", e);
+            SQLiteWrapperUtils.disposeQuietly(stmt);
+            return;
+        }
+        SQLiteStatement previous = statementCache.put(sql, stmt);
+        if (previous != null) {
+            SQLiteWrapperUtils.disposeQuietly(previous);
         }
     }
 }
@@ -157,6 +157,25 @@ public class SQLiteWrapperUtils {
         }
     }
 
+    /**
+     * Prepares a query and returns a forward-only cursor which reads its rows as it is advanced.
+     * The statement is owned by the returned cursor and is disposed when the cursor is closed.
+     */
+    public static SQLiteStreamingCursor buildSQLiteStreamingCursor(SQLiteConnection conn,
+                                                                   String sql, Object[] bindArgs)
+            throws SQLiteException {
+        SQLiteStatement stmt = conn.prepare(sql);
+        try {
+            return new SQLiteStreamingCursor(bindArguments(stmt, bindArgs));
+        } catch (SQLiteException e) {
+            SQLiteWrapperUtils.disposeQuietly(stmt);
+            throw e;
+        } catch (RuntimeException e) {
+            SQLiteWrapperUtils.disposeQuietly(stmt);
+            throw e;
+        }
+    }
+
     static Tuple getDataRow(SQLiteStatement stmt) throws SQLiteException {
         logger.entering("com.cloudant.sync.internal.sqlite.sqlite4java.SQLiteWrapperUtils","getDataRow",stmt);
         Tuple result = new Tuple(getColumnTypes(stmt));
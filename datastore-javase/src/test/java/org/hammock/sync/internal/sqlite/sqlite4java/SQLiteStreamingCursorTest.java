@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.sqlite.sqlite4java;
+
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.util.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class SQLiteStreamingCursorTest {
+
+    private String databaseDir;
+    private SQLiteWrapper database;
+    private Cursor cursor;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseDir = TestUtils.createTempTestingDir(SQLiteStreamingCursorTest.class.getName());
+        database = (SQLiteWrapper) TestUtils.createEmptyDatabase(databaseDir,
+                SQLiteStreamingCursorTest.class.getName());
+        database.execSQL("CREATE TABLE docs (doc_id INTEGER PRIMARY KEY, doc_name TEXT, " +
+                "balance REAL, data BLOB);");
+        database.execSQL("INSERT INTO docs VALUES (?, ?, ?, ?)",
+                new Object[]{1, "haha", 102.0, new byte[]{'a', 'b'}});
+        database.execSQL("INSERT INTO docs VALUES (?, ?, ?, ?)",
+                new Object[]{2, "hehe", 103.0, null});
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (cursor != null) {
+            cursor.close();
+        }
+        database.close();
+        TestUtils.deleteDatabaseQuietly(database);
+        TestUtils.deleteTempTestingDir(databaseDir);
+    }
+
+    @Test
+    public void traverse() throws Exception {
+        cursor = database.rawQueryStreaming("SELECT doc_id, doc_name, balance, data FROM docs " +
+                "ORDER BY doc_id", null);
+        Assert.assertEquals(4, cursor.getColumnCount());
+        Assert.assertEquals(2, cursor.getColumnIndexOrThrow("balance"));
+
+        Assert.assertTrue(cursor.moveToNext());
+        Assert.assertEquals(1, cursor.getInt(0));
+        Assert.assertEquals("haha", cursor.getString(1));
+        Assert.assertEquals(102.0F, cursor.getFloat(2), 0.000001F);
+        Assert.assertTrue(Arrays.equals(new byte[]{'a', 'b'}, cursor.getBlob(3)));
+
+        Assert.assertTrue(cursor.moveToNext());
+        Assert.assertEquals(2L, cursor.getLong(0));
+        Assert.assertEquals(Cursor.FIELD_TYPE_NULL, cursor.columnType(3));
+
+        Assert.assertFalse(cursor.moveToNext());
+        Assert.assertTrue(cursor.isAfterLast());
+        Assert.assertFalse(cursor.moveToNext());
+    }
+
+    @Test
+    public void moveToFirstBeforeAdvancing() throws Exception {
+        cursor = database.rawQueryStreaming("SELECT doc_name FROM docs WHERE doc_id = ?",
+                new String[]{"2"});
+        Assert.assertTrue(cursor.moveToFirst());
+        Assert.assertTrue(cursor.moveToFirst());
+        Assert.assertEquals("hehe", cursor.getString(0));
+        Assert.assertFalse(cursor.moveToNext());
+    }
+
+    @Test
+    public void moveToFirstOnEmptyResult() throws Exception {
+        cursor = database.rawQueryStreaming("SELECT doc_name FROM docs WHERE doc_id = ?",
+                new String[]{"3"});
+        Assert.assertFalse(cursor.moveToFirst());
+        Assert.assertTrue(cursor.isAfterLast());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cannotMoveBackwards() throws Exception {
+        cursor = database.rawQueryStreaming("SELECT doc_name FROM docs", null);
+        Assert.assertTrue(cursor.moveToNext());
+        Assert.assertTrue(cursor.moveToNext());
+        cursor.moveToFirst();
+    }
+
+    @Test
+    public void closeBeforeExhausted() throws Exception {
+        cursor = database.rawQueryStreaming("SELECT doc_name FROM docs", null);
+        Assert.assertTrue(cursor.moveToNext());
+        cursor.close();
+        // the connection is still usable once the statement has been released
+        database.execSQL("DELETE FROM docs");
+    }
+}
@@ -564,6 +564,60 @@ public class SQLiteWrapperTest {
         }
     }
 
+    @Test
+    public void insert_columnOrderDoesNotMatter() throws SQLException {
+        prepareDatabaseForTesting();
+
+        ContentValues cv = new ContentValues();
+        cv.put("doc_id", 101);
+        cv.put("doc_name", "kaka");
+        cv.put("balance", "-299.99");
+        Assert.assertEquals(101, database.insert(doc_table_name, cv));
+
+        ContentValues cv2 = new ContentValues(8);
+        cv2.put("balance", "-199.99");
+        cv2.put("doc_name", "lala");
+        cv2.put("doc_id", 102);
+        Assert.assertEquals(102, database.insert(doc_table_name, cv2));
+
+        Cursor cursor = database.rawQuery("SELECT doc_name, balance FROM docs WHERE doc_id = 102",
+                null);
+        Assert.assertTrue(cursor.moveToFirst());
+        Assert.assertEquals("lala", cursor.getString(0));
+        Assert.assertEquals(-199.99F, cursor.getFloat(1), 0.001F);
+    }
+
+    @Test
+    public void execSQL_reusesStatementsBeyondCacheSize() throws SQLException {
+        database.execSQL(create_rev_table);
+
+        // more distinct statements than the cache holds, each executed more than once
+        for (int repeat = 0; repeat < 2; repeat++) {
+            for (int i = 0; i < 100; i++) {
+                database.execSQL("INSERT INTO revs (rev_id) VALUES (? + " + i * 1000 + ")",
+                        new Object[]{repeat});
+            }
+        }
+        Cursor cursor = database.rawQuery("SELECT COUNT(*) FROM revs", null);
+        Assert.assertTrue(cursor.moveToFirst());
+        Assert.assertEquals(200, cursor.getInt(0));
+    }
+
+    @Test
+    public void insert_failedStatementIsNotReused() throws SQLException {
+        prepareDatabaseForTesting();
+
+        ContentValues cv = new ContentValues();
+        cv.put("doc_id", 101);
+        cv.put("doc_name", "kaka");
+        cv.put("balance", "-299.99");
+        Assert.assertEquals(101, database.insert(doc_table_name, cv));
+        Assert.assertEquals(-1, database.insert(doc_table_name, cv));
+
+        cv.put("doc_id", 102);
+        Assert.assertEquals(102, database.insert(doc_table_name, cv));
+    }
+
     @Test(expected = SQLException.class)
     public void close_queryAfterClose() throws SQLException {
         this.database.close();